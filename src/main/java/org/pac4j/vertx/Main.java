@@ -1,14 +1,49 @@
 package org.pac4j.vertx;
 
+import io.vertx.core.DeploymentOptions;
 import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.json.JsonObject;
 import org.pac4j.vertx.verticle.MainVerticle;
+import org.pac4j.vertx.verticle.ServerTuning;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 /**
  * Simple main class to launch the Vert.x application
  */
 public class Main {
-    public static void main(String[] args) {
-        Vertx vertx = Vertx.vertx();
-        vertx.deployVerticle(new MainVerticle());
+
+    private static final Logger LOG = LoggerFactory.getLogger(Main.class);
+
+    /**
+     * @param args optionally, the path of a JSON file whose entries replace those of the bundled config_demo.json
+     */
+    public static void main(String[] args) throws IOException {
+        // the config is read once, here, as the transport is chosen when vert.x is created
+        final JsonObject config;
+        try (InputStream in = Main.class.getClassLoader().getResourceAsStream(MainVerticle.CONFIG_FILE)) {
+            if (in == null) {
+                throw new IllegalStateException(MainVerticle.CONFIG_FILE + " not found on the classpath");
+            }
+            config = new JsonObject(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        if (args.length > 0) {
+            config.mergeIn(new JsonObject(Files.readString(Path.of(args[0]))));
+        }
+        final VertxOptions options = ServerTuning.vertxOptions(config);
+        Vertx vertx = Vertx.vertx(options);
+        if (vertx.isNativeTransportEnabled()) {
+            LOG.info("Using the native transport");
+        } else if (options.getPreferNativeTransport()) {
+            LOG.warn("Native transport unavailable, using NIO", vertx.unavailableNativeTransportCause());
+        }
+        vertx.deployVerticle(new MainVerticle(), new DeploymentOptions().setConfig(config));
     }
-}
\ No newline at end of file
+}
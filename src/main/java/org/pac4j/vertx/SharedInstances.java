@@ -0,0 +1,82 @@
+package org.pac4j.vertx;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * The instances shared by every verticle of a vert.x instance (metrics, budgets, caches...), one per class, kept in a
+ * vert.x local map.
+ *
+ * @since 7.0.0
+ */
+public final class SharedInstances {
+
+    private static final String SHARED_MAP_NAME = "pac4j-demo.shared";
+
+    private SharedInstances() {
+    }
+
+    /**
+     * @return the instance of the given class shared in this vert.x instance, created by the first caller
+     */
+    public static <T extends Shareable> T getOrCreate(final Vertx vertx, final Class<T> type,
+                                                      final Supplier<? extends T> factory) {
+        return getOrCreate(vertx, type, factory, discarded -> { });
+    }
+
+    /**
+     * @param discard releases what an instance created by a caller racing with another one holds, e.g. a worker
+     *                pool, as the other one's instance is shared instead
+     */
+    public static <T extends Shareable> T getOrCreate(final Vertx vertx, final Class<T> type,
+                                                      final Supplier<? extends T> factory,
+                                                      final Consumer<? super T> discard) {
+        final T existing = get(vertx, type);
+        if (existing != null) {
+            return existing;
+        }
+        final T created = factory.get();
+        final T shared = putIfAbsent(vertx, type, created);
+        if (shared != created) {
+            discard.accept(created);
+        }
+        return shared;
+    }
+
+    /**
+     * @return the instance of the given class shared in this vert.x instance, or null if there is none
+     */
+    public static <T extends Shareable> T get(final Vertx vertx, final Class<T> type) {
+        return type.cast(map(vertx).get(type.getName()));
+    }
+
+    /**
+     * @return the instance now shared: the one already shared if any, otherwise the given one
+     */
+    public static <T extends Shareable> T putIfAbsent(final Vertx vertx, final Class<T> type, final T instance) {
+        final Shareable existing = map(vertx).putIfAbsent(type.getName(), instance);
+        return existing != null ? type.cast(existing) : instance;
+    }
+
+    /**
+     * Shares the given instance, replacing any instance of its class already shared.
+     */
+    public static <T extends Shareable> void put(final Vertx vertx, final Class<T> type, final T instance) {
+        map(vertx).put(type.getName(), instance);
+    }
+
+    /**
+     * @return the instance of the given class that was shared, or null if there was none
+     */
+    public static <T extends Shareable> T remove(final Vertx vertx, final Class<T> type) {
+        return type.cast(map(vertx).remove(type.getName()));
+    }
+
+    private static LocalMap<String, Shareable> map(final Vertx vertx) {
+        return vertx.sharedData().getLocalMap(SHARED_MAP_NAME);
+    }
+}
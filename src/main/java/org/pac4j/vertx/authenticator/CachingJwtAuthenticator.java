@@ -0,0 +1,98 @@
+package org.pac4j.vertx.authenticator;
+
+import org.pac4j.core.context.CallContext;
+import org.pac4j.core.credentials.Credentials;
+import org.pac4j.core.credentials.TokenCredentials;
+import org.pac4j.core.credentials.authenticator.Authenticator;
+import org.pac4j.core.profile.UserProfile;
+import org.pac4j.core.profile.jwt.JwtClaims;
+import org.pac4j.vertx.cache.ExpiringLruCache;
+import org.pac4j.vertx.profile.ProfileCopies;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Authenticator remembering the profiles of tokens its delegate (typically a JwtAuthenticator) has already verified,
+ * so that a token presented again is neither parsed nor has its signature checked again. Entries are keyed by a
+ * SHA-256 digest of the token rather than the token itself, and expire at the token's "exp" claim, capped by a maximum
+ * time to live for tokens without one. Failed validations are never cached.
+ *
+ * The cache keeps its own copy of each profile and hands out a fresh copy on every hit, as pac4j goes on changing the
+ * profile of a request once authenticated (client name, roles added by authorization generators...).
+ *
+ * @since 7.0.0
+ */
+public class CachingJwtAuthenticator implements Authenticator {
+
+    private final Authenticator delegate;
+    private final ExpiringLruCache<String, UserProfile> cache;
+    private final long maxTtlMillis;
+
+    public CachingJwtAuthenticator(final Authenticator delegate, final int maxSize, final long maxTtl, final TimeUnit unit) {
+        this(delegate, new ExpiringLruCache<>(maxSize), unit.toMillis(maxTtl));
+    }
+
+    CachingJwtAuthenticator(final Authenticator delegate, final ExpiringLruCache<String, UserProfile> cache,
+                            final long maxTtlMillis) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.maxTtlMillis = maxTtlMillis;
+    }
+
+    @Override
+    public Optional<Credentials> validate(final CallContext ctx, final Credentials credentials) {
+        if (!(credentials instanceof TokenCredentials)) {
+            return delegate.validate(ctx, credentials);
+        }
+
+        final String key = digest(((TokenCredentials) credentials).getToken());
+        final UserProfile cached = cache.get(key);
+        if (cached != null) {
+            credentials.setUserProfile(ProfileCopies.copy(cached));
+            return Optional.of(credentials);
+        }
+
+        final Optional<Credentials> validated = delegate.validate(ctx, credentials);
+        validated.map(Credentials::getUserProfile)
+                .ifPresent(profile -> cache.put(key, ProfileCopies.copy(profile), expiresAt(profile)));
+        return validated;
+    }
+
+    public long hits() {
+        return cache.hits();
+    }
+
+    public long misses() {
+        return cache.misses();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    private long expiresAt(final UserProfile profile) {
+        final long latest = cache.now() + maxTtlMillis;
+        final Object exp = profile.getAttribute(JwtClaims.EXPIRATION_TIME);
+        if (exp instanceof Date) {
+            return Math.min(((Date) exp).getTime(), latest);
+        } else if (exp instanceof Number) {
+            return Math.min(TimeUnit.SECONDS.toMillis(((Number) exp).longValue()), latest);
+        }
+        return latest;
+    }
+
+    private static String digest(final String token) {
+        try {
+            final MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(sha256.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not supported", e);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package org.pac4j.vertx.authenticator;
+
+import io.vertx.core.Context;
+import org.pac4j.core.context.CallContext;
+import org.pac4j.core.credentials.Credentials;
+import org.pac4j.core.credentials.UsernamePasswordCredentials;
+import org.pac4j.core.credentials.authenticator.Authenticator;
+import org.pac4j.core.exception.CredentialsException;
+import org.pac4j.core.profile.UserProfile;
+import org.pac4j.vertx.cache.ExpiringLruCache;
+import org.pac4j.vertx.profile.ProfileCopies;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Authenticator remembering the outcome of its delegate (typically an LDAP or SQL authenticator) for a username and
+ * password, so stateless clients sending their credentials on every request don't cost a backend round trip each
+ * time. Successes are remembered for a short time to live and failures, so that repeated bad credentials don't reach
+ * the backend either, for their own, usually shorter, one. Concurrent validations of the same credentials are
+ * coalesced into a single call to the delegate, the other callers waiting for its outcome. Only worker threads wait:
+ * the decorator is meant to run on the authentication worker pool ("authExecution" enabled), and a caller on an event
+ * loop calls the delegate itself rather than blocking the event loop behind another thread's backend call.
+ *
+ * Entries are keyed by an HMAC of the username and password under a key drawn at random for each instance, so the
+ * cache never holds the passwords nor anything that could be checked against a guess outside this process.
+ *
+ * The cache keeps its own copy of each profile and hands out a fresh copy on every hit (and to every coalesced caller),
+ * as pac4j goes on changing the profile of a request once authenticated.
+ *
+ * @since 7.0.0
+ */
+public class CachingUsernamePasswordAuthenticator implements Authenticator {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private final Authenticator delegate;
+    private final ExpiringLruCache<String, Outcome> cache;
+    private final long ttlMillis;
+    private final long negativeTtlMillis;
+    private final Map<String, CompletableFuture<Outcome>> inFlight = new ConcurrentHashMap<>();
+    private final SecretKeySpec salt;
+
+    public CachingUsernamePasswordAuthenticator(final Authenticator delegate, final int maxSize, final long ttl,
+                                                final long negativeTtl, final TimeUnit unit) {
+        this(delegate, new ExpiringLruCache<>(maxSize), unit.toMillis(ttl), unit.toMillis(negativeTtl));
+    }
+
+    CachingUsernamePasswordAuthenticator(final Authenticator delegate, final ExpiringLruCache<String, Outcome> cache,
+                                         final long ttlMillis, final long negativeTtlMillis) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.ttlMillis = ttlMillis;
+        this.negativeTtlMillis = negativeTtlMillis;
+        final byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        this.salt = new SecretKeySpec(key, HMAC_ALGORITHM);
+    }
+
+    @Override
+    public Optional<Credentials> validate(final CallContext ctx, final Credentials credentials) {
+        if (!(credentials instanceof UsernamePasswordCredentials)) {
+            return delegate.validate(ctx, credentials);
+        }
+
+        final String key = key((UsernamePasswordCredentials) credentials);
+        Outcome outcome = cache.get(key);
+        if (outcome == null) {
+            final CompletableFuture<Outcome> lookup = new CompletableFuture<>();
+            final CompletableFuture<Outcome> running = inFlight.putIfAbsent(key, lookup);
+            if (running == null) {
+                outcome = lookup(ctx, credentials, key, lookup);
+            } else if (Context.isOnEventLoopThread()) {
+                outcome = remember(key, validateWithDelegate(ctx, credentials));
+            } else {
+                outcome = join(running);
+            }
+        }
+        return outcome.apply(credentials);
+    }
+
+    public long hits() {
+        return cache.hits();
+    }
+
+    public long misses() {
+        return cache.misses();
+    }
+
+    private Outcome lookup(final CallContext ctx, final Credentials credentials, final String key,
+                           final CompletableFuture<Outcome> lookup) {
+        try {
+            final Outcome outcome = remember(key, validateWithDelegate(ctx, credentials));
+            lookup.complete(outcome);
+            return outcome;
+        } catch (final RuntimeException e) {
+            // not an authentication failure (backend unavailable...): not cached, and passed on to the waiting callers
+            lookup.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, lookup);
+        }
+    }
+
+    private Outcome remember(final String key, final Outcome outcome) {
+        cache.put(key, outcome, cache.now() + (outcome.profile != null ? ttlMillis : negativeTtlMillis));
+        return outcome;
+    }
+
+    private Outcome validateWithDelegate(final CallContext ctx, final Credentials credentials) {
+        try {
+            return delegate.validate(ctx, credentials)
+                    .map(Credentials::getUserProfile)
+                    .map(ProfileCopies::copy)
+                    .map(Outcome::success)
+                    .orElse(Outcome.REJECTED);
+        } catch (final CredentialsException e) {
+            return Outcome.failure(e.getMessage());
+        }
+    }
+
+    private static Outcome join(final CompletableFuture<Outcome> running) {
+        try {
+            return running.join();
+        } catch (final CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private String key(final UsernamePasswordCredentials credentials) {
+        try {
+            final Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(salt);
+            mac.update(String.valueOf(credentials.getUsername()).getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return Base64.getEncoder().encodeToString(
+                    mac.doFinal(String.valueOf(credentials.getPassword()).getBytes(StandardCharsets.UTF_8)));
+        } catch (final GeneralSecurityException e) {
+            throw new IllegalStateException(HMAC_ALGORITHM + " not supported", e);
+        }
+    }
+
+    /**
+     * Outcome of validating credentials: a profile, a failure to rethrow, or a rejection without exception.
+     */
+    static final class Outcome {
+        private static final Outcome REJECTED = new Outcome(null, null);
+
+        private final UserProfile profile;
+        private final String failure;
+
+        private Outcome(final UserProfile profile, final String failure) {
+            this.profile = profile;
+            this.failure = failure;
+        }
+
+        private static Outcome success(final UserProfile profile) {
+            return new Outcome(profile, null);
+        }
+
+        private static Outcome failure(final String message) {
+            return new Outcome(null, message);
+        }
+
+        private Optional<Credentials> apply(final Credentials credentials) {
+            if (failure != null) {
+                throw new CredentialsException(failure);
+            } else if (profile == null) {
+                return Optional.empty();
+            }
+            credentials.setUserProfile(ProfileCopies.copy(profile));
+            return Optional.of(credentials);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package org.pac4j.vertx.authorizer;
+
+import org.pac4j.core.authorization.authorizer.Authorizer;
+import org.pac4j.core.context.WebContext;
+import org.pac4j.core.context.session.SessionStore;
+import org.pac4j.core.profile.UserProfile;
+import org.pac4j.core.util.Pac4jConstants;
+import org.pac4j.vertx.session.SessionCaches;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Authorizer remembering its delegate's decision in the session, as it only depends on the session's profiles: an
+ * expensive delegate (LDAP group lookups, remote policy checks...) then runs once per login rather than once per
+ * request. A decision is stored as a Boolean under the authorizer's name and the session's profile set version
+ * ({@link SessionCaches#PROFILES_VERSION_KEY}), which the callback and the logouts bump, so it is only reused for the
+ * same profiles. Being under {@link SessionCaches#KEY_PREFIX}, older decisions are dropped at the same time.
+ *
+ * Requests without a session, or whose profiles aren't those of the session (direct clients), are always passed to
+ * the delegate, and no session is created for them.
+ *
+ * @since 7.0.0
+ */
+public class CachingAuthorizer implements Authorizer {
+
+    private final String keyPrefix;
+    private final Authorizer delegate;
+
+    public CachingAuthorizer(final String name, final Authorizer delegate) {
+        this.keyPrefix = SessionCaches.KEY_PREFIX + "authorizer." + name + "@";
+        this.delegate = delegate;
+    }
+
+    @Override
+    public boolean isAuthorized(final WebContext context, final SessionStore sessionStore, final List<UserProfile> profiles) {
+        if (profiles.isEmpty() || sessionStore.getSessionId(context, false).isEmpty()
+                || !areSessionProfiles(context, sessionStore, profiles)) {
+            return delegate.isAuthorized(context, sessionStore, profiles);
+        }
+
+        final String key = keyPrefix + sessionStore.get(context, SessionCaches.PROFILES_VERSION_KEY).orElse(0);
+        final Optional<Object> cached = sessionStore.get(context, key);
+        if (cached.isPresent() && cached.get() instanceof Boolean) {
+            return (Boolean) cached.get();
+        }
+
+        final boolean authorized = delegate.isAuthorized(context, sessionStore, profiles);
+        sessionStore.set(context, key, authorized);
+        return authorized;
+    }
+
+    private static boolean areSessionProfiles(final WebContext context, final SessionStore sessionStore,
+                                              final List<UserProfile> profiles) {
+        final Optional<Object> stored = sessionStore.get(context, Pac4jConstants.USER_PROFILES);
+        if (stored.isEmpty() || !(stored.get() instanceof Map)) {
+            return false;
+        }
+        final Map<?, ?> sessionProfiles = (Map<?, ?>) stored.get();
+        for (final UserProfile profile : profiles) {
+            if (!sessionProfiles.containsValue(profile)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,102 @@
+package org.pac4j.vertx.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Small thread-safe cache bounded by size, evicting the least recently used entry once full, where every entry also
+ * carries its own absolute expiry time. Hits and misses are counted so the cache's effectiveness can be reported.
+ *
+ * @since 7.0.0
+ */
+public class ExpiringLruCache<K, V> {
+
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private final LongSupplier clock;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public ExpiringLruCache(final int maxSize) {
+        this(maxSize, System::currentTimeMillis);
+    }
+
+    public ExpiringLruCache(final int maxSize, final LongSupplier clock) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<K, Entry<V>> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * @return the cached value, or null if there is none or it has expired
+     */
+    public V get(final K key) {
+        final long now = clock.getAsLong();
+        synchronized (entries) {
+            final Entry<V> entry = entries.get(key);
+            if (entry != null) {
+                if (entry.expiresAt > now) {
+                    hits.increment();
+                    return entry.value;
+                }
+                entries.remove(key);
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Caches a value until the given time in milliseconds since the epoch. Values already expired are not stored.
+     */
+    public void put(final K key, final V value, final long expiresAt) {
+        if (expiresAt <= clock.getAsLong()) {
+            return;
+        }
+        synchronized (entries) {
+            entries.put(key, new Entry<>(value, expiresAt));
+        }
+    }
+
+    public void invalidate(final K key) {
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long now() {
+        return clock.getAsLong();
+    }
+
+    private static class Entry<V> {
+        private final V value;
+        private final long expiresAt;
+
+        private Entry(final V value, final long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package org.pac4j.vertx.config;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.WorkerExecutor;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.Shareable;
+import org.pac4j.core.client.Client;
+import org.pac4j.core.config.Config;
+import org.pac4j.core.util.InitializableObject;
+import org.pac4j.vertx.SharedInstances;
+import org.pac4j.vertx.handler.ProtectedEndpoints;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Initializes every client of a pac4j config before the demo starts serving, rather than on the first request for
+ * each of them: keystore loading and metadata parsing (SAML), SP metadata generation, discovery (OIDC)... Clients are
+ * initialized in parallel on a worker pool, and the init time of each one is logged.
+ *
+ * Configured by the "clientWarmup" config object: "enabled", "timeoutMs" per client and "failFast", whether a client
+ * failing to initialize fails startup. Otherwise it is logged, and pac4j tries again on the first request for it.
+ * With "lazyUnreferenced", clients protecting none of the configured {@link ProtectedEndpoints} are not initialized
+ * here but on their first request (a callback or a forced login), so they don't hold back startup.
+ *
+ * The warmed up config is published in the vert.x shared data, see {@link #publish(Vertx)}, so the verticles serving
+ * requests use these clients instead of building (and initializing) their own.
+ *
+ * @since 7.0.0
+ */
+public class ClientWarmup implements Shareable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ClientWarmup.class);
+
+    public static final String CONFIG_KEY = "clientWarmup";
+    public static final long DEFAULT_TIMEOUT_MS = 30000;
+
+
+    private final Config config;
+    private final Map<String, Long> initMillis;
+
+    private ClientWarmup(final Config config, final Map<String, Long> initMillis) {
+        this.config = config;
+        this.initMillis = Collections.unmodifiableMap(initMillis);
+    }
+
+    public static boolean isEnabled(final JsonObject conf) {
+        return conf.getJsonObject(CONFIG_KEY, new JsonObject()).getBoolean("enabled", false);
+    }
+
+    /**
+     * Initializes the clients of the given config on the named worker pool.
+     *
+     * @return the warmup, once every client is initialized, has failed or timed out; failed only if "failFast" is set
+     * and a client failed
+     */
+    public static Future<ClientWarmup> run(final Vertx vertx, final Config config, final JsonObject conf,
+                                           final String workerPoolName, final int workerPoolSize) {
+        final JsonObject warmupConf = conf.getJsonObject(CONFIG_KEY, new JsonObject());
+        final long timeoutMs = warmupConf.getLong("timeoutMs", DEFAULT_TIMEOUT_MS);
+        final boolean failFast = warmupConf.getBoolean("failFast", false);
+        final List<Client> clients = clientsToInit(config, conf, warmupConf.getBoolean("lazyUnreferenced", false));
+        final WorkerExecutor executor = vertx.createSharedWorkerExecutor(workerPoolName, workerPoolSize);
+        final long start = System.nanoTime();
+
+        final Map<String, Long> initMillis = Collections.synchronizedMap(new LinkedHashMap<>());
+        final List<Future<Long>> running = new ArrayList<>(clients.size());
+        final List<Future<Long>> inits = clients.stream()
+                .map(client -> {
+                    final Future<Long> init = init(executor, client);
+                    running.add(init);
+                    return init.timeout(timeoutMs, TimeUnit.MILLISECONDS)
+                            .onSuccess(millis -> {
+                                initMillis.put(client.getName(), millis);
+                                LOG.info("Initialized client " + client.getName() + " in " + millis + " ms");
+                            })
+                            .onFailure(e -> LOG.warn("Failed to initialize client " + client.getName()
+                                    + (failFast ? "" : ", it will be initialized on its first request"), e));
+                })
+                .collect(Collectors.toList());
+        // inits that timed out keep their worker thread until they return, the executor is only closed after them
+        Future.join(running).onComplete(done -> executor.close());
+
+        final Future<ClientWarmup> warmup = (failFast ? Future.all(inits) : Future.join(inits))
+                .otherwiseEmpty()
+                .flatMap(done -> {
+                    if (failFast && done == null) {
+                        return Future.failedFuture(new IllegalStateException("Client warmup failed"));
+                    }
+                    LOG.info("Initialized " + initMillis.size() + " of " + clients.size() + " clients in "
+                            + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+                    return Future.succeededFuture(new ClientWarmup(config, new LinkedHashMap<>(initMillis)));
+                });
+        return warmup;
+    }
+
+    private static List<Client> clientsToInit(final Config config, final JsonObject conf, final boolean lazyUnreferenced) {
+        final List<Client> clients = config.getClients().getClients();
+        if (!lazyUnreferenced) {
+            return clients;
+        }
+        final Set<String> referenced = ProtectedEndpoints.fromConfig(conf).referencedClients();
+        final List<Client> eager = new ArrayList<>();
+        for (final Client client : clients) {
+            if (referenced.contains(client.getName())) {
+                eager.add(client);
+            } else {
+                LOG.info("Client " + client.getName() + " protects no endpoint, it will be initialized on its first request");
+            }
+        }
+        return eager;
+    }
+
+    private static Future<Long> init(final WorkerExecutor executor, final Client client) {
+        return executor.<Long>executeBlocking(() -> {
+            final long start = System.nanoTime();
+            if (client instanceof InitializableObject) {
+                ((InitializableObject) client).init();
+            }
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        }, false);
+    }
+
+    /**
+     * @return the warmup published in this vert.x instance, or null if there was none
+     */
+    public static ClientWarmup published(final Vertx vertx) {
+        return SharedInstances.get(vertx, ClientWarmup.class);
+    }
+
+    public void publish(final Vertx vertx) {
+        SharedInstances.put(vertx, ClientWarmup.class, this);
+    }
+
+    public Config config() {
+        return config;
+    }
+
+    /**
+     * @return the init time in milliseconds of each successfully initialized client
+     */
+    public Map<String, Long> initMillis() {
+        return initMillis;
+    }
+
+    public JsonObject toJson() {
+        final JsonObject clients = new JsonObject();
+        initMillis.forEach(clients::put);
+        return new JsonObject().put("clientInitMillis", clients);
+    }
+}
@@ -10,6 +10,7 @@ import org.pac4j.core.client.Clients;
 import org.pac4j.core.client.direct.AnonymousClient;
 import org.pac4j.core.config.Config;
 import org.pac4j.core.config.ConfigFactory;
+import org.pac4j.core.credentials.authenticator.Authenticator;
 import org.pac4j.http.client.direct.DirectBasicAuthClient;
 import org.pac4j.http.client.direct.ParameterClient;
 import org.pac4j.http.client.indirect.FormClient;
@@ -24,12 +25,21 @@ import org.pac4j.oidc.client.OidcClient;
 import org.pac4j.oidc.config.OidcConfiguration;
 import org.pac4j.saml.client.SAML2Client;
 import org.pac4j.saml.config.SAML2Configuration;
+import org.pac4j.vertx.authenticator.CachingJwtAuthenticator;
+import org.pac4j.vertx.authenticator.CachingUsernamePasswordAuthenticator;
+import org.pac4j.vertx.authorizer.CachingAuthorizer;
 import org.pac4j.vertx.authorizer.CustomAuthorizer;
+import org.pac4j.vertx.oidc.CachingResourceRetriever;
+import org.pac4j.vertx.saml.EntityMetadata;
+import org.pac4j.vertx.saml.IdpMetadataRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ByteArrayResource;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author Jeremy Prime
@@ -42,6 +52,16 @@ public class Pac4jConfigurationFactory implements ConfigFactory {
     public static final String AUTHORIZER_ADMIN = "admin";
     public static final String AUTHORIZER_CUSTOM = "custom";
 
+    public static final String SAML_KEYSTORE_PATH = "samlConfig/samlKeystore.jks";
+    public static final String SAML_KEYSTORE_PASSWORD = "pac4j-demo-passwd";
+    public static final String SAML_IDP_METADATA_PATH = "samlConfig/metadata-okta.xml";
+
+    public static final int DEFAULT_JWT_CACHE_SIZE = 10000;
+    public static final long DEFAULT_JWT_CACHE_TTL_SECONDS = 300;
+    public static final int DEFAULT_BASIC_AUTH_CACHE_SIZE = 10000;
+    public static final long DEFAULT_BASIC_AUTH_CACHE_TTL_SECONDS = 60;
+    public static final long DEFAULT_BASIC_AUTH_NEGATIVE_CACHE_TTL_SECONDS = 10;
+
     private final JsonObject jsonConf;
     private final Vertx vertx;
     private final SessionStore sessionStore;
@@ -56,36 +76,67 @@ public class Pac4jConfigurationFactory implements ConfigFactory {
     public Config build(Object... parameters) {
         final String baseUrl = jsonConf.getString("baseUrl");
 
-        // REST authent with JWT for a token passed in the url as the token parameter
-        final String jwtSalt = jsonConf.getString("jwtSalt");
-        final ParameterClient parameterClient = new ParameterClient("token",
-                new JwtAuthenticator(new SecretSignatureConfiguration(jwtSalt)));
+        // REST authent with JWT for a token passed in the url as the token parameter, remembering verified tokens
+        // so the same token presented again isn't parsed and checked again
+        final ParameterClient parameterClient = new ParameterClient("token", jwtAuthenticator(jsonConf));
         parameterClient.setSupportGetRequest(true);
         parameterClient.setSupportPostRequest(false);
 
-        // basic auth
-        final DirectBasicAuthClient directBasicAuthClient = new DirectBasicAuthClient(new SimpleTestUsernamePasswordAuthenticator());
+        // basic auth, remembering recently checked credentials as they are sent again on every web service call
+        final DirectBasicAuthClient directBasicAuthClient = new DirectBasicAuthClient(basicAuthAuthenticator(jsonConf));
 
         final Clients clients = new Clients(baseUrl + "/callback",
                 // oAuth clients
                 facebookClient(jsonConf),
                 twitterClient(),
                 casClient(jsonConf, vertx, sessionStore),
-                saml2Client(),
+                saml2Client(jsonConf, IdpMetadataRegistry.shared(vertx, jsonConf)),
                 formClient(baseUrl),
                 directBasicAuthClient(),
-                oidcClient(),
+                oidcClient(jsonConf, vertx),
                 stravaClient(),
                 parameterClient,
                 directBasicAuthClient,
                 new AnonymousClient());
         final Config config = new Config(clients);
-        config.addAuthorizer(AUTHORIZER_ADMIN, new RequireAnyRoleAuthorizer("ROLE_ADMIN"));
-        config.addAuthorizer(AUTHORIZER_CUSTOM, new CustomAuthorizer());
+        // both decisions only depend on the profiles, so they are made once per login, the custom one standing for an
+        // expensive check
+        config.addAuthorizer(AUTHORIZER_ADMIN,
+                new CachingAuthorizer(AUTHORIZER_ADMIN, new RequireAnyRoleAuthorizer("ROLE_ADMIN")));
+        config.addAuthorizer(AUTHORIZER_CUSTOM, new CachingAuthorizer(AUTHORIZER_CUSTOM, new CustomAuthorizer()));
         LOG.info("Config created " + config.toString());
         return config;
     }
 
+    /**
+     * @return the JWT authenticator, behind a verified-token cache unless "jwtCacheSize" is 0
+     */
+    public static Authenticator jwtAuthenticator(final JsonObject jsonConf) {
+        final String jwtSalt = jsonConf.getString("jwtSalt");
+        final JwtAuthenticator authenticator = new JwtAuthenticator(new SecretSignatureConfiguration(jwtSalt));
+        final int cacheSize = jsonConf.getInteger("jwtCacheSize", DEFAULT_JWT_CACHE_SIZE);
+        if (cacheSize <= 0) {
+            return authenticator;
+        }
+        return new CachingJwtAuthenticator(authenticator, cacheSize,
+                jsonConf.getLong("jwtCacheTtlSeconds", DEFAULT_JWT_CACHE_TTL_SECONDS), TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return the basic auth authenticator, behind an outcome cache unless "basicAuthCacheSize" is 0
+     */
+    public static Authenticator basicAuthAuthenticator(final JsonObject jsonConf) {
+        final SimpleTestUsernamePasswordAuthenticator authenticator = new SimpleTestUsernamePasswordAuthenticator();
+        final int cacheSize = jsonConf.getInteger("basicAuthCacheSize", DEFAULT_BASIC_AUTH_CACHE_SIZE);
+        if (cacheSize <= 0) {
+            return authenticator;
+        }
+        return new CachingUsernamePasswordAuthenticator(authenticator, cacheSize,
+                jsonConf.getLong("basicAuthCacheTtlSeconds", DEFAULT_BASIC_AUTH_CACHE_TTL_SECONDS),
+                jsonConf.getLong("basicAuthNegativeCacheTtlSeconds", DEFAULT_BASIC_AUTH_NEGATIVE_CACHE_TTL_SECONDS),
+                TimeUnit.SECONDS);
+    }
+
     public static FacebookClient facebookClient(final JsonObject jsonConf) {
         final String fbId = jsonConf.getString("fbId");
         final String fbSecret = jsonConf.getString("fbSecret");
@@ -106,15 +157,30 @@ public class Pac4jConfigurationFactory implements ConfigFactory {
         return casClient;
     }
 
-    public static SAML2Client saml2Client() {
+    /**
+     * The SAML client, reading the metadata of the "samlMetadata" "idpEntityId" identity provider from the index of
+     * the given registry when it holds it, and from the bundled Okta metadata otherwise.
+     */
+    public static SAML2Client saml2Client(final JsonObject jsonConf, final IdpMetadataRegistry idpMetadata) {
 
-        final SAML2Configuration cfg = new SAML2Configuration("samlConfig/samlKeystore.jks",
-                "pac4j-demo-passwd",
-                "pac4j-demo-passwd",
-                "samlConfig/metadata-okta.xml");
+        final SAML2Configuration cfg = new SAML2Configuration(SAML_KEYSTORE_PATH,
+                SAML_KEYSTORE_PASSWORD,
+                SAML_KEYSTORE_PASSWORD,
+                SAML_IDP_METADATA_PATH);
         cfg.setMaximumAuthenticationLifetime(3600);
         cfg.setServiceProviderEntityId("http://localhost:8080/callback?client_name=SAML2Client");
         cfg.setServiceProviderMetadataPath(new File("target", "sp-metadata.xml").getAbsolutePath());
+        final String idpEntityId = jsonConf.getJsonObject(IdpMetadataRegistry.CONFIG_KEY, new JsonObject())
+                .getString(IdpMetadataRegistry.IDP_ENTITY_ID);
+        final EntityMetadata idp = idpEntityId != null ? idpMetadata.lookup(idpEntityId) : null;
+        if (idp != null && idp.isIdentityProvider()) {
+            cfg.setIdentityProviderEntityId(idpEntityId);
+            cfg.setIdentityProviderMetadataResource(new ByteArrayResource(
+                    idp.getDescriptor().getBytes(StandardCharsets.UTF_8), idp.getSource()));
+        } else if (idpEntityId != null) {
+            LOG.warn("SAML identity provider " + idpEntityId + " not found in the metadata files, using "
+                    + SAML_IDP_METADATA_PATH);
+        }
         return new SAML2Client(cfg);
     }
 
@@ -137,12 +203,14 @@ public class Pac4jConfigurationFactory implements ConfigFactory {
         return stravaClient;
     }
 
-    public static OidcClient oidcClient() {
+    public static OidcClient oidcClient(final JsonObject jsonConf, final Vertx vertx) {
         // OpenID Connect
         final OidcConfiguration oidcConfiguration = new OidcConfiguration();
-        oidcConfiguration.setClientId("736887899191-s2lsd8pakdjugkbp6v3lou7jd631rka2.apps.googleusercontent.com");
-        oidcConfiguration.setSecret("18B4WAQgzs2RhUY8V_Pl0qSh");
-        oidcConfiguration.setDiscoveryURI("https://accounts.google.com/.well-known/openid-configuration");
+        oidcConfiguration.setClientId(jsonConf.getString("oidcClientId"));
+        oidcConfiguration.setSecret(jsonConf.getString("oidcSecret"));
+        oidcConfiguration.setDiscoveryURI(jsonConf.getString("oidcDiscoveryUri"));
+        // discovery document and JWKS fetched once for all the verticles' clients, see CachingResourceRetriever
+        oidcConfiguration.setResourceRetriever(CachingResourceRetriever.shared(vertx, jsonConf));
         oidcConfiguration.addCustomParam("prompt", "consent");
         final OidcClient oidcClient = new OidcClient(oidcConfiguration);
         oidcClient.addAuthorizationGenerator((ctx, profile) -> { profile.addRole("ROLE_ADMIN"); return Optional.of(profile); });
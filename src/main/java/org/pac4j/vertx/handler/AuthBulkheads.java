@@ -0,0 +1,130 @@
+package org.pac4j.vertx.handler;
+
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.Shareable;
+import io.vertx.ext.web.RoutingContext;
+import org.pac4j.vertx.SharedInstances;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Isolates the pac4j clients from each other while their (blocking) credential validation and profile retrieval run
+ * on the authentication worker pool:
+ * <ul>
+ *     <li>each client may only have a bounded number of requests in flight, further requests being rejected at once
+ *     with a 503 instead of queueing for workers, so a slow identity provider can't take the whole pool</li>
+ *     <li>a request not answered within the timeout fails with a 504</li>
+ * </ul>
+ * A slot is released once the response has ended, whoever ended it, or the request was reset or its connection
+ * closed. Blocking work still running after a 504 goes on holding a worker, so the worker pool size is what bounds
+ * it.
+ * Configured by the "authExecution" config object: "enabled", "maxConcurrentPerClient", "timeoutMs" and
+ * "clientLimits", a map of per-client limits where 0 means unlimited. In flight counts are shared by all verticle
+ * instances, see {@link #shared(Vertx, JsonObject)}.
+ *
+ * @since 7.0.0
+ */
+public class AuthBulkheads implements Shareable {
+
+    public static final String CONFIG_KEY = "authExecution";
+    public static final String UNKNOWN_CLIENT = "unknown";
+
+
+    private final boolean enabled;
+    private final int maxConcurrentPerClient;
+    private final long timeoutMs;
+    private final JsonObject clientLimits;
+    private final Map<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+
+    public AuthBulkheads(final JsonObject conf) {
+        this.enabled = conf.getBoolean("enabled", false);
+        this.maxConcurrentPerClient = conf.getInteger("maxConcurrentPerClient", 16);
+        this.timeoutMs = conf.getLong("timeoutMs", 10000L);
+        this.clientLimits = conf.getJsonObject("clientLimits", new JsonObject());
+    }
+
+    /**
+     * @return the bulkheads shared by every verticle of this vert.x instance, created from the "authExecution" entry
+     * of the given config by the first caller
+     */
+    public static AuthBulkheads shared(final Vertx vertx, final JsonObject config) {
+        return SharedInstances.getOrCreate(vertx, AuthBulkheads.class,
+                () -> new AuthBulkheads(config.getJsonObject(CONFIG_KEY, new JsonObject())));
+    }
+
+    /**
+     * Wraps a handler always authenticating against the same client names (e.g. a security handler).
+     */
+    public Handler<RoutingContext> wrap(final Vertx vertx, final String clients, final Handler<RoutingContext> delegate) {
+        if (!enabled) {
+            return delegate;
+        }
+        final AtomicInteger counter = counter(clients);
+        final int limit = limit(clients);
+        return rc -> handle(vertx, rc, counter, limit, delegate);
+    }
+
+    /**
+     * Wraps a handler whose client is chosen by a request parameter (callback, force login). Names outside the known
+     * clients share the {@link #UNKNOWN_CLIENT} bulkhead.
+     */
+    public Handler<RoutingContext> wrapByClientParameter(final Vertx vertx, final String parameter,
+                                                         final Collection<String> knownClients,
+                                                         final Handler<RoutingContext> delegate) {
+        if (!enabled) {
+            return delegate;
+        }
+        final Set<String> known = new HashSet<>(knownClients);
+        return rc -> {
+            final String requested = rc.request().getParam(parameter);
+            final String client = requested != null && known.contains(requested) ? requested : UNKNOWN_CLIENT;
+            handle(vertx, rc, counter(client), limit(client), delegate);
+        };
+    }
+
+    public int inFlight(final String client) {
+        final AtomicInteger counter = inFlight.get(client);
+        return counter == null ? 0 : counter.get();
+    }
+
+    private void handle(final Vertx vertx, final RoutingContext rc, final AtomicInteger counter, final int limit,
+                        final Handler<RoutingContext> delegate) {
+        if (counter.incrementAndGet() > limit && limit > 0) {
+            counter.decrementAndGet();
+            rc.response().putHeader("Retry-After", "1");
+            rc.fail(503);
+            return;
+        }
+
+        final AtomicBoolean released = new AtomicBoolean();
+        final long timerId = vertx.setTimer(timeoutMs, id -> {
+            if (!rc.response().headWritten() && !rc.failed()) {
+                rc.fail(504);
+            }
+        });
+        // also called when the request is reset or the connection closed before the response ended
+        rc.addEndHandler(ended -> {
+            vertx.cancelTimer(timerId);
+            if (released.compareAndSet(false, true)) {
+                counter.decrementAndGet();
+            }
+        });
+        delegate.handle(rc);
+    }
+
+    private AtomicInteger counter(final String client) {
+        return inFlight.computeIfAbsent(client, name -> new AtomicInteger());
+    }
+
+    private int limit(final String client) {
+        return clientLimits.getInteger(client, maxConcurrentPerClient);
+    }
+}
@@ -3,9 +3,12 @@ package org.pac4j.vertx.handler;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.RoutingContext;
-import io.vertx.ext.web.templ.handlebars.HandlebarsTemplateEngine;
+import io.vertx.ext.web.Session;
+import io.vertx.ext.web.handler.SessionHandler;
 import org.pac4j.core.client.Client;
 import org.pac4j.core.config.Config;
 import org.pac4j.core.context.CallContext;
@@ -17,17 +20,23 @@ import org.pac4j.core.profile.UserProfile;
 import org.pac4j.core.util.CommonHelper;
 import org.pac4j.core.util.Pac4jConstants;
 import org.pac4j.http.client.indirect.FormClient;
-import org.pac4j.jwt.config.signature.SecretSignatureConfiguration;
-import org.pac4j.jwt.profile.JwtGenerator;
 import org.pac4j.vertx.VertxProfileManager;
 import org.pac4j.vertx.VertxWebContext;
 import org.pac4j.vertx.context.session.VertxSessionStore;
+import org.pac4j.vertx.cache.ExpiringLruCache;
 import org.pac4j.vertx.handler.impl.LogoutHandler;
 import org.pac4j.vertx.handler.impl.LogoutHandlerOptions;
 import org.pac4j.vertx.handler.impl.SecurityHandler;
 import org.pac4j.vertx.handler.impl.SecurityHandlerOptions;
 import org.pac4j.vertx.http.VertxHttpActionAdapter;
-
+import org.pac4j.vertx.jwt.JwtTokenService;
+import org.pac4j.vertx.profile.ProfileFingerprints;
+import org.pac4j.vertx.session.LazySessionStore;
+import org.pac4j.vertx.template.PrecompiledTemplates;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.function.BiConsumer;
 
@@ -42,23 +51,17 @@ import static io.vertx.core.http.HttpHeaders.CONTENT_TYPE;
  */
 public class DemoHandlers {
 
-    public static Handler<RoutingContext> indexHandler(final Vertx vertx, final SessionStore sessionStore) {
-        final HandlebarsTemplateEngine engine = HandlebarsTemplateEngine.create(vertx);
+    /** Rendered protected index pages kept by each handler */
+    private static final int PROTECTED_INDEX_CACHE_SIZE = 1024;
 
+    public static Handler<RoutingContext> indexHandler(final PrecompiledTemplates templates, final SessionStore sessionStore) {
         return rc -> {
             final List<UserProfile> profile = getUserProfiles(rc, sessionStore);
 
             final JsonObject json = new JsonObject();
             json.put("name", "Vert.x Web").put("userProfiles", profile);
 
-            // and now delegate to the engine to render it.
-            engine.render(json, "templates/index.hbs").onComplete(res -> {
-                if (res.succeeded()) {
-                    rc.response().end(res.result());
-                } else {
-                    rc.fail(res.cause());
-                }
-            });
+            render(rc, templates, "index", json, (ctx, buf) -> ctx.response().end(buf));
         };
     }
 
@@ -91,12 +94,47 @@ public class DemoHandlers {
     }
 
 
-    public static Handler<RoutingContext> protectedIndexHandler(final Vertx vertx, final SessionStore sessionStore) {
-        return generateProtectedIndex(vertx, (rc, buf) -> rc.response().end(buf), sessionStore);
+    /**
+     * Renders the protected index page. The page only depends on the session's profiles, so it is identified by an
+     * ETag derived from a SHA-256 digest of them: a client presenting that ETag gets a 304 without any rendering. The
+     * rendered pages are otherwise kept for a session timeout in a bounded cache held by the handler rather than in the
+     * session, keyed by ETag alone: sessions with the same profiles share a page, a change of profiles misses it, and
+     * invalidating a session leaves nothing of it behind. Requests without a session are simply rendered.
+     */
+    public static Handler<RoutingContext> protectedIndexHandler(final PrecompiledTemplates templates, final SessionStore sessionStore) {
+        final ExpiringLruCache<String, Buffer> rendered = new ExpiringLruCache<>(PROTECTED_INDEX_CACHE_SIZE);
+        return rc -> {
+            final List<UserProfile> profiles = getUserProfiles(rc, sessionStore);
+            final Session session = LazySessionStore.existingSession(rc);
+            if (session == null) {
+                final JsonObject json = new JsonObject().put("userProfiles", profiles);
+                render(rc, templates, "protectedIndex", json, (ctx, buf) -> ctx.response().end(buf));
+                return;
+            }
+
+            final String etag = "W/\"" + templates.version() + "-" + ProfileFingerprints.digest(profiles) + "\"";
+            rc.response()
+                    .putHeader(HttpHeaders.ETAG, etag)
+                    .putHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+            if (etagMatches(rc.request().getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+                rc.response().setStatusCode(304).end();
+                return;
+            }
+
+            final Buffer cached = rendered.get(etag);
+            if (cached != null) {
+                rc.response().end(cached);
+                return;
+            }
+            final JsonObject json = new JsonObject().put("userProfiles", profiles);
+            render(rc, templates, "protectedIndex", json, (ctx, buf) -> {
+                rendered.put(etag, buf, System.currentTimeMillis() + SessionHandler.DEFAULT_SESSION_TIMEOUT);
+                ctx.response().end(buf);
+            });
+        };
     }
 
-    public static Handler<RoutingContext> loginFormHandler(final Vertx vertx, final Config config) {
-        final HandlebarsTemplateEngine engine = HandlebarsTemplateEngine.create(vertx);
+    public static Handler<RoutingContext> loginFormHandler(final PrecompiledTemplates templates, final Config config) {
         final FormClient formClient = (FormClient) config.getClients().findClient("FormClient").get();
         final String url = formClient.getCallbackUrl();
 
@@ -105,70 +143,67 @@ public class DemoHandlers {
             final JsonObject json = new JsonObject();
             json.put("url", url);
 
-            engine.render(json, "templates/loginForm.hbs").onComplete(res -> {
-                if (res.succeeded()) {
-                    rc.response().end(res.result());
-                } else {
-                    rc.fail(res.cause());
-                }
-            });
+            render(rc, templates, "loginForm", json, (ctx, buf) -> ctx.response().end(buf));
         };
     }
 
-    public static Handler<RoutingContext> formIndexJsonHandler(final Vertx vertx, final SessionStore sessionStore) {
+    /**
+     * Protected index as JSON for AJAX calls: by default the rendered page as the compact {"content": "..."}, or with
+     * format=profiles the session's profiles as structured JSON.
+     */
+    public static Handler<RoutingContext> formIndexJsonHandler(final PrecompiledTemplates templates, final SessionStore sessionStore) {
+
+        final Handler<RoutingContext> renderedContentHandler = generateProtectedIndex(templates,
+                (rc, buf) -> rc.response().end(JsonBuffers.stringField("content", buf)), sessionStore);
 
-        return generateProtectedIndex(vertx, (rc, buf) -> {
-            final JsonObject json = new JsonObject()
-                    .put("content", buf.toString());
-            rc.response().end(json.encodePrettily());
-        }, sessionStore);
+        return rc -> {
+            if ("profiles".equals(rc.request().getParam("format"))) {
+                final JsonArray profiles = new JsonArray();
+                getUserProfiles(rc, sessionStore).forEach(profile -> profiles.add(profileAsJson(profile)));
+                rc.response().end(new JsonObject().put("profiles", profiles).toBuffer());
+            } else {
+                renderedContentHandler.handle(rc);
+            }
+        };
 
     }
 
-    public static Handler<RoutingContext> jwtGenerator(final Vertx vertx, final JsonObject jsonConf,
+    public static Handler<RoutingContext> jwtGenerator(final PrecompiledTemplates templates, final JwtTokenService tokenService,
                                                        final SessionStore sessionStore) {
 
-        final HandlebarsTemplateEngine engine = HandlebarsTemplateEngine.create(vertx);
-
         return rc -> {
             final List<UserProfile> profiles = getUserProfiles(rc, sessionStore);
-            final JwtGenerator generator = new JwtGenerator(new SecretSignatureConfiguration(jsonConf.getString("jwtSalt")));
             String token = "";
             if (CommonHelper.isNotEmpty(profiles)) {
-                token = generator.generate(profiles.get(0));
+                token = tokenService.generate(profiles.get(0));
             }
 
             final JsonObject json = new JsonObject();
             json.put("token", token);
 
-            engine.render(json, "templates/jwt.hbs").onComplete(res -> {
-                if (res.succeeded()) {
-                    rc.response().end(res.result());
-                } else {
-                    rc.fail(res.cause());
-                }
-            });
+            render(rc, templates, "jwt", json, (ctx, buf) -> ctx.response().end(buf));
         };
     }
 
-    public static Handler<RoutingContext> generateProtectedIndex(final Vertx vertx,
+    public static Handler<RoutingContext> jwtBatchGenerator(final JwtTokenService tokenService,
+                                                            final SessionStore sessionStore) {
+        return rc -> {
+            final List<UserProfile> profiles = getUserProfiles(rc, sessionStore);
+            final JsonObject json = new JsonObject().put("tokens", tokenService.generateAll(profiles));
+            rc.response().end(json.encode());
+        };
+    }
+
+    public static Handler<RoutingContext> generateProtectedIndex(final PrecompiledTemplates templates,
                                                                  final BiConsumer<RoutingContext, Buffer> generatedContentConsumer,
                                                                  final SessionStore sessionStore) {
-        final HandlebarsTemplateEngine engine = HandlebarsTemplateEngine.create(vertx);
-
         return rc -> {
             final List<UserProfile> profile = getUserProfiles(rc, sessionStore);
 
             final JsonObject json = new JsonObject();
             json.put("userProfiles", profile);
 
-            engine.render(json, "templates/protectedIndex.hbs").onComplete(res -> {
-                if (res.succeeded()) {
-                    generatedContentConsumer.accept(rc, res.result());
-                } else {
-                    rc.fail(res.cause());
-                }
-            });
+            render(rc, templates, "protectedIndex", json, generatedContentConsumer);
         };
     }
 
@@ -186,7 +221,55 @@ public class DemoHandlers {
         };
     }
 
-    private static List<UserProfile> getUserProfiles(final RoutingContext rc, final SessionStore sessionStore) {
+    private static JsonObject profileAsJson(final UserProfile profile) {
+        final JsonObject attributes = new JsonObject();
+        profile.getAttributes().forEach((name, value) -> attributes.put(name, jsonValue(value)));
+        return new JsonObject()
+                .put("id", profile.getId())
+                .put("clientName", profile.getClientName())
+                .put("roles", new JsonArray(new ArrayList<>(profile.getRoles())))
+                .put("attributes", attributes);
+    }
+
+    private static Object jsonValue(final Object value) {
+        if (value == null || value instanceof String || value instanceof Number || value instanceof Boolean) {
+            return value;
+        } else if (value instanceof Date) {
+            return ((Date) value).getTime();
+        } else if (value instanceof Collection) {
+            final JsonArray array = new JsonArray();
+            ((Collection<?>) value).forEach(element -> array.add(jsonValue(element)));
+            return array;
+        }
+        return String.valueOf(value);
+    }
+
+    private static boolean etagMatches(final String ifNoneMatch, final String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (final String candidate : ifNoneMatch.split(",")) {
+            final String trimmed = candidate.trim();
+            if (trimmed.equals(etag) || trimmed.equals("*")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void render(final RoutingContext rc, final PrecompiledTemplates templates, final String template,
+                               final JsonObject json, final BiConsumer<RoutingContext, Buffer> generatedContentConsumer) {
+        final Buffer rendered;
+        try {
+            rendered = templates.render(template, json);
+        } catch (final RuntimeException e) {
+            rc.fail(e);
+            return;
+        }
+        generatedContentConsumer.accept(rc, rendered);
+    }
+
+    public static List<UserProfile> getUserProfiles(final RoutingContext rc, final SessionStore sessionStore) {
         final ProfileManager profileManager = new VertxProfileManager(new VertxWebContext(rc), (VertxSessionStore) sessionStore);
         return profileManager.getProfiles();
     }
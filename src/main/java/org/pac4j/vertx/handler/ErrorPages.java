@@ -0,0 +1,163 @@
+package org.pac4j.vertx.handler;
+
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.vertx.core.Handler;
+import io.vertx.core.MultiMap;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+import org.pac4j.vertx.session.StatelessPaths;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Failure handler answering failed requests from buffers built at startup, rather than reading an error page file
+ * for each of them (401s being frequent under credential stuffing against the basic auth web services):
+ * <ul>
+ *     <li>requests under the stateless prefixes (web services) get a small JSON body {"status": ..., "error": ...}</li>
+ *     <li>other requests get the static/error401.html, error403.html or error500.html page, gzipped once at startup
+ *     and sent as such to clients accepting gzip</li>
+ * </ul>
+ * Other statuses on stateful paths get an empty body.
+ *
+ * @since 7.0.0
+ */
+public class ErrorPages {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ErrorPages.class);
+
+    static final int[] PAGE_STATUSES = {401, 403, 500};
+
+    private static final String TEXT_HTML = "text/html; charset=utf-8";
+    private static final String APPLICATION_JSON = "application/json";
+
+    private final StatelessPaths statelessPaths;
+    private final Map<Integer, Page> pages;
+    private final Map<Integer, Buffer> jsonBodies = new HashMap<>();
+
+    ErrorPages(final StatelessPaths statelessPaths, final Map<Integer, Buffer> htmlPages) {
+        this.statelessPaths = statelessPaths;
+        this.pages = new HashMap<>();
+        htmlPages.forEach((status, html) -> pages.put(status, new Page(html, gzip(html))));
+        for (final int status : PAGE_STATUSES) {
+            jsonBodies.put(status, jsonBody(status));
+        }
+    }
+
+    /**
+     * Reads the error pages from the classpath, blocking: meant to be called once at startup.
+     */
+    public static ErrorPages load(final Vertx vertx, final StatelessPaths statelessPaths) {
+        final Map<Integer, Buffer> htmlPages = new HashMap<>();
+        for (final int status : PAGE_STATUSES) {
+            htmlPages.put(status, vertx.fileSystem().readFileBlocking("static/error" + status + ".html"));
+        }
+        return new ErrorPages(statelessPaths, htmlPages);
+    }
+
+    public Handler<RoutingContext> failureHandler() {
+        return rc -> {
+            final int statusCode = rc.statusCode();
+            // use status code 500 in the event that vert.x hasn't set one, as we've failed for an unspecified reason -
+            // which implies internal server error
+            final int status = statusCode > 0 ? statusCode : 500;
+            if (status == 500) {
+                LOG.error("Unexpected error in request handling", rc.failure());
+            }
+            send(rc, status);
+        };
+    }
+
+    void send(final RoutingContext rc, final int status) {
+        final MultiMap headers = rc.response().setStatusCode(status).headers();
+        if (statelessPaths.isStateless(rc.normalizedPath())) {
+            final Buffer json = jsonBodies.get(status);
+            headers.set(HttpHeaders.CONTENT_TYPE, APPLICATION_JSON);
+            rc.response().end(json != null ? json : jsonBody(status));
+            return;
+        }
+
+        final Page page = pages.get(status);
+        if (page == null) {
+            rc.response().end();
+            return;
+        }
+        headers.set(HttpHeaders.CONTENT_TYPE, TEXT_HTML).set(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (acceptsGzip(rc.request().getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+            rc.response().end(page.gzipped);
+        } else {
+            rc.response().end(page.html);
+        }
+    }
+
+    /**
+     * @return whether the Accept-Encoding header lists gzip (or *) without a zero quality
+     */
+    static boolean acceptsGzip(final String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (final String coding : acceptEncoding.split(",")) {
+            final int semicolon = coding.indexOf(';');
+            final String name = (semicolon >= 0 ? coding.substring(0, semicolon) : coding).trim();
+            if (name.equalsIgnoreCase("gzip") || name.equals("*")) {
+                return semicolon < 0 || !isZeroQuality(coding.substring(semicolon + 1));
+            }
+        }
+        return false;
+    }
+
+    private static boolean isZeroQuality(final String parameters) {
+        final String q = parameters.trim();
+        if (!q.startsWith("q=")) {
+            return false;
+        }
+        try {
+            return Double.parseDouble(q.substring(2).trim()) == 0;
+        } catch (final NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static Buffer jsonBody(final int status) {
+        return new JsonObject()
+                .put("status", status)
+                .put("error", HttpResponseStatus.valueOf(status).reasonPhrase())
+                .toBuffer();
+    }
+
+    private static Buffer gzip(final Buffer content) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(content.length());
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            gzip.write(content.getBytes());
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Buffer.buffer(out.toByteArray());
+    }
+
+    private static class Page {
+        private final Buffer html;
+        private final Buffer gzipped;
+
+        private Page(final Buffer html, final Buffer gzipped) {
+            this.html = html;
+            this.gzipped = gzipped;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package org.pac4j.vertx.handler;
+
+import io.vertx.core.buffer.Buffer;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes already rendered content into a compact JSON response body, escaping it byte by byte straight from the
+ * rendered buffer instead of decoding it to a String and encoding that again.
+ *
+ * @since 7.0.0
+ */
+public final class JsonBuffers {
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] OBJECT_END = "\"}".getBytes(StandardCharsets.US_ASCII);
+
+    private JsonBuffers() {
+    }
+
+    /**
+     * @return the JSON object {"field": "content"}, content being UTF-8 text
+     */
+    public static Buffer stringField(final String field, final Buffer content) {
+        final Buffer json = Buffer.buffer(content.length() + field.length() + 16);
+        json.appendString("{\"").appendString(field).appendString("\":\"");
+        final int length = content.length();
+        for (int i = 0; i < length; i++) {
+            appendEscaped(json, content.getByte(i));
+        }
+        return json.appendBytes(OBJECT_END);
+    }
+
+    private static void appendEscaped(final Buffer json, final byte b) {
+        switch (b) {
+            case '"':
+            case '\\':
+                json.appendByte((byte) '\\').appendByte(b);
+                break;
+            case '\n':
+                json.appendByte((byte) '\\').appendByte((byte) 'n');
+                break;
+            case '\r':
+                json.appendByte((byte) '\\').appendByte((byte) 'r');
+                break;
+            case '\t':
+                json.appendByte((byte) '\\').appendByte((byte) 't');
+                break;
+            default:
+                // bytes of multi-byte UTF-8 sequences are negative and copied as they are
+                if (b >= 0 && b < 0x20) {
+                    json.appendByte((byte) '\\').appendByte((byte) 'u').appendByte((byte) '0').appendByte((byte) '0')
+                            .appendByte(HEX[b >> 4]).appendByte(HEX[b & 0xF]);
+                } else {
+                    json.appendByte(b);
+                }
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package org.pac4j.vertx.handler;
+
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.net.SocketAddress;
+import io.vertx.core.shareddata.Shareable;
+import io.vertx.ext.web.RoutingContext;
+import org.pac4j.vertx.SharedInstances;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Limits how fast credentials can be submitted to the clients validating them (FormClient, DirectBasicAuthClient), per
+ * caller IP and per username, with token buckets: each key may submit "burst" credentials at once, then "perSecond".
+ * Requests over either limit are rejected with a 429 and a Retry-After header before any authenticator work, the
+ * limits of the IP being checked first.
+ *
+ * The buckets live in a fixed table of "slots" atomic longs, each packing its token count and last refill time, and
+ * are updated by compare-and-set only. A key is hashed, with a per-instance random seed, to a slot: memory stays
+ * bounded however many distinct keys are seen, at the price of keys landing in the same slot sharing its bucket, which
+ * only makes throttling stricter. The table should hence be sized well above the number of keys active over the time
+ * it takes a bucket to refill.
+ *
+ * Configured by the "loginThrottle" config object: "enabled", "slots" and "clients", giving the "perIp" and
+ * "perUsername" limits by client name. One table is shared by all verticle instances, see
+ * {@link #shared(Vertx, JsonObject)}.
+ *
+ * @since 7.0.0
+ */
+public class LoginThrottle implements Shareable {
+
+    public static final String CONFIG_KEY = "loginThrottle";
+    public static final int DEFAULT_SLOTS = 1 << 20;
+
+
+    private static final int TOKEN_BITS = 24;
+    private static final long TOKEN_MASK = (1L << TOKEN_BITS) - 1;
+    // token counts are kept in thousandths, so buckets refill smoothly
+    private static final long ONE_TOKEN = 1000;
+    private static final long MAX_BURST = TOKEN_MASK / ONE_TOKEN;
+    private static final String UNKNOWN_IP = "unknown";
+
+    private final boolean enabled;
+    private final AtomicLongArray slots;
+    private final int mask;
+    private final long seed = new SecureRandom().nextLong();
+    private final LongSupplier clock;
+    private final long epoch;
+    private final Map<String, Limits> limits = new HashMap<>();
+
+    public LoginThrottle(final JsonObject conf) {
+        this(conf, System::currentTimeMillis);
+    }
+
+    LoginThrottle(final JsonObject conf, final LongSupplier clock) {
+        this.enabled = conf.getBoolean("enabled", false);
+        this.slots = new AtomicLongArray(enabled ? tableSize(conf.getInteger("slots", DEFAULT_SLOTS)) : 1);
+        this.mask = slots.length() - 1;
+        this.clock = clock;
+        // times are stored relative to this, leaving 40 bits for about 34 years of milliseconds
+        this.epoch = clock.getAsLong() - 1;
+        final JsonObject clients = conf.getJsonObject("clients", new JsonObject());
+        for (final String client : clients.fieldNames()) {
+            final JsonObject clientConf = clients.getJsonObject(client);
+            limits.put(client, new Limits(Limit.of(clientConf.getJsonObject("perIp")),
+                    Limit.of(clientConf.getJsonObject("perUsername"))));
+        }
+    }
+
+    /**
+     * @return the throttle shared by every verticle of this vert.x instance, created from the "loginThrottle" entry of
+     * the given config by the first caller
+     */
+    public static LoginThrottle shared(final Vertx vertx, final JsonObject config) {
+        return SharedInstances.getOrCreate(vertx, LoginThrottle.class,
+                () -> new LoginThrottle(config.getJsonObject(CONFIG_KEY, new JsonObject())));
+    }
+
+    /**
+     * Throttles the credentials posted to the callback for the given (form) client, read from the "username" form
+     * attribute: to be routed after the body handler and before the callback handler.
+     */
+    public Handler<RoutingContext> formLogin(final String clientName) {
+        return handler(clientName, rc -> clientName.equals(rc.request().getParam("client_name")),
+                rc -> rc.request().getFormAttribute("username"));
+    }
+
+    /**
+     * Throttles the credentials sent in a basic authorization header, to be routed before the security handler.
+     */
+    public Handler<RoutingContext> basicAuth(final String clientName) {
+        return handler(clientName, rc -> isBasicAuth(rc.request().getHeader("Authorization")),
+                rc -> basicAuthUsername(rc.request().getHeader("Authorization")));
+    }
+
+    /**
+     * Takes a token from the IP's bucket, then from the username's (if any) for the given client.
+     *
+     * @return 0 if the credentials may be checked, otherwise the number of milliseconds until they may be
+     */
+    public long tryAcquire(final String clientName, final String ip, final String username) {
+        final Limits clientLimits = limits.get(clientName);
+        if (!enabled || clientLimits == null) {
+            return 0;
+        }
+        final long now = clock.getAsLong() - epoch;
+        long retryAfter = clientLimits.perIp == null ? 0
+                : take(slot(clientName, 'i', ip != null ? ip : UNKNOWN_IP), clientLimits.perIp, now);
+        if (retryAfter == 0 && clientLimits.perUsername != null && username != null) {
+            retryAfter = take(slot(clientName, 'u', username.toLowerCase(Locale.ROOT)), clientLimits.perUsername, now);
+        }
+        (retryAfter == 0 ? clientLimits.allowed : clientLimits.throttled).increment();
+        return retryAfter;
+    }
+
+    public String toPrometheus() {
+        final StringBuilder out = new StringBuilder(256);
+        out.append("# HELP pac4j_login_throttle_total Credential submissions by client and throttling decision\n");
+        out.append("# TYPE pac4j_login_throttle_total counter\n");
+        limits.forEach((client, clientLimits) -> {
+            out.append("pac4j_login_throttle_total{client=\"").append(client).append("\",decision=\"allowed\"} ")
+                    .append(clientLimits.allowed.sum()).append('\n');
+            out.append("pac4j_login_throttle_total{client=\"").append(client).append("\",decision=\"throttled\"} ")
+                    .append(clientLimits.throttled.sum()).append('\n');
+        });
+        return out.toString();
+    }
+
+    private Handler<RoutingContext> handler(final String clientName,
+                                            final Predicate<RoutingContext> applies,
+                                            final Function<RoutingContext, String> username) {
+        if (!enabled || !limits.containsKey(clientName)) {
+            return RoutingContext::next;
+        }
+        return rc -> {
+            if (!applies.test(rc)) {
+                rc.next();
+                return;
+            }
+            final SocketAddress remote = rc.request().remoteAddress();
+            final long retryAfter = tryAcquire(clientName, remote != null ? remote.hostAddress() : null, username.apply(rc));
+            if (retryAfter == 0) {
+                rc.next();
+            } else {
+                rc.response().putHeader("Retry-After", String.valueOf(Math.max(1, (retryAfter + 999) / 1000)));
+                rc.fail(429);
+            }
+        };
+    }
+
+    /**
+     * Refills the bucket for the time elapsed since its last refill and takes a token from it.
+     *
+     * @return 0 if a token was taken, otherwise the milliseconds until one is available
+     */
+    private long take(final int slot, final Limit limit, final long now) {
+        while (true) {
+            final long state = slots.get(slot);
+            long tokens = limit.burst;
+            long last = now;
+            if (state != 0) {
+                tokens = state & TOKEN_MASK;
+                last = state >>> TOKEN_BITS;
+                final long elapsed = Math.max(0, now - last);
+                final long added = (long) (elapsed * limit.perMilli);
+                if (tokens + added >= limit.burst) {
+                    tokens = limit.burst;
+                    last = now;
+                } else if (added > 0) {
+                    tokens += added;
+                    // only the time actually converted into tokens is consumed, so slow rates still refill
+                    last += (long) (added / limit.perMilli);
+                }
+            }
+            if (tokens < ONE_TOKEN) {
+                return limit.perMilli > 0 ? (long) Math.ceil((ONE_TOKEN - tokens) / limit.perMilli) : Long.MAX_VALUE / 2;
+            }
+            if (slots.compareAndSet(slot, state, (last << TOKEN_BITS) | (tokens - ONE_TOKEN))) {
+                return 0;
+            }
+        }
+    }
+
+    private int slot(final String clientName, final char kind, final String key) {
+        long hash = seed ^ 0xcbf29ce484222325L;
+        hash = hash(hash, clientName);
+        hash = (hash ^ kind) * 0x100000001b3L;
+        hash = hash(hash, key);
+        // murmur3 finalizer, spreading the bits before masking
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return (int) hash & mask;
+    }
+
+    private static long hash(long hash, final String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static boolean isBasicAuth(final String authorization) {
+        return authorization != null && authorization.regionMatches(true, 0, "Basic ", 0, 6);
+    }
+
+    static String basicAuthUsername(final String authorization) {
+        if (!isBasicAuth(authorization)) {
+            return null;
+        }
+        try {
+            final String decoded = new String(Base64.getDecoder().decode(authorization.substring(6).trim()),
+                    StandardCharsets.UTF_8);
+            final int colon = decoded.indexOf(':');
+            return colon >= 0 ? decoded.substring(0, colon) : null;
+        } catch (final IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the requested number of slots rounded up to a power of two, so a slot is picked by masking
+     */
+    private static int tableSize(final int requested) {
+        int size = 2;
+        while (size < requested && size < 1 << 30) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    private static class Limits {
+        private final Limit perIp;
+        private final Limit perUsername;
+        private final LongAdder allowed = new LongAdder();
+        private final LongAdder throttled = new LongAdder();
+
+        private Limits(final Limit perIp, final Limit perUsername) {
+            this.perIp = perIp;
+            this.perUsername = perUsername;
+        }
+    }
+
+    private static class Limit {
+        // in thousandths of tokens
+        private final long burst;
+        private final double perMilli;
+
+        private Limit(final long burst, final double perMilli) {
+            this.burst = burst;
+            this.perMilli = perMilli;
+        }
+
+        private static Limit of(final JsonObject conf) {
+            if (conf == null) {
+                return null;
+            }
+            final long burst = conf.getLong("burst", 10L);
+            if (burst < 1 || burst > MAX_BURST) {
+                throw new IllegalArgumentException("burst must be between 1 and " + MAX_BURST + ", got " + burst);
+            }
+            // tokens per second are thousandths of tokens per millisecond
+            return new Limit(burst * ONE_TOKEN, conf.getDouble("perSecond", 1.0));
+        }
+    }
+}
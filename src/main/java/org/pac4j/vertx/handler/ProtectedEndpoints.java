@@ -0,0 +1,154 @@
+package org.pac4j.vertx.handler;
+
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.Route;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+import org.pac4j.vertx.handler.impl.SecurityHandlerOptions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import static io.vertx.core.http.HttpHeaders.CONTENT_TYPE;
+
+/**
+ * The protected endpoints of the demo, declared by the "protectedEndpoints" config array rather than in code, each
+ * entry giving the "path", the "clients" it is protected by, and optionally its "authorizers", the "methods" it
+ * answers (GET by default), the "contentType" of its responses (text/html by default) and the "renderer" producing
+ * them (protectedIndex by default).
+ *
+ * Each endpoint is mounted as a single route holding its security handler and its renderer, its security handler
+ * options and content type header being built at startup, where it used to take three routes (security, content type,
+ * renderer) per path: the router has fewer routes to match every request against and each request fewer handlers to
+ * go through.
+ *
+ * @since 7.0.0
+ */
+public class ProtectedEndpoints {
+
+    public static final String CONFIG_KEY = "protectedEndpoints";
+    public static final String DEFAULT_RENDERER = "protectedIndex";
+
+    private final List<Endpoint> endpoints;
+
+    public ProtectedEndpoints(final List<Endpoint> endpoints) {
+        this.endpoints = Collections.unmodifiableList(endpoints);
+    }
+
+    public static ProtectedEndpoints fromConfig(final JsonObject config) {
+        final JsonArray configured = config.getJsonArray(CONFIG_KEY, new JsonArray());
+        final List<Endpoint> endpoints = new ArrayList<>(configured.size());
+        for (int i = 0; i < configured.size(); i++) {
+            endpoints.add(Endpoint.fromJson(configured.getJsonObject(i)));
+        }
+        return new ProtectedEndpoints(endpoints);
+    }
+
+    public List<Endpoint> endpoints() {
+        return endpoints;
+    }
+
+    /**
+     * @return the names of the clients protecting at least one endpoint
+     */
+    public Set<String> referencedClients() {
+        final Set<String> names = new LinkedHashSet<>();
+        for (final Endpoint endpoint : endpoints) {
+            for (final String name : endpoint.clients.split(",")) {
+                if (!name.isBlank()) {
+                    names.add(name.trim());
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Adds one route per endpoint to the router, in declaration order.
+     *
+     * @param security  builds the security handler of an endpoint, from its precomputed options
+     * @param renderers the renderers the endpoints may name
+     */
+    public void mount(final Router router, final Function<Endpoint, Handler<RoutingContext>> security,
+                      final Map<String, Handler<RoutingContext>> renderers) {
+        for (final Endpoint endpoint : endpoints) {
+            final Handler<RoutingContext> renderer = renderers.get(endpoint.renderer);
+            if (renderer == null) {
+                throw new IllegalArgumentException("Unknown renderer " + endpoint.renderer + " for " + endpoint.path);
+            }
+            final Route route = router.route(endpoint.path);
+            endpoint.methods.forEach(route::method);
+            final CharSequence contentType = endpoint.contentType;
+            route.handler(security.apply(endpoint))
+                    .handler(rc -> {
+                        rc.response().putHeader(CONTENT_TYPE, contentType);
+                        renderer.handle(rc);
+                    });
+        }
+    }
+
+    public static class Endpoint {
+
+        private final String path;
+        private final String clients;
+        private final String authorizers;
+        private final List<HttpMethod> methods;
+        private final CharSequence contentType;
+        private final String renderer;
+        private final SecurityHandlerOptions options;
+
+        public Endpoint(final String path, final String clients, final String authorizers, final List<HttpMethod> methods,
+                        final String contentType, final String renderer) {
+            this.path = path;
+            this.clients = clients;
+            this.authorizers = authorizers;
+            this.methods = List.copyOf(methods);
+            this.contentType = HttpHeaders.createOptimized(contentType);
+            this.renderer = renderer;
+            final SecurityHandlerOptions securityOptions = new SecurityHandlerOptions().setClients(clients);
+            this.options = authorizers != null ? securityOptions.setAuthorizers(authorizers) : securityOptions;
+        }
+
+        static Endpoint fromJson(final JsonObject json) {
+            final String path = json.getString("path");
+            if (path == null || !path.startsWith("/")) {
+                throw new IllegalArgumentException("Protected endpoint without an absolute path: " + json.encode());
+            }
+            final List<HttpMethod> methods = new ArrayList<>();
+            for (final Object method : json.getJsonArray("methods", new JsonArray().add("GET"))) {
+                methods.add(HttpMethod.valueOf(String.valueOf(method)));
+            }
+            return new Endpoint(path, json.getString("clients", ""), json.getString("authorizers"), methods,
+                    json.getString("contentType", "text/html"), json.getString("renderer", DEFAULT_RENDERER));
+        }
+
+        public String path() {
+            return path;
+        }
+
+        public String clients() {
+            return clients;
+        }
+
+        public String authorizers() {
+            return authorizers;
+        }
+
+        public SecurityHandlerOptions options() {
+            return options;
+        }
+
+        public String renderer() {
+            return renderer;
+        }
+    }
+}
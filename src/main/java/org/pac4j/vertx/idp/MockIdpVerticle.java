@@ -0,0 +1,413 @@
+package org.pac4j.vertx.idp;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+import io.vertx.ext.web.handler.BodyHandler;
+import org.pac4j.vertx.saml.IdpMetadataRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Stand-in identity providers served in-process, so that complete logins, from the redirection to the identity provider
+ * to the callback, can be run and load tested without reaching Google or the CAS demo server:
+ * <ul>
+ *     <li>an OpenID Connect provider under /oidc: discovery, authorization code flow, RS256 signed id tokens, JWKS and
+ *     user info</li>
+ *     <li>a CAS server under /cas: login and CAS 3.0 service ticket validation</li>
+ *     <li>a SAML identity provider under /saml: single sign on with the HTTP-Redirect and HTTP-POST bindings, answered
+ *     with a signed assertion posted back to the service provider, see {@link MockSamlIdp}</li>
+ * </ul>
+ * Every login succeeds at once, without any form, as the user named by the "login_hint" parameter (default "jle").
+ *
+ * Configured by the "mockIdp" config object: "enabled", "host", "port", "responseDelayMs", which delays the
+ * back-channel answers (OIDC token, CAS ticket validation) to stand in for a slow identity provider, and
+ * "samlMetadataFile", where the SAML metadata generated at startup is written. When enabled, {@link #deployIfEnabled}
+ * deploys it and points the OidcClient, CasClient and SAML2Client entries of the config at it. Codes, tokens and
+ * tickets live in memory, so a single instance is deployed.
+ *
+ * @since 7.0.0
+ */
+public class MockIdpVerticle extends AbstractVerticle {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MockIdpVerticle.class);
+
+    public static final String CONFIG_KEY = "mockIdp";
+    public static final String DEFAULT_HOST = "127.0.0.1";
+    public static final int DEFAULT_PORT = 9091;
+    public static final String OIDC_CLIENT_ID = "pac4j-demo";
+    public static final String OIDC_SECRET = "pac4j-demo-mock-secret";
+    public static final String DEFAULT_USER = "jle";
+
+    private static final long GRANT_TTL_MS = 300000;
+    private static final Pattern USER_PATTERN = Pattern.compile("[A-Za-z0-9._@-]{1,64}");
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final Map<String, Grant> codes = new HashMap<>();
+    private final Map<String, Grant> accessTokens = new HashMap<>();
+    private final Map<String, Grant> tickets = new HashMap<>();
+    private String issuer;
+    private RSAKey signingKey;
+    private String jwks;
+    private MockSamlIdp samlIdp;
+    private long responseDelayMs;
+
+    /**
+     * Deploys the stand-in identity providers if the "mockIdp" config object enables them.
+     *
+     * @return the config to build the pac4j clients from: the given one, or a copy of it pointing the OIDC, CAS and
+     * SAML clients at the stand-ins
+     */
+    public static Future<JsonObject> deployIfEnabled(final Vertx vertx, final JsonObject conf) {
+        final JsonObject idpConf = conf.getJsonObject(CONFIG_KEY, new JsonObject());
+        if (!idpConf.getBoolean("enabled", false)) {
+            return Future.succeededFuture(conf);
+        }
+        return vertx.deployVerticle(MockIdpVerticle.class.getName(), new DeploymentOptions().setConfig(idpConf))
+                .map(id -> pointClientsAt(conf, idpConf));
+    }
+
+    static JsonObject pointClientsAt(final JsonObject conf, final JsonObject idpConf) {
+        final String baseUrl = baseUrl(idpConf);
+        // the generated metadata is indexed along with the other files, and its entity used by the SAML client
+        final JsonObject samlMetadata = conf.getJsonObject(IdpMetadataRegistry.CONFIG_KEY, new JsonObject()).copy();
+        samlMetadata.put("files", samlMetadata.getJsonArray("files", new JsonArray()).copy().add(samlMetadataFile(idpConf)))
+                .put(IdpMetadataRegistry.IDP_ENTITY_ID, MockSamlIdp.entityId(baseUrl));
+        return conf.copy()
+                .put("casUrl", baseUrl + "/cas/login")
+                .put("oidcDiscoveryUri", baseUrl + "/oidc/.well-known/openid-configuration")
+                .put("oidcClientId", OIDC_CLIENT_ID)
+                .put("oidcSecret", OIDC_SECRET)
+                .put(IdpMetadataRegistry.CONFIG_KEY, samlMetadata);
+    }
+
+    /**
+     * @return where the metadata of the SAML identity provider is written, by default a file named after the port
+     * under target/
+     */
+    static String samlMetadataFile(final JsonObject idpConf) {
+        return idpConf.getString("samlMetadataFile", new File("target",
+                "mock-idp-" + idpConf.getInteger("port", DEFAULT_PORT) + "-metadata.xml").getPath());
+    }
+
+    public static String baseUrl(final JsonObject idpConf) {
+        return "http://" + idpConf.getString("host", DEFAULT_HOST) + ":" + idpConf.getInteger("port", DEFAULT_PORT);
+    }
+
+    @Override
+    public void start(final Promise<Void> startPromise) {
+        issuer = baseUrl(config()) + "/oidc";
+        responseDelayMs = config().getLong("responseDelayMs", 0L);
+
+        final Router router = Router.router(vertx);
+        router.get("/oidc/.well-known/openid-configuration").handler(this::discovery);
+        router.get("/oidc/authorize").handler(this::authorize);
+        router.post("/oidc/token").handler(BodyHandler.create());
+        router.post("/oidc/token").handler(delayed(this::token));
+        router.get("/oidc/jwks").handler(rc -> json(rc, 200, jwks));
+        router.get("/oidc/userinfo").handler(this::userInfo);
+        router.get("/cas/login").handler(this::casLogin);
+        router.get("/cas/p3/serviceValidate").handler(delayed(this::casValidate));
+        router.get(MockSamlIdp.PATH + "/metadata").handler(this::samlMetadata);
+        router.get(MockSamlIdp.PATH + "/sso").handler(this::samlSso);
+        router.post(MockSamlIdp.PATH + "/sso").handler(BodyHandler.create());
+        router.post(MockSamlIdp.PATH + "/sso").handler(this::samlSso);
+
+        vertx.executeBlocking(MockIdpVerticle::generateSigningKey)
+                .flatMap(key -> {
+                    signingKey = key;
+                    jwks = new JWKSet(key.toPublicJWK()).toString();
+                    return vertx.executeBlocking(() ->
+                            MockSamlIdp.create(baseUrl(config()), Paths.get(samlMetadataFile(config()))));
+                })
+                .flatMap(saml -> {
+                    samlIdp = saml;
+                    return vertx.createHttpServer().requestHandler(router)
+                            .listen(config().getInteger("port", DEFAULT_PORT), config().getString("host", DEFAULT_HOST));
+                })
+                .onSuccess(server -> {
+                    vertx.setPeriodic(GRANT_TTL_MS, id -> purgeExpired());
+                    LOG.info("Mock OIDC provider, CAS server and SAML identity provider listening on " + baseUrl(config()));
+                    startPromise.complete();
+                })
+                .onFailure(startPromise::fail);
+    }
+
+    private Handler<RoutingContext> delayed(final Handler<RoutingContext> handler) {
+        if (responseDelayMs <= 0) {
+            return handler;
+        }
+        return rc -> vertx.setTimer(responseDelayMs, id -> handler.handle(rc));
+    }
+
+    private void discovery(final RoutingContext rc) {
+        final JsonObject metadata = new JsonObject()
+                .put("issuer", issuer)
+                .put("authorization_endpoint", issuer + "/authorize")
+                .put("token_endpoint", issuer + "/token")
+                .put("userinfo_endpoint", issuer + "/userinfo")
+                .put("jwks_uri", issuer + "/jwks")
+                .put("response_types_supported", new JsonArray().add("code"))
+                .put("grant_types_supported", new JsonArray().add("authorization_code"))
+                .put("subject_types_supported", new JsonArray().add("public"))
+                .put("id_token_signing_alg_values_supported", new JsonArray().add("RS256"))
+                .put("token_endpoint_auth_methods_supported",
+                        new JsonArray().add("client_secret_basic").add("client_secret_post"))
+                .put("scopes_supported", new JsonArray().add("openid").add("profile").add("email"));
+        json(rc, 200, metadata.encode());
+    }
+
+    private void authorize(final RoutingContext rc) {
+        final String redirectUri = rc.request().getParam("redirect_uri");
+        if (!OIDC_CLIENT_ID.equals(rc.request().getParam("client_id")) || redirectUri == null) {
+            rc.response().setStatusCode(400).end("Unknown client_id or missing redirect_uri");
+            return;
+        }
+        final String code = newId();
+        codes.put(code, new Grant(user(rc), redirectUri, rc.request().getParam("nonce")));
+        final String state = rc.request().getParam("state");
+        redirect(rc, redirectUri + separator(redirectUri) + "code=" + encode(code)
+                + (state != null ? "&state=" + encode(state) : ""));
+    }
+
+    private void token(final RoutingContext rc) {
+        if (!clientAuthenticated(rc)) {
+            json(rc, 401, new JsonObject().put("error", "invalid_client").encode());
+            return;
+        }
+        final Grant grant = codes.remove(String.valueOf(rc.request().getFormAttribute("code")));
+        if (!"authorization_code".equals(rc.request().getFormAttribute("grant_type")) || grant == null
+                || grant.expired() || !grant.target.equals(rc.request().getFormAttribute("redirect_uri"))) {
+            json(rc, 400, new JsonObject().put("error", "invalid_grant").encode());
+            return;
+        }
+
+        final String accessToken = newId();
+        accessTokens.put(accessToken, grant);
+        final String idToken;
+        try {
+            idToken = idToken(grant);
+        } catch (final JOSEException e) {
+            rc.fail(e);
+            return;
+        }
+        rc.response().putHeader("Cache-Control", "no-store");
+        json(rc, 200, new JsonObject()
+                .put("access_token", accessToken)
+                .put("token_type", "Bearer")
+                .put("expires_in", GRANT_TTL_MS / 1000)
+                .put("id_token", idToken)
+                .encode());
+    }
+
+    private void userInfo(final RoutingContext rc) {
+        final String authorization = rc.request().getHeader("Authorization");
+        final Grant grant = authorization != null && authorization.startsWith("Bearer ")
+                ? accessTokens.get(authorization.substring("Bearer ".length())) : null;
+        if (grant == null || grant.expired()) {
+            rc.response().putHeader("WWW-Authenticate", "Bearer error=\"invalid_token\"").setStatusCode(401).end();
+            return;
+        }
+        json(rc, 200, new JsonObject()
+                .put("sub", grant.user)
+                .put("preferred_username", grant.user)
+                .put("name", grant.user)
+                .put("email", grant.user + "@example.org")
+                .encode());
+    }
+
+    private void casLogin(final RoutingContext rc) {
+        final String service = rc.request().getParam("service");
+        if (service == null) {
+            rc.response().setStatusCode(400).end("Missing service");
+            return;
+        }
+        final String ticket = "ST-" + newId();
+        tickets.put(ticket, new Grant(user(rc), service, null));
+        redirect(rc, service + separator(service) + "ticket=" + encode(ticket));
+    }
+
+    private void casValidate(final RoutingContext rc) {
+        final String ticket = rc.request().getParam("ticket");
+        final Grant grant = ticket != null ? tickets.remove(ticket) : null;
+        final String body;
+        if (grant == null || grant.expired() || !grant.target.equals(rc.request().getParam("service"))) {
+            body = "<cas:serviceResponse xmlns:cas=\"http://www.yale.edu/tp/cas\">"
+                    + "<cas:authenticationFailure code=\"INVALID_TICKET\">Ticket not recognized</cas:authenticationFailure>"
+                    + "</cas:serviceResponse>";
+        } else {
+            body = "<cas:serviceResponse xmlns:cas=\"http://www.yale.edu/tp/cas\"><cas:authenticationSuccess>"
+                    + "<cas:user>" + grant.user + "</cas:user>"
+                    + "<cas:attributes><cas:email>" + grant.user + "@example.org</cas:email></cas:attributes>"
+                    + "</cas:authenticationSuccess></cas:serviceResponse>";
+        }
+        rc.response().putHeader("Content-Type", "application/xml; charset=utf-8").end(body);
+    }
+
+    private void samlMetadata(final RoutingContext rc) {
+        final String metadata;
+        try {
+            metadata = samlIdp.metadata();
+        } catch (final GeneralSecurityException e) {
+            rc.fail(e);
+            return;
+        }
+        rc.response().putHeader("Content-Type", "application/samlmetadata+xml").end(metadata);
+    }
+
+    /**
+     * Answers an AuthnRequest, sent with the HTTP-Redirect binding (deflated, in the query) or the HTTP-POST binding.
+     */
+    private void samlSso(final RoutingContext rc) {
+        final boolean post = rc.request().method() == HttpMethod.POST;
+        final String samlRequest = post ? rc.request().getFormAttribute("SAMLRequest") : rc.request().getParam("SAMLRequest");
+        final String relayState = post ? rc.request().getFormAttribute("RelayState") : rc.request().getParam("RelayState");
+        if (samlRequest == null) {
+            rc.response().setStatusCode(400).end("Missing SAMLRequest");
+            return;
+        }
+        final String form;
+        try {
+            form = samlIdp.respond(samlRequest, !post, relayState, user(rc));
+        } catch (final IOException e) {
+            rc.response().setStatusCode(400).end(e.getMessage());
+            return;
+        }
+        rc.response()
+                .putHeader("Content-Type", "text/html; charset=utf-8")
+                .putHeader("Cache-Control", "no-store")
+                .end(form);
+    }
+
+    private String idToken(final Grant grant) throws JOSEException {
+        final long now = System.currentTimeMillis();
+        final JWTClaimsSet.Builder claims = new JWTClaimsSet.Builder()
+                .issuer(issuer)
+                .subject(grant.user)
+                .audience(OIDC_CLIENT_ID)
+                .issueTime(new Date(now))
+                .expirationTime(new Date(now + GRANT_TTL_MS))
+                .claim("preferred_username", grant.user)
+                .claim("email", grant.user + "@example.org");
+        if (grant.nonce != null) {
+            claims.claim("nonce", grant.nonce);
+        }
+        final SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(signingKey.getKeyID()).build(),
+                claims.build());
+        jwt.sign(new RSASSASigner(signingKey));
+        return jwt.serialize();
+    }
+
+    /**
+     * Accepts the client credentials either as a basic authorization header or as form parameters.
+     */
+    private static boolean clientAuthenticated(final RoutingContext rc) {
+        final String authorization = rc.request().getHeader("Authorization");
+        String clientId = rc.request().getFormAttribute("client_id");
+        String secret = rc.request().getFormAttribute("client_secret");
+        if (authorization != null && authorization.startsWith("Basic ")) {
+            final String decoded = new String(Base64.getDecoder().decode(authorization.substring("Basic ".length())),
+                    StandardCharsets.UTF_8);
+            final int colon = decoded.indexOf(':');
+            if (colon > 0) {
+                clientId = URLDecoder.decode(decoded.substring(0, colon), StandardCharsets.UTF_8);
+                secret = URLDecoder.decode(decoded.substring(colon + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return OIDC_CLIENT_ID.equals(clientId) && OIDC_SECRET.equals(secret);
+    }
+
+    private void purgeExpired() {
+        codes.values().removeIf(Grant::expired);
+        accessTokens.values().removeIf(Grant::expired);
+        tickets.values().removeIf(Grant::expired);
+    }
+
+    private static RSAKey generateSigningKey() throws JOSEException {
+        return new RSAKeyGenerator(2048)
+                .keyID("mock-idp")
+                .keyUse(KeyUse.SIGNATURE)
+                .algorithm(JWSAlgorithm.RS256)
+                .generate();
+    }
+
+    /**
+     * @return the user named by the "login_hint" parameter, if it is a plain user name
+     */
+    private static String user(final RoutingContext rc) {
+        final String hint = rc.request().getParam("login_hint");
+        return hint != null && USER_PATTERN.matcher(hint).matches() ? hint : DEFAULT_USER;
+    }
+
+    private static void redirect(final RoutingContext rc, final String location) {
+        rc.response().putHeader("Location", location).setStatusCode(302).end();
+    }
+
+    private static void json(final RoutingContext rc, final int status, final String body) {
+        rc.response().putHeader("Content-Type", "application/json").setStatusCode(status).end(body);
+    }
+
+    private static String separator(final String url) {
+        return url.indexOf('?') >= 0 ? "&" : "?";
+    }
+
+    private static String encode(final String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static String newId() {
+        final byte[] bytes = new byte[18];
+        RANDOM.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static class Grant {
+        private final String user;
+        // the OIDC redirect_uri or the CAS service the grant was issued for
+        private final String target;
+        private final String nonce;
+        private final long expiresAt = System.currentTimeMillis() + GRANT_TTL_MS;
+
+        private Grant(final String user, final String target, final String nonce) {
+            this.user = user;
+            this.target = target;
+            this.nonce = nonce;
+        }
+
+        private boolean expired() {
+            return System.currentTimeMillis() > expiresAt;
+        }
+    }
+}
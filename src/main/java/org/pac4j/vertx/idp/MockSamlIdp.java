@@ -0,0 +1,278 @@
+package org.pac4j.vertx.idp;
+
+import org.pac4j.vertx.config.Pac4jConfigurationFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.crypto.MarshalException;
+import javax.xml.crypto.dsig.CanonicalizationMethod;
+import javax.xml.crypto.dsig.DigestMethod;
+import javax.xml.crypto.dsig.Reference;
+import javax.xml.crypto.dsig.SignatureMethod;
+import javax.xml.crypto.dsig.SignedInfo;
+import javax.xml.crypto.dsig.Transform;
+import javax.xml.crypto.dsig.XMLSignatureException;
+import javax.xml.crypto.dsig.XMLSignatureFactory;
+import javax.xml.crypto.dsig.dom.DOMSignContext;
+import javax.xml.crypto.dsig.keyinfo.KeyInfo;
+import javax.xml.crypto.dsig.keyinfo.KeyInfoFactory;
+import javax.xml.crypto.dsig.spec.C14NMethodParameterSpec;
+import javax.xml.crypto.dsig.spec.TransformParameterSpec;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * The SAML identity provider of {@link MockIdpVerticle}: answers the AuthnRequests of the SAML2Client, received with
+ * the HTTP-Redirect or HTTP-POST binding, with a signed assertion posted back to the service provider's assertion
+ * consumer service by an auto-submitting form.
+ *
+ * Assertions are signed (RSA-SHA256, enveloped) with the key of the demo's SAML keystore, whose certificate is
+ * published in the metadata generated at startup; the JDK has no API to generate certificates.
+ *
+ * @since 7.0.0
+ */
+final class MockSamlIdp {
+
+    static final String PATH = "/saml";
+
+    private static final String KEYSTORE_ALIAS = "pac4j-demo";
+    private static final String PROTOCOL_NS = "urn:oasis:names:tc:SAML:2.0:protocol";
+    private static final String ASSERTION_NS = "urn:oasis:names:tc:SAML:2.0:assertion";
+    private static final long VALIDITY_SECONDS = 300;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final String entityId;
+    private final String ssoUrl;
+    private final PrivateKey signingKey;
+    private final X509Certificate certificate;
+
+    private MockSamlIdp(final String baseUrl, final PrivateKey signingKey, final X509Certificate certificate) {
+        this.entityId = entityId(baseUrl);
+        this.ssoUrl = baseUrl + PATH + "/sso";
+        this.signingKey = signingKey;
+        this.certificate = certificate;
+    }
+
+    /**
+     * Blocking: loads the signing key and writes the metadata of the identity provider to the given file.
+     */
+    static MockSamlIdp create(final String baseUrl, final Path metadataFile) throws IOException, GeneralSecurityException {
+        final KeyStore keyStore = KeyStore.getInstance("JKS");
+        final char[] password = Pac4jConfigurationFactory.SAML_KEYSTORE_PASSWORD.toCharArray();
+        try (InputStream in = Files.newInputStream(Paths.get(Pac4jConfigurationFactory.SAML_KEYSTORE_PATH))) {
+            keyStore.load(in, password);
+        }
+        final MockSamlIdp idp = new MockSamlIdp(baseUrl, (PrivateKey) keyStore.getKey(KEYSTORE_ALIAS, password),
+                (X509Certificate) keyStore.getCertificate(KEYSTORE_ALIAS));
+        if (metadataFile.getParent() != null) {
+            Files.createDirectories(metadataFile.getParent());
+        }
+        Files.write(metadataFile, idp.metadata().getBytes(StandardCharsets.UTF_8));
+        return idp;
+    }
+
+    static String entityId(final String baseUrl) {
+        return baseUrl + PATH;
+    }
+
+    String metadata() throws GeneralSecurityException {
+        return "<md:EntityDescriptor xmlns:md=\"urn:oasis:names:tc:SAML:2.0:metadata\""
+                + " xmlns:ds=\"http://www.w3.org/2000/09/xmldsig#\" entityID=\"" + escape(entityId) + "\">"
+                + "<md:IDPSSODescriptor WantAuthnRequestsSigned=\"false\" protocolSupportEnumeration=\"" + PROTOCOL_NS + "\">"
+                + "<md:KeyDescriptor use=\"signing\"><ds:KeyInfo><ds:X509Data><ds:X509Certificate>"
+                + Base64.getEncoder().encodeToString(certificate.getEncoded())
+                + "</ds:X509Certificate></ds:X509Data></ds:KeyInfo></md:KeyDescriptor>"
+                + "<md:NameIDFormat>urn:oasis:names:tc:SAML:1.1:nameid-format:unspecified</md:NameIDFormat>"
+                + "<md:SingleSignOnService Binding=\"urn:oasis:names:tc:SAML:2.0:bindings:HTTP-Redirect\""
+                + " Location=\"" + escape(ssoUrl) + "\"/>"
+                + "<md:SingleSignOnService Binding=\"urn:oasis:names:tc:SAML:2.0:bindings:HTTP-POST\""
+                + " Location=\"" + escape(ssoUrl) + "\"/>"
+                + "</md:IDPSSODescriptor></md:EntityDescriptor>";
+    }
+
+    /**
+     * @param samlRequest the SAMLRequest parameter, deflated when received with the HTTP-Redirect binding
+     * @return the HTML page posting the signed response of the given user to the assertion consumer service
+     * @throws IOException if the request is not a readable AuthnRequest
+     */
+    String respond(final String samlRequest, final boolean deflated, final String relayState, final String user)
+            throws IOException {
+        final Element request = parse(decode(samlRequest, deflated)).getDocumentElement();
+        final String requestId = request.getAttribute("ID");
+        final String acs = request.getAttribute("AssertionConsumerServiceURL");
+        final Element issuer = (Element) request.getElementsByTagNameNS(ASSERTION_NS, "Issuer").item(0);
+        if (!PROTOCOL_NS.equals(request.getNamespaceURI()) || !"AuthnRequest".equals(request.getLocalName())
+                || requestId.isEmpty() || acs.isEmpty() || issuer == null) {
+            throw new IOException("Not an AuthnRequest with an ID, an AssertionConsumerServiceURL and an Issuer");
+        }
+
+        final Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        final String notOnOrAfter = now.plusSeconds(VALIDITY_SECONDS).toString();
+        final String assertionId = newId();
+        final String response = "<samlp:Response xmlns:samlp=\"" + PROTOCOL_NS + "\" xmlns:saml=\"" + ASSERTION_NS + "\""
+                + " ID=\"" + newId() + "\" Version=\"2.0\" IssueInstant=\"" + now + "\""
+                + " Destination=\"" + escape(acs) + "\" InResponseTo=\"" + escape(requestId) + "\">"
+                + "<saml:Issuer>" + escape(entityId) + "</saml:Issuer>"
+                + "<samlp:Status><samlp:StatusCode Value=\"urn:oasis:names:tc:SAML:2.0:status:Success\"/></samlp:Status>"
+                + "<saml:Assertion ID=\"" + assertionId + "\" Version=\"2.0\" IssueInstant=\"" + now + "\">"
+                + "<saml:Issuer>" + escape(entityId) + "</saml:Issuer>"
+                + "<saml:Subject>"
+                + "<saml:NameID Format=\"urn:oasis:names:tc:SAML:1.1:nameid-format:unspecified\">" + escape(user) + "</saml:NameID>"
+                + "<saml:SubjectConfirmation Method=\"urn:oasis:names:tc:SAML:2.0:cm:bearer\">"
+                + "<saml:SubjectConfirmationData InResponseTo=\"" + escape(requestId) + "\""
+                + " NotOnOrAfter=\"" + notOnOrAfter + "\" Recipient=\"" + escape(acs) + "\"/>"
+                + "</saml:SubjectConfirmation></saml:Subject>"
+                + "<saml:Conditions NotBefore=\"" + now.minusSeconds(60) + "\" NotOnOrAfter=\"" + notOnOrAfter + "\">"
+                + "<saml:AudienceRestriction><saml:Audience>" + escape(issuer.getTextContent().trim())
+                + "</saml:Audience></saml:AudienceRestriction></saml:Conditions>"
+                + "<saml:AuthnStatement AuthnInstant=\"" + now + "\" SessionIndex=\"" + newId() + "\">"
+                + "<saml:AuthnContext><saml:AuthnContextClassRef>"
+                + "urn:oasis:names:tc:SAML:2.0:ac:classes:PasswordProtectedTransport"
+                + "</saml:AuthnContextClassRef></saml:AuthnContext></saml:AuthnStatement>"
+                + "<saml:AttributeStatement><saml:Attribute Name=\"email\"><saml:AttributeValue>"
+                + escape(user) + "@example.org</saml:AttributeValue></saml:Attribute></saml:AttributeStatement>"
+                + "</saml:Assertion></samlp:Response>";
+
+        final Element assertion = (Element) parse(response.getBytes(StandardCharsets.UTF_8))
+                .getElementsByTagNameNS(ASSERTION_NS, "Assertion").item(0);
+        sign(assertion, assertionId);
+        final String encoded = Base64.getEncoder().encodeToString(serialize(assertion.getOwnerDocument().getDocumentElement()));
+
+        return "<!DOCTYPE html><html><body onload=\"document.forms[0].submit()\">"
+                + "<form method=\"post\" action=\"" + escape(acs) + "\">"
+                + "<input type=\"hidden\" name=\"SAMLResponse\" value=\"" + encoded + "\"/>"
+                + (relayState != null ? "<input type=\"hidden\" name=\"RelayState\" value=\"" + escape(relayState) + "\"/>" : "")
+                + "<noscript><input type=\"submit\" value=\"Continue\"/></noscript>"
+                + "</form></body></html>";
+    }
+
+    /**
+     * Signs the assertion with an enveloped signature placed after its Issuer, as the SAML schema requires.
+     */
+    private void sign(final Element assertion, final String assertionId) {
+        assertion.setIdAttributeNS(null, "ID", true);
+        try {
+            final XMLSignatureFactory factory = XMLSignatureFactory.getInstance("DOM");
+            final Reference reference = factory.newReference("#" + assertionId,
+                    factory.newDigestMethod(DigestMethod.SHA256, null),
+                    List.of(factory.newTransform(Transform.ENVELOPED, (TransformParameterSpec) null),
+                            factory.newTransform(CanonicalizationMethod.EXCLUSIVE, (TransformParameterSpec) null)),
+                    null, null);
+            final SignedInfo signedInfo = factory.newSignedInfo(
+                    factory.newCanonicalizationMethod(CanonicalizationMethod.EXCLUSIVE, (C14NMethodParameterSpec) null),
+                    factory.newSignatureMethod(SignatureMethod.RSA_SHA256, null),
+                    List.of(reference));
+            final KeyInfoFactory keyInfoFactory = factory.getKeyInfoFactory();
+            final KeyInfo keyInfo = keyInfoFactory.newKeyInfo(List.of(keyInfoFactory.newX509Data(List.of(certificate))));
+            final DOMSignContext context = new DOMSignContext(signingKey, assertion,
+                    assertion.getElementsByTagNameNS(ASSERTION_NS, "Subject").item(0));
+            context.setDefaultNamespacePrefix("ds");
+            factory.newXMLSignature(signedInfo, keyInfo).sign(context);
+        } catch (final GeneralSecurityException | MarshalException | XMLSignatureException e) {
+            throw new IllegalStateException("Cannot sign the SAML assertion", e);
+        }
+    }
+
+    private static byte[] decode(final String samlRequest, final boolean deflated) throws IOException {
+        final byte[] decoded;
+        try {
+            decoded = Base64.getMimeDecoder().decode(samlRequest);
+        } catch (final IllegalArgumentException e) {
+            throw new IOException("SAMLRequest is not Base64 encoded", e);
+        }
+        if (!deflated) {
+            return decoded;
+        }
+        final Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(decoded);
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(decoded.length * 4);
+            final byte[] buffer = new byte[4096];
+            while (!inflater.finished()) {
+                final int read = inflater.inflate(buffer);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated SAMLRequest");
+                }
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } catch (final DataFormatException e) {
+            throw new IOException("SAMLRequest is not deflated", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static Document parse(final byte[] xml) throws IOException {
+        try {
+            final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            factory.setExpandEntityReferences(false);
+            final DocumentBuilder builder = factory.newDocumentBuilder();
+            return builder.parse(new ByteArrayInputStream(xml));
+        } catch (final ParserConfigurationException e) {
+            throw new IllegalStateException("Cannot create a secure XML parser", e);
+        } catch (final SAXException e) {
+            throw new IOException("Invalid SAML message", e);
+        }
+    }
+
+    private static byte[] serialize(final Element element) {
+        final StringWriter xml = new StringWriter(8192);
+        try {
+            final TransformerFactory factory = TransformerFactory.newInstance();
+            factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+            factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_STYLESHEET, "");
+            final Transformer transformer = factory.newTransformer();
+            transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+            transformer.transform(new DOMSource(element), new StreamResult(xml));
+        } catch (final TransformerException e) {
+            throw new IllegalStateException("Cannot write the SAML response", e);
+        }
+        return xml.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String escape(final String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    /**
+     * @return a random identifier, starting with an underscore as XML IDs can't start with a digit
+     */
+    private static String newId() {
+        final byte[] bytes = new byte[18];
+        RANDOM.nextBytes(bytes);
+        return "_" + Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
@@ -0,0 +1,47 @@
+package org.pac4j.vertx.jwt;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.pac4j.core.profile.UserProfile;
+import org.pac4j.jwt.config.signature.SecretSignatureConfiguration;
+import org.pac4j.jwt.profile.JwtGenerator;
+
+import java.util.List;
+
+/**
+ * Issues JWTs for user profiles. The signature configuration and generator are built once and hold no per-token
+ * state, so a single service can be shared by every event loop issuing tokens.
+ *
+ * @since 7.0.0
+ */
+public class JwtTokenService {
+
+    private final JwtGenerator generator;
+
+    public JwtTokenService(final String secret) {
+        final SecretSignatureConfiguration signatureConfiguration = new SecretSignatureConfiguration(secret);
+        // initialise up front rather than lazily on the first token, possibly concurrently on several event loops
+        signatureConfiguration.init();
+        this.generator = new JwtGenerator(signatureConfiguration);
+    }
+
+    public String generate(final UserProfile profile) {
+        return generator.generate(profile);
+    }
+
+    /**
+     * Issues one token per profile, e.g. for every profile of a multi-profile session.
+     *
+     * @return an array of {"clientName", "id", "token"} objects, in the order of the profiles
+     */
+    public JsonArray generateAll(final List<UserProfile> profiles) {
+        final JsonArray tokens = new JsonArray();
+        for (final UserProfile profile : profiles) {
+            tokens.add(new JsonObject()
+                    .put("clientName", profile.getClientName())
+                    .put("id", profile.getId())
+                    .put("token", generator.generate(profile)));
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,287 @@
+package org.pac4j.vertx.metrics;
+
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.shareddata.Shareable;
+import io.vertx.ext.web.RoutingContext;
+import org.pac4j.core.profile.UserProfile;
+import org.pac4j.vertx.SharedInstances;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Latency histograms and outcome counters of the authentication handlers (security, callback, force login), per
+ * handler, route and client name, exposed in the Prometheus text format. The client of a security handler is that of
+ * the profile it authenticated, or {@link #NO_PROFILE} when there is none (redirections to an identity provider,
+ * 401s); the client of a callback or force login is the one requested. Client label values are limited to the names
+ * of the clients known when instrumenting, anything else being recorded as {@link #UNKNOWN_CLIENT}, so the number of
+ * series stays bounded.
+ *
+ * The latency of a security handler runs from it starting until it lets the request through to the next handler, see
+ * {@link #passed(Handler)}, fails it, see {@link #failureHandler()}, or writes the response headers itself, as for a
+ * redirection to an identity provider: it is the authentication time, without the rendering of the protected page. The
+ * latency of other handlers runs until the response headers are written. The series of a handler are created when it
+ * is instrumented, so recording only costs a map lookup and a few uncontended LongAdder increments on the event loop.
+ *
+ * One registry is shared by all verticle instances of a vert.x instance, see {@link #shared(Vertx)}.
+ *
+ * @since 7.0.0
+ */
+public class AuthMetrics implements Shareable {
+
+    public static final String UNKNOWN_CLIENT = "unknown";
+    public static final String NO_PROFILE = "none";
+
+    private static final String STOPWATCH_KEY = AuthMetrics.class.getName() + ".stopwatch";
+
+    private static final double[] BUCKETS_SECONDS = {0.001, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+    private static final long[] BUCKETS_NANOS = new long[BUCKETS_SECONDS.length];
+
+    static {
+        for (int i = 0; i < BUCKETS_SECONDS.length; i++) {
+            BUCKETS_NANOS[i] = (long) (BUCKETS_SECONDS[i] * 1_000_000_000L);
+        }
+    }
+
+    public enum Outcome {
+        SUCCESS, REDIRECT, UNAUTHORIZED, FORBIDDEN, THROTTLED, ERROR;
+
+        static Outcome of(final int statusCode) {
+            if (statusCode == 401) {
+                return UNAUTHORIZED;
+            } else if (statusCode == 403) {
+                return FORBIDDEN;
+            } else if (statusCode == 429) {
+                return THROTTLED;
+            } else if (statusCode >= 200 && statusCode < 300 || statusCode == 304) {
+                return SUCCESS;
+            } else if (statusCode >= 300 && statusCode < 400) {
+                return REDIRECT;
+            }
+            return ERROR;
+        }
+    }
+
+    private final Map<String, Series> series = new ConcurrentHashMap<>();
+
+    /**
+     * @return the registry shared by every verticle of this vert.x instance
+     */
+    public static AuthMetrics shared(final Vertx vertx) {
+        return SharedInstances.getOrCreate(vertx, AuthMetrics.class, AuthMetrics::new);
+    }
+
+    /**
+     * Instruments a security handler, recording each request under the client of the profile it let through.
+     *
+     * @param clients      the clients the handler accepts, comma separated, any known client if empty
+     * @param knownClients the names of all the clients
+     * @param profiles     the profiles of a request once the security handler is done with it
+     */
+    public Handler<RoutingContext> instrument(final String handlerName, final String route, final String clients,
+                                              final Collection<String> knownClients,
+                                              final Function<RoutingContext, List<UserProfile>> profiles,
+                                              final Handler<RoutingContext> delegate) {
+        final Map<String, Series> byClient = new HashMap<>();
+        final Collection<String> accepted = clients.isBlank() ? knownClients : Arrays.stream(clients.split(","))
+                .map(String::trim).filter(name -> !name.isEmpty()).collect(Collectors.toList());
+        accepted.forEach(client -> byClient.put(client, series(handlerName, route, client)));
+        final Series none = series(handlerName, route, NO_PROFILE);
+        final Series unknown = series(handlerName, route, UNKNOWN_CLIENT);
+        final Function<RoutingContext, Series> clientSeries = rc -> profileSeries(profiles.apply(rc), byClient, none,
+                unknown);
+        return rc -> {
+            final Stopwatch stopwatch = new Stopwatch(clientSeries);
+            rc.put(STOPWATCH_KEY, stopwatch);
+            // responses the security handler ends itself, e.g. redirections to an identity provider
+            rc.addHeadersEndHandler(v -> stopwatch.stop(rc, Outcome.of(rc.response().getStatusCode())));
+            delegate.handle(rc);
+        };
+    }
+
+    /**
+     * Wraps the handler following an instrumented security handler, recording a success as the request reaches it.
+     */
+    public static Handler<RoutingContext> passed(final Handler<RoutingContext> next) {
+        return rc -> {
+            final Stopwatch stopwatch = rc.get(STOPWATCH_KEY);
+            if (stopwatch != null) {
+                stopwatch.stop(rc, Outcome.SUCCESS);
+            }
+            next.handle(rc);
+        };
+    }
+
+    /**
+     * @return a failure handler recording the failure of an instrumented security handler, to be routed before the
+     * failure handlers writing error pages
+     */
+    public static Handler<RoutingContext> failureHandler() {
+        return rc -> {
+            final Stopwatch stopwatch = rc.get(STOPWATCH_KEY);
+            if (stopwatch != null) {
+                stopwatch.stop(rc, Outcome.of(rc.statusCode()));
+            }
+            rc.next();
+        };
+    }
+
+    /**
+     * Instruments a handler whose client is chosen by a request parameter (callback, force login). Names outside the
+     * known clients are recorded as {@link #UNKNOWN_CLIENT}, keeping the number of series bounded.
+     */
+    public Handler<RoutingContext> instrumentByClientParameter(final String handlerName, final String route,
+                                                               final String parameter,
+                                                               final Collection<String> knownClients,
+                                                               final Handler<RoutingContext> delegate) {
+        final Map<String, Series> byClient = new HashMap<>();
+        knownClients.forEach(client -> byClient.put(client, series(handlerName, route, client)));
+        final Series unknown = series(handlerName, route, UNKNOWN_CLIENT);
+        return rc -> {
+            final long start = System.nanoTime();
+            final String client = rc.request().getParam(parameter);
+            final Series clientSeries = client == null ? unknown : byClient.getOrDefault(client, unknown);
+            clientSeries.recordOnHeadersEnd(rc, start);
+            delegate.handle(rc);
+        };
+    }
+
+    public Handler<RoutingContext> scrapeHandler() {
+        return scrapeHandler(() -> "");
+    }
+
+    /**
+     * @param others further metrics, in the Prometheus text format, to serve after these
+     */
+    public Handler<RoutingContext> scrapeHandler(final Supplier<String> others) {
+        return rc -> rc.response()
+                .putHeader("Content-Type", "text/plain; version=0.0.4; charset=utf-8")
+                .end(toPrometheus() + others.get());
+    }
+
+    public String toPrometheus() {
+        final StringBuilder out = new StringBuilder(4096);
+        out.append("# HELP pac4j_auth_duration_seconds Time from authentication handling start to response headers\n");
+        out.append("# TYPE pac4j_auth_duration_seconds histogram\n");
+        series.values().forEach(s -> s.writeHistogram(out));
+        out.append("# HELP pac4j_auth_requests_total Authentication handler requests by outcome\n");
+        out.append("# TYPE pac4j_auth_requests_total counter\n");
+        series.values().forEach(s -> s.writeOutcomes(out));
+        return out.toString();
+    }
+
+    /**
+     * @return the series of the first profile from an accepted client, of any other profile or of no profile
+     */
+    private static Series profileSeries(final List<UserProfile> profiles, final Map<String, Series> byClient,
+                                        final Series none, final Series unknown) {
+        if (profiles == null || profiles.isEmpty()) {
+            return none;
+        }
+        for (final UserProfile profile : profiles) {
+            final Series clientSeries = byClient.get(profile.getClientName());
+            if (clientSeries != null) {
+                return clientSeries;
+            }
+        }
+        return unknown;
+    }
+
+    private Series series(final String handlerName, final String route, final String client) {
+        final String labels = "handler=\"" + escape(handlerName) + "\",route=\"" + escape(route)
+                + "\",client=\"" + escape(client) + "\"";
+        return series.computeIfAbsent(labels, Series::new);
+    }
+
+    private static String escape(final String labelValue) {
+        return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /**
+     * Times a request through a security handler, recording it once, under the series of its profiles, whichever of
+     * passing, failing or ending the response comes first. Only used on the request's event loop.
+     */
+    private static class Stopwatch {
+        private final long start = System.nanoTime();
+        private final Function<RoutingContext, Series> clientSeries;
+        private boolean stopped;
+
+        private Stopwatch(final Function<RoutingContext, Series> clientSeries) {
+            this.clientSeries = clientSeries;
+        }
+
+        private void stop(final RoutingContext rc, final Outcome outcome) {
+            if (!stopped) {
+                stopped = true;
+                final long nanos = System.nanoTime() - start;
+                clientSeries.apply(rc).record(outcome, nanos);
+            }
+        }
+    }
+
+    private static class Series {
+        private final String labels;
+        private final LongAdder[] buckets = new LongAdder[BUCKETS_NANOS.length];
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sumNanos = new LongAdder();
+        private final LongAdder[] outcomes = new LongAdder[Outcome.values().length];
+
+        private Series(final String labels) {
+            this.labels = labels;
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+            for (int i = 0; i < outcomes.length; i++) {
+                outcomes[i] = new LongAdder();
+            }
+        }
+
+        private void recordOnHeadersEnd(final RoutingContext rc, final long start) {
+            rc.addHeadersEndHandler(v -> record(Outcome.of(rc.response().getStatusCode()), System.nanoTime() - start));
+        }
+
+        private void record(final Outcome outcome, final long nanos) {
+            for (int i = 0; i < BUCKETS_NANOS.length; i++) {
+                if (nanos <= BUCKETS_NANOS[i]) {
+                    buckets[i].increment();
+                    break;
+                }
+            }
+            count.increment();
+            sumNanos.add(nanos);
+            outcomes[outcome.ordinal()].increment();
+        }
+
+        private void writeHistogram(final StringBuilder out) {
+            long cumulative = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                cumulative += buckets[i].sum();
+                out.append("pac4j_auth_duration_seconds_bucket{").append(labels)
+                        .append(",le=\"").append(BUCKETS_SECONDS[i]).append("\"} ").append(cumulative).append('\n');
+            }
+            final long total = count.sum();
+            out.append("pac4j_auth_duration_seconds_bucket{").append(labels).append(",le=\"+Inf\"} ").append(total).append('\n');
+            out.append("pac4j_auth_duration_seconds_sum{").append(labels).append("} ")
+                    .append(sumNanos.sum() / 1e9).append('\n');
+            out.append("pac4j_auth_duration_seconds_count{").append(labels).append("} ").append(total).append('\n');
+        }
+
+        private void writeOutcomes(final StringBuilder out) {
+            for (final Outcome outcome : Outcome.values()) {
+                out.append("pac4j_auth_requests_total{").append(labels)
+                        .append(",outcome=\"").append(outcome.name().toLowerCase(Locale.ROOT)).append("\"} ")
+                        .append(outcomes[outcome.ordinal()].sum()).append('\n');
+            }
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package org.pac4j.vertx.oidc;
+
+import com.nimbusds.jose.util.DefaultResourceRetriever;
+import com.nimbusds.jose.util.Resource;
+import com.nimbusds.jose.util.ResourceRetriever;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.WorkerExecutor;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.Shareable;
+import org.pac4j.vertx.SharedInstances;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Retriever of the OpenID Connect provider documents (discovery document and JWKS) shared by the OIDC clients of every
+ * verticle, so that concurrent callbacks, e.g. right after a key rotation, don't each fetch the same documents:
+ * <ul>
+ *     <li>concurrent fetches of a document are coalesced into a single request to the provider</li>
+ *     <li>a fetched document is served for "ttlMs", and fetched again in the background when requested during the
+ *     last "refreshAheadMs" of that time, so callers don't wait for it</li>
+ *     <li>while the provider fails, the last good copy is served for up to "maxStaleMs" after it was fetched. Only
+ *     the first caller after expiry waits for the failing fetch: the next ones get the last good copy at once, while
+ *     the document is fetched again in the background, at most every "retryBackoffMs", doubling after each failure up
+ *     to "maxRetryBackoffMs"</li>
+ * </ul>
+ * A JWKS is also asked for again within its TTL when an id token is signed by a key the validator doesn't know, e.g.
+ * right after a key rotation: such a request skips the cache once the cached keys are "jwksRefetchIntervalMs" old, so
+ * the rotated keys are fetched at once while a flood of unknown keys still reaches the provider at most once per
+ * interval, concurrent requests being coalesced as any others.
+ *
+ * Configured by the "oidcResourceCache" config object, which also sets the "connectTimeoutMs" and "readTimeoutMs" of
+ * the requests to the provider. The shared retriever's refresh worker is closed by {@link #closeShared(Vertx)}.
+ *
+ * @since 7.0.0
+ */
+public class CachingResourceRetriever implements ResourceRetriever, Shareable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CachingResourceRetriever.class);
+
+    public static final String CONFIG_KEY = "oidcResourceCache";
+    public static final long DEFAULT_TTL_MS = 30000;
+    public static final long DEFAULT_REFRESH_AHEAD_MS = 5000;
+    public static final long DEFAULT_MAX_STALE_MS = 86400000;
+    public static final long DEFAULT_RETRY_BACKOFF_MS = 1000;
+    public static final long DEFAULT_MAX_RETRY_BACKOFF_MS = 60000;
+    public static final long DEFAULT_JWKS_REFETCH_INTERVAL_MS = 5000;
+
+    private static final String REFRESH_POOL_NAME = "pac4j-demo-oidc-refresh";
+
+    private final ResourceRetriever delegate;
+    private final Executor refreshExecutor;
+    private final LongSupplier clock;
+    private final long ttlMs;
+    private final long refreshAheadMs;
+    private final long maxStaleMs;
+    private final long retryBackoffMs;
+    private final long maxRetryBackoffMs;
+    private final long jwksRefetchIntervalMs;
+    private volatile WorkerExecutor worker;
+    private volatile boolean closed;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Resource>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder fetches = new LongAdder();
+    private final LongAdder staleServed = new LongAdder();
+
+    public CachingResourceRetriever(final ResourceRetriever delegate, final Executor refreshExecutor, final LongSupplier clock,
+                                    final long ttlMs, final long refreshAheadMs, final long maxStaleMs) {
+        this(delegate, refreshExecutor, clock, ttlMs, refreshAheadMs, maxStaleMs, DEFAULT_RETRY_BACKOFF_MS,
+                DEFAULT_MAX_RETRY_BACKOFF_MS);
+    }
+
+    public CachingResourceRetriever(final ResourceRetriever delegate, final Executor refreshExecutor, final LongSupplier clock,
+                                    final long ttlMs, final long refreshAheadMs, final long maxStaleMs,
+                                    final long retryBackoffMs, final long maxRetryBackoffMs) {
+        this(delegate, refreshExecutor, clock, ttlMs, refreshAheadMs, maxStaleMs, retryBackoffMs, maxRetryBackoffMs,
+                DEFAULT_JWKS_REFETCH_INTERVAL_MS);
+    }
+
+    public CachingResourceRetriever(final ResourceRetriever delegate, final Executor refreshExecutor, final LongSupplier clock,
+                                    final long ttlMs, final long refreshAheadMs, final long maxStaleMs,
+                                    final long retryBackoffMs, final long maxRetryBackoffMs,
+                                    final long jwksRefetchIntervalMs) {
+        this.delegate = delegate;
+        this.refreshExecutor = refreshExecutor;
+        this.clock = clock;
+        this.ttlMs = ttlMs;
+        this.refreshAheadMs = refreshAheadMs;
+        this.maxStaleMs = maxStaleMs;
+        this.retryBackoffMs = retryBackoffMs;
+        this.maxRetryBackoffMs = maxRetryBackoffMs;
+        this.jwksRefetchIntervalMs = jwksRefetchIntervalMs;
+    }
+
+    /**
+     * @return the retriever shared by every verticle of this vert.x instance, created from the "oidcResourceCache"
+     * entry of the given config by the first caller
+     */
+    public static CachingResourceRetriever shared(final Vertx vertx, final JsonObject config) {
+        return SharedInstances.getOrCreate(vertx, CachingResourceRetriever.class,
+                () -> create(vertx, config.getJsonObject(CONFIG_KEY, new JsonObject())), CachingResourceRetriever::close);
+    }
+
+    private static CachingResourceRetriever create(final Vertx vertx, final JsonObject conf) {
+        final WorkerExecutor worker = vertx.createSharedWorkerExecutor(REFRESH_POOL_NAME, 1);
+        final CachingResourceRetriever created = new CachingResourceRetriever(
+                new DefaultResourceRetriever(conf.getInteger("connectTimeoutMs", 2000), conf.getInteger("readTimeoutMs", 5000)),
+                command -> worker.executeBlocking(() -> {
+                    command.run();
+                    return null;
+                }, false),
+                System::currentTimeMillis,
+                conf.getLong("ttlMs", DEFAULT_TTL_MS),
+                conf.getLong("refreshAheadMs", DEFAULT_REFRESH_AHEAD_MS),
+                conf.getLong("maxStaleMs", DEFAULT_MAX_STALE_MS),
+                conf.getLong("retryBackoffMs", DEFAULT_RETRY_BACKOFF_MS),
+                conf.getLong("maxRetryBackoffMs", DEFAULT_MAX_RETRY_BACKOFF_MS),
+                conf.getLong("jwksRefetchIntervalMs", DEFAULT_JWKS_REFETCH_INTERVAL_MS));
+        created.worker = worker;
+        return created;
+    }
+
+    /**
+     * Closes the refresh worker of the retriever shared by the verticles of this vert.x instance, if any, and forgets
+     * the retriever; called once the verticles using it are undeployed.
+     */
+    public static Future<Void> closeShared(final Vertx vertx) {
+        final CachingResourceRetriever shared = SharedInstances.remove(vertx, CachingResourceRetriever.class);
+        return shared != null ? shared.close() : Future.succeededFuture();
+    }
+
+    /**
+     * Closes the refresh worker the retriever was created with by {@link #shared(Vertx, JsonObject)}. Background
+     * refreshes requested afterwards are dropped.
+     */
+    public Future<Void> close() {
+        closed = true;
+        final WorkerExecutor closing = worker;
+        worker = null;
+        return closing != null ? closing.close() : Future.succeededFuture();
+    }
+
+    @Override
+    public Resource retrieve(final URL url) throws IOException {
+        final String key = url.toString();
+        final long now = clock.getAsLong();
+        final Entry entry = entries.get(key);
+        final boolean refetch = entry != null && isRefetch(entry, now);
+        if (entry != null && now < entry.fetchedAt + ttlMs && !refetch) {
+            if (now >= entry.fetchedAt + ttlMs - refreshAheadMs) {
+                refreshInBackground(url, key);
+            }
+            return entry.resource;
+        }
+        if (entry != null && !refetch && entry.failures > 0 && now < entry.fetchedAt + maxStaleMs) {
+            // the provider failed the last time: don't wait for it again, retry in the background once backed off
+            if (now >= entry.retryAt) {
+                refreshInBackground(url, key);
+            }
+            staleServed.increment();
+            return entry.resource;
+        }
+
+        try {
+            return fetch(url, key, refetch ? jwksRefetchIntervalMs : ttlMs);
+        } catch (final IOException e) {
+            if (entry != null && now < entry.fetchedAt + maxStaleMs) {
+                staleServed.increment();
+                LOG.warn("Failed to fetch " + key + ", serving the copy fetched "
+                        + (now - entry.fetchedAt) / 1000 + " s ago: " + e.getMessage());
+                return entry.resource;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return the number of requests made to the provider
+     */
+    public long fetches() {
+        return fetches.sum();
+    }
+
+    /**
+     * @return the number of times a stale copy was served as the provider failed
+     */
+    public long staleServed() {
+        return staleServed.sum();
+    }
+
+    /**
+     * @return whether a request for a JWKS still in its TTL should be passed on to the provider, as it is only made
+     * again for an unknown key, held back by the refetch interval and while a failing provider is backed off from
+     */
+    private boolean isRefetch(final Entry entry, final long now) {
+        return entry.jwks && now < entry.fetchedAt + ttlMs && now >= entry.fetchedAt + jwksRefetchIntervalMs
+                && (entry.failures == 0 || now >= entry.retryAt);
+    }
+
+    /**
+     * Fetches the document on the calling thread, or waits for the fetch already in flight.
+     *
+     * @param maxAgeMs the age under which a copy fetched meanwhile is served rather than fetching again
+     */
+    private Resource fetch(final URL url, final String key, final long maxAgeMs) throws IOException {
+        final CompletableFuture<Resource> created = new CompletableFuture<>();
+        final CompletableFuture<Resource> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            return await(existing);
+        }
+        // a fetch may have completed between reading the entry and getting here
+        final Entry entry = entries.get(key);
+        if (entry != null && clock.getAsLong() < entry.fetchedAt + maxAgeMs) {
+            inFlight.remove(key, created);
+            created.complete(entry.resource);
+            return entry.resource;
+        }
+        load(url, key, created);
+        return await(created);
+    }
+
+    private void refreshInBackground(final URL url, final String key) {
+        if (closed) {
+            return;
+        }
+        final CompletableFuture<Resource> created = new CompletableFuture<>();
+        if (inFlight.putIfAbsent(key, created) != null) {
+            return;
+        }
+        created.whenComplete((resource, e) -> {
+            if (e != null) {
+                LOG.warn("Background refresh of " + key + " failed, keeping the current copy: " + e.getMessage());
+            }
+        });
+        try {
+            refreshExecutor.execute(() -> load(url, key, created));
+        } catch (final RejectedExecutionException | IllegalStateException e) {
+            // the worker is closed
+            inFlight.remove(key, created);
+            created.completeExceptionally(e);
+        }
+    }
+
+    private void load(final URL url, final String key, final CompletableFuture<Resource> future) {
+        try {
+            fetches.increment();
+            final Resource resource = delegate.retrieve(url);
+            entries.put(key, new Entry(resource, isJwkSet(resource), clock.getAsLong(), 0, 0));
+            future.complete(resource);
+        } catch (final IOException | RuntimeException e) {
+            entries.computeIfPresent(key, (k, entry) -> entry.failed(clock.getAsLong()));
+            future.completeExceptionally(e);
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private static boolean isJwkSet(final Resource resource) {
+        try {
+            return new JsonObject(resource.getContent()).getValue("keys") instanceof JsonArray;
+        } catch (final DecodeException | ClassCastException e) {
+            return false;
+        }
+    }
+
+    private static Resource await(final CompletableFuture<Resource> future) throws IOException {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the document");
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private class Entry {
+        private final Resource resource;
+        private final boolean jwks;
+        private final long fetchedAt;
+        private final int failures;
+        private final long retryAt;
+
+        private Entry(final Resource resource, final boolean jwks, final long fetchedAt, final int failures,
+                      final long retryAt) {
+            this.resource = resource;
+            this.jwks = jwks;
+            this.fetchedAt = fetchedAt;
+            this.failures = failures;
+            this.retryAt = retryAt;
+        }
+
+        /**
+         * @return this copy, with the next fetch held back twice as long as after the previous failure
+         */
+        private Entry failed(final long now) {
+            final long backoff = Math.min(retryBackoffMs << Math.min(failures, 20), maxRetryBackoffMs);
+            return new Entry(resource, jwks, fetchedAt, failures + 1, now + backoff);
+        }
+    }
+}
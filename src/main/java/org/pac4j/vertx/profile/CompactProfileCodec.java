@@ -0,0 +1,430 @@
+package org.pac4j.vertx.profile;
+
+import io.vertx.core.buffer.Buffer;
+import org.pac4j.core.profile.UserProfile;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Versioned binary encoding of the state of a profile: its class, id, client name, linked id, remembered flag, roles,
+ * permissions, attributes and authentication attributes. Version 1 is laid out as:
+ * <pre>
+ * magic 'P', version 1
+ * class:   varint index in the table of common profile classes, or 0 followed by the class name
+ * strings: id, client name, linked id (nullable)
+ * byte:    remembered
+ * sets:    roles, permissions (varint count, strings)
+ * maps:    attributes, authentication attributes (varint count, string key, value)
+ * </pre>
+ * Values are tagged: null, string, boolean, int and long (zigzag varints), double, date, URI, byte array, list,
+ * set and map; anything else falls back to Java serialization. Strings are a varint length followed by UTF-8 bytes.
+ *
+ * Decoding only instantiates concrete {@link UserProfile} classes from the table or from pac4j's packages, loaded
+ * without running their static initializers before they are checked, and reads serialized values through
+ * {@link ProfileSerialFilter}.
+ *
+ * The class table and tags may only be appended to within a version.
+ *
+ * @since 7.0.0
+ */
+public class CompactProfileCodec implements ProfileCodec {
+
+    static final byte MAGIC = 'P';
+    static final byte VERSION = 1;
+
+    private static final List<String> PROFILE_CLASSES = Arrays.asList(
+            "org.pac4j.core.profile.CommonProfile",
+            "org.pac4j.core.profile.BasicUserProfile",
+            "org.pac4j.core.profile.AnonymousProfile",
+            "org.pac4j.oauth.profile.facebook.FacebookProfile",
+            "org.pac4j.oauth.profile.twitter.TwitterProfile",
+            "org.pac4j.oauth.profile.strava.StravaProfile",
+            "org.pac4j.cas.profile.CasProfile",
+            "org.pac4j.saml.profile.SAML2Profile",
+            "org.pac4j.oidc.profile.OidcProfile",
+            "org.pac4j.jwt.profile.JwtProfile");
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte TRUE = 2;
+    private static final byte FALSE = 3;
+    private static final byte INT = 4;
+    private static final byte LONG = 5;
+    private static final byte DOUBLE = 6;
+    private static final byte DATE = 7;
+    private static final byte URI_VALUE = 8;
+    private static final byte BYTES = 9;
+    private static final byte LIST = 10;
+    private static final byte SET = 11;
+    private static final byte MAP = 12;
+    private static final byte JAVA = 13;
+
+    private static final String ALLOWED_PROFILE_PACKAGE = "org.pac4j.";
+
+    private final Map<String, Integer> classIndexes = new HashMap<>();
+    private final Map<String, Constructor<? extends UserProfile>> constructors = new ConcurrentHashMap<>();
+
+    public CompactProfileCodec() {
+        for (int i = 0; i < PROFILE_CLASSES.size(); i++) {
+            classIndexes.put(PROFILE_CLASSES.get(i), i + 1);
+        }
+    }
+
+    @Override
+    public Buffer encode(final UserProfile profile) {
+        final Buffer out = Buffer.buffer(256);
+        out.appendByte(MAGIC).appendByte(VERSION);
+        final String className = profile.getClass().getName();
+        final Integer classIndex = classIndexes.get(className);
+        if (classIndex != null) {
+            writeVarint(out, classIndex);
+        } else {
+            writeVarint(out, 0);
+            writeString(out, className);
+        }
+        writeNullableString(out, profile.getId());
+        writeNullableString(out, profile.getClientName());
+        writeNullableString(out, profile.getLinkedId());
+        out.appendByte(profile.isRemembered() ? (byte) 1 : (byte) 0);
+        writeStrings(out, profile.getRoles());
+        writeStrings(out, profile.getPermissions());
+        writeMap(out, profile.getAttributes());
+        writeMap(out, profile.getAuthenticationAttributes());
+        return out;
+    }
+
+    @Override
+    public UserProfile decode(final Buffer encoded) {
+        final Reader in = new Reader(encoded);
+        if (in.readByte() != MAGIC) {
+            throw new IllegalArgumentException("Not an encoded profile");
+        }
+        final byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported profile encoding version " + version);
+        }
+        final int classIndex = in.readVarint();
+        if (classIndex < 0 || classIndex > PROFILE_CLASSES.size()) {
+            throw new IllegalArgumentException("Unknown profile class index " + classIndex);
+        }
+        final String className = classIndex > 0 ? PROFILE_CLASSES.get(classIndex - 1) : in.readString();
+        final UserProfile profile = newProfile(className);
+        profile.setId(in.readNullableString());
+        profile.setClientName(in.readNullableString());
+        profile.setLinkedId(in.readNullableString());
+        profile.setRemembered(in.readByte() == 1);
+        profile.addRoles(in.readStrings());
+        profile.addPermissions(in.readStrings());
+        in.readMap().forEach(profile::addAttribute);
+        in.readMap().forEach(profile::addAuthenticationAttribute);
+        return profile;
+    }
+
+    private UserProfile newProfile(final String className) {
+        final Constructor<? extends UserProfile> constructor = constructors.computeIfAbsent(className,
+                CompactProfileCodec::profileConstructor);
+        try {
+            return constructor.newInstance();
+        } catch (final ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Cannot instantiate profile class " + className, e);
+        }
+    }
+
+    static Constructor<? extends UserProfile> profileConstructor(final String className) {
+        if (!PROFILE_CLASSES.contains(className) && !className.startsWith(ALLOWED_PROFILE_PACKAGE)) {
+            throw new IllegalArgumentException("Profile class not allowed: " + className);
+        }
+        try {
+            final Class<?> profileClass = Class.forName(className, false, CompactProfileCodec.class.getClassLoader());
+            if (!UserProfile.class.isAssignableFrom(profileClass) || profileClass.isInterface()
+                    || Modifier.isAbstract(profileClass.getModifiers())) {
+                throw new IllegalArgumentException("Not a concrete profile class: " + className);
+            }
+            return profileClass.asSubclass(UserProfile.class).getDeclaredConstructor();
+        } catch (final ClassNotFoundException | NoSuchMethodException e) {
+            throw new IllegalArgumentException("Cannot instantiate profile class " + className, e);
+        }
+    }
+
+    private static void writeStrings(final Buffer out, final Collection<String> strings) {
+        writeVarint(out, strings.size());
+        for (final String string : strings) {
+            writeString(out, string);
+        }
+    }
+
+    private static void writeMap(final Buffer out, final Map<?, ?> map) {
+        writeVarint(out, map.size());
+        for (final Map.Entry<?, ?> entry : map.entrySet()) {
+            writeString(out, String.valueOf(entry.getKey()));
+            writeValue(out, entry.getValue());
+        }
+    }
+
+    private static void writeValue(final Buffer out, final Object value) {
+        if (value == null) {
+            out.appendByte(NULL);
+        } else if (value instanceof String) {
+            out.appendByte(STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Boolean) {
+            out.appendByte((Boolean) value ? TRUE : FALSE);
+        } else if (value instanceof Integer) {
+            out.appendByte(INT);
+            writeVarlong(out, zigzag((Integer) value));
+        } else if (value instanceof Long) {
+            out.appendByte(LONG);
+            writeVarlong(out, zigzag((Long) value));
+        } else if (value instanceof Double) {
+            out.appendByte(DOUBLE);
+            out.appendDouble((Double) value);
+        } else if (value.getClass() == Date.class) {
+            out.appendByte(DATE);
+            writeVarlong(out, zigzag(((Date) value).getTime()));
+        } else if (value instanceof URI) {
+            out.appendByte(URI_VALUE);
+            writeString(out, value.toString());
+        } else if (value instanceof byte[]) {
+            out.appendByte(BYTES);
+            writeVarint(out, ((byte[]) value).length);
+            out.appendBytes((byte[]) value);
+        } else if (value instanceof List || value instanceof Set) {
+            final Collection<?> values = (Collection<?>) value;
+            out.appendByte(value instanceof List ? LIST : SET);
+            writeVarint(out, values.size());
+            for (final Object element : values) {
+                writeValue(out, element);
+            }
+        } else if (value instanceof Map) {
+            out.appendByte(MAP);
+            writeMap(out, (Map<?, ?>) value);
+        } else if (value instanceof Serializable) {
+            out.appendByte(JAVA);
+            final byte[] serialized = serialize((Serializable) value);
+            writeVarint(out, serialized.length);
+            out.appendBytes(serialized);
+        } else {
+            throw new IllegalArgumentException("Cannot encode attribute value of type " + value.getClass().getName());
+        }
+    }
+
+    private static void writeNullableString(final Buffer out, final String string) {
+        if (string == null) {
+            out.appendByte(NULL);
+        } else {
+            out.appendByte(STRING);
+            writeString(out, string);
+        }
+    }
+
+    private static void writeString(final Buffer out, final String string) {
+        final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.appendBytes(bytes);
+    }
+
+    private static void writeVarint(final Buffer out, final int value) {
+        writeVarlong(out, value & 0xFFFFFFFFL);
+    }
+
+    private static void writeVarlong(final Buffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.appendByte((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.appendByte((byte) value);
+    }
+
+    private static long zigzag(final long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static byte[] serialize(final Serializable value) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Cannot serialize attribute value of type " + value.getClass().getName(), e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads the encoded profile, checking every length and count against what is left of the buffer, so that a
+     * corrupted or forged encoding fails with an IllegalArgumentException rather than allocating from made up sizes.
+     */
+    private static final class Reader {
+        private final Buffer buffer;
+        private int position;
+
+        private Reader(final Buffer buffer) {
+            this.buffer = buffer;
+        }
+
+        private void require(final long bytes) {
+            if (bytes < 0 || bytes > buffer.length() - position) {
+                throw new IllegalArgumentException("Truncated profile: " + bytes + " bytes needed at " + position
+                        + " of " + buffer.length());
+            }
+        }
+
+        private byte readByte() {
+            require(1);
+            return buffer.getByte(position++);
+        }
+
+        private int readVarint() {
+            final long value = readVarlong();
+            if (value < 0 || value > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Malformed varint at " + position);
+            }
+            return (int) value;
+        }
+
+        /**
+         * @return a count of elements, each taking at least a byte of what is left of the buffer
+         */
+        private int readCount() {
+            final int count = readVarint();
+            require(count);
+            return count;
+        }
+
+        private long readVarlong() {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if (shift > 63) {
+                    throw new IllegalArgumentException("Malformed varint at " + position);
+                }
+                b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+
+        private long readZigzag() {
+            final long value = readVarlong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        private String readString() {
+            final int length = readVarint();
+            require(length);
+            final String string = buffer.getString(position, position + length, StandardCharsets.UTF_8.name());
+            position += length;
+            return string;
+        }
+
+        private String readNullableString() {
+            return readByte() == NULL ? null : readString();
+        }
+
+        private List<String> readStrings() {
+            final int count = readCount();
+            final List<String> strings = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                strings.add(readString());
+            }
+            return strings;
+        }
+
+        private Map<String, Object> readMap() {
+            final int count = readCount();
+            final Map<String, Object> map = new LinkedHashMap<>(Math.max(16, count * 2));
+            for (int i = 0; i < count; i++) {
+                final String key = readString();
+                map.put(key, readValue());
+            }
+            return map;
+        }
+
+        private Object readValue() {
+            final byte tag = readByte();
+            switch (tag) {
+                case NULL:
+                    return null;
+                case STRING:
+                    return readString();
+                case TRUE:
+                    return Boolean.TRUE;
+                case FALSE:
+                    return Boolean.FALSE;
+                case INT:
+                    return (int) readZigzag();
+                case LONG:
+                    return readZigzag();
+                case DOUBLE:
+                    require(Double.BYTES);
+                    final double value = buffer.getDouble(position);
+                    position += Double.BYTES;
+                    return value;
+                case DATE:
+                    return new Date(readZigzag());
+                case URI_VALUE:
+                    return URI.create(readString());
+                case BYTES:
+                    return readBytes();
+                case LIST:
+                case SET:
+                    final int count = readCount();
+                    final Collection<Object> values = tag == LIST ? new ArrayList<>(count) : new LinkedHashSet<>();
+                    for (int i = 0; i < count; i++) {
+                        values.add(readValue());
+                    }
+                    return values;
+                case MAP:
+                    return readMap();
+                case JAVA:
+                    return deserialize(readBytes());
+                default:
+                    throw new IllegalArgumentException("Unknown value tag " + tag + " at " + (position - 1));
+            }
+        }
+
+        private byte[] readBytes() {
+            final int length = readVarint();
+            require(length);
+            final byte[] bytes = buffer.getBytes(position, position + length);
+            position += length;
+            return bytes;
+        }
+
+        private static Object deserialize(final byte[] bytes) {
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                in.setObjectInputFilter(ProfileSerialFilter.INSTANCE);
+                return in.readObject();
+            } catch (final InvalidClassException e) {
+                throw new IllegalArgumentException("Attribute value class not allowed", e);
+            } catch (final IOException e) {
+                throw new UncheckedIOException("Cannot deserialize attribute value", e);
+            } catch (final ClassNotFoundException e) {
+                throw new IllegalArgumentException("Unknown attribute value class", e);
+            }
+        }
+    }
+}
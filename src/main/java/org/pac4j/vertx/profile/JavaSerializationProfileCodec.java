@@ -0,0 +1,50 @@
+package org.pac4j.vertx.profile;
+
+import io.vertx.core.buffer.Buffer;
+import org.pac4j.core.profile.UserProfile;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Codec using plain Java serialization, which is what profiles go through when the session holding them is
+ * replicated or persisted as is. Decoding goes through {@link ProfileSerialFilter}.
+ *
+ * @since 7.0.0
+ */
+public class JavaSerializationProfileCodec implements ProfileCodec {
+
+    @Override
+    public Buffer encode(final UserProfile profile) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(profile);
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Cannot serialize profile " + profile.getId(), e);
+        }
+        return Buffer.buffer(bytes.toByteArray());
+    }
+
+    @Override
+    public UserProfile decode(final Buffer encoded) {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(encoded.getBytes()))) {
+            in.setObjectInputFilter(ProfileSerialFilter.INSTANCE);
+            final Object profile = in.readObject();
+            if (!(profile instanceof UserProfile)) {
+                throw new IllegalArgumentException("Not a profile: " + profile.getClass().getName());
+            }
+            return (UserProfile) profile;
+        } catch (final InvalidClassException e) {
+            throw new IllegalArgumentException("Profile class not allowed", e);
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Cannot deserialize profile", e);
+        } catch (final ClassNotFoundException e) {
+            throw new IllegalArgumentException("Unknown profile class", e);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package org.pac4j.vertx.profile;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import org.pac4j.core.profile.UserProfile;
+
+/**
+ * Turns a user profile into bytes and back, wherever profiles leave the heap (persisted or replicated sessions).
+ * Selected by the "profileCodec" config entry, see {@link #fromConfig(JsonObject)}.
+ *
+ * @since 7.0.0
+ */
+public interface ProfileCodec {
+
+    String CONFIG_KEY = "profileCodec";
+
+    Buffer encode(UserProfile profile);
+
+    UserProfile decode(Buffer encoded);
+
+    /**
+     * @return the codec named by the "profileCodec" config entry: "compact" (the default) or "java"
+     */
+    static ProfileCodec fromConfig(final JsonObject config) {
+        final String name = config.getString(CONFIG_KEY, "compact");
+        switch (name) {
+            case "compact":
+                return new CompactProfileCodec();
+            case "java":
+                return new JavaSerializationProfileCodec();
+            default:
+                throw new IllegalArgumentException("Unknown profile codec " + name);
+        }
+    }
+}
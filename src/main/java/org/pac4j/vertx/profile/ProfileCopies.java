@@ -0,0 +1,61 @@
+package org.pac4j.vertx.profile;
+
+import org.pac4j.core.profile.UserProfile;
+
+import java.lang.reflect.Constructor;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Copies user profiles, for caches handing out a profile per request: pac4j changes the profiles it is given (client
+ * name, roles added by authorization generators...), so a cached profile must never be shared between requests.
+ *
+ * The copy is of the same class and has its own id, client name, linked id, remembered flag, roles, permissions,
+ * attributes and authentication attributes; attribute values themselves are shared, pac4j replacing rather than
+ * changing them. Profile classes without a no-arg constructor are copied by Java serialization.
+ *
+ * @since 7.0.0
+ */
+public final class ProfileCopies {
+
+    private static final Map<Class<?>, Constructor<? extends UserProfile>> CONSTRUCTORS = new ConcurrentHashMap<>();
+    private static final ProfileCodec SERIALIZATION = new JavaSerializationProfileCodec();
+
+    private ProfileCopies() {
+    }
+
+    public static UserProfile copy(final UserProfile profile) {
+        final Constructor<? extends UserProfile> constructor = CONSTRUCTORS.computeIfAbsent(profile.getClass(),
+                ProfileCopies::noArgConstructor);
+        if (constructor == null) {
+            return SERIALIZATION.decode(SERIALIZATION.encode(profile));
+        }
+        final UserProfile copy;
+        try {
+            copy = constructor.newInstance();
+        } catch (final ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot copy profile of class " + profile.getClass().getName(), e);
+        }
+        copy.setId(profile.getId());
+        copy.setClientName(profile.getClientName());
+        copy.setLinkedId(profile.getLinkedId());
+        copy.setRemembered(profile.isRemembered());
+        copy.addRoles(profile.getRoles());
+        copy.addPermissions(profile.getPermissions());
+        copy.addAttributes(profile.getAttributes());
+        copy.addAuthenticationAttributes(profile.getAuthenticationAttributes());
+        return copy;
+    }
+
+    private static Constructor<? extends UserProfile> noArgConstructor(final Class<?> profileClass) {
+        try {
+            final Constructor<? extends UserProfile> constructor =
+                    profileClass.asSubclass(UserProfile.class).getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return constructor;
+        } catch (final NoSuchMethodException | RuntimeException e) {
+            // computeIfAbsent doesn't record nulls, but such classes are rare enough to look up again
+            return null;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package org.pac4j.vertx.profile;
+
+import org.pac4j.core.profile.UserProfile;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Computes a fingerprint of a set of user profiles, changing whenever a profile is added, removed or has its identity,
+ * attributes, roles or permissions changed. Used to identify values derived from a session's profiles only.
+ *
+ * @since 7.0.0
+ */
+public final class ProfileFingerprints {
+
+    private ProfileFingerprints() {
+    }
+
+    /**
+     * @return a SHA-256 digest of the profiles, URL-safe base64 encoded. Attributes, roles and permissions are digested
+     * in sorted order, each value length-prefixed
+     */
+    public static String digest(final List<UserProfile> profiles) {
+        final MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not supported", e);
+        }
+        update(sha256, profiles.size());
+        for (final UserProfile profile : profiles) {
+            update(sha256, profile.getClientName());
+            update(sha256, profile.getTypedId());
+            update(sha256, profile.getAttributes());
+            update(sha256, profile.getAuthenticationAttributes());
+            update(sha256, new TreeSet<>(profile.getRoles()));
+            update(sha256, new TreeSet<>(profile.getPermissions()));
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(sha256.digest());
+    }
+
+    private static void update(final MessageDigest digest, final Map<String, Object> values) {
+        update(digest, values.size());
+        for (final Map.Entry<String, Object> entry : new TreeMap<>(values).entrySet()) {
+            update(digest, entry.getKey());
+            update(digest, String.valueOf(entry.getValue()));
+        }
+    }
+
+    private static void update(final MessageDigest digest, final TreeSet<String> values) {
+        update(digest, values.size());
+        values.forEach(value -> update(digest, value));
+    }
+
+    private static void update(final MessageDigest digest, final String value) {
+        final byte[] bytes = String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+        update(digest, bytes.length);
+        digest.update(bytes);
+    }
+
+    private static void update(final MessageDigest digest, final int value) {
+        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(value).array());
+    }
+}
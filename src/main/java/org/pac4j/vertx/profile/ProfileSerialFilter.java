@@ -0,0 +1,21 @@
+package org.pac4j.vertx.profile;
+
+import java.io.ObjectInputFilter;
+
+/**
+ * Deserialization filter for whatever the profile codecs read back with Java serialization: only the JDK value types,
+ * pac4j classes and the nimbus/json-smart types OIDC and JWT profiles hold are accepted, within size and depth limits,
+ * so that stored bytes can't instantiate arbitrary classes.
+ *
+ * @since 7.0.0
+ */
+public final class ProfileSerialFilter {
+
+    public static final ObjectInputFilter INSTANCE = ObjectInputFilter.Config.createFilter(
+            "maxdepth=20;maxrefs=100000;maxbytes=1048576;maxarray=1048576;"
+                    + "java.lang.*;java.util.*;java.time.*;java.math.*;java.net.URI;"
+                    + "org.pac4j.**;com.nimbusds.**;net.minidev.json.*;!*");
+
+    private ProfileSerialFilter() {
+    }
+}
@@ -0,0 +1,75 @@
+package org.pac4j.vertx.saml;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What the demo needs of one entity of a SAML metadata file, extracted once when the file is parsed: its roles, single
+ * sign on endpoints by binding and signing certificates, and for an identity provider its EntityDescriptor, from which
+ * the SAML client reads its metadata.
+ *
+ * @since 7.0.0
+ */
+public final class EntityMetadata {
+
+    private final String entityId;
+    private final String source;
+    private final boolean identityProvider;
+    private final boolean serviceProvider;
+    private final Map<String, String> singleSignOnServices;
+    private final List<String> signingCertificates;
+    private final String descriptor;
+
+    EntityMetadata(final String entityId, final String source, final boolean identityProvider,
+                   final boolean serviceProvider, final Map<String, String> singleSignOnServices,
+                   final List<String> signingCertificates, final String descriptor) {
+        this.entityId = entityId;
+        this.source = source;
+        this.identityProvider = identityProvider;
+        this.serviceProvider = serviceProvider;
+        this.singleSignOnServices = Collections.unmodifiableMap(singleSignOnServices);
+        this.signingCertificates = Collections.unmodifiableList(signingCertificates);
+        this.descriptor = descriptor;
+    }
+
+    public String getEntityId() {
+        return entityId;
+    }
+
+    /**
+     * @return the file the entity was read from
+     */
+    public String getSource() {
+        return source;
+    }
+
+    public boolean isIdentityProvider() {
+        return identityProvider;
+    }
+
+    public boolean isServiceProvider() {
+        return serviceProvider;
+    }
+
+    /**
+     * @return the identity provider's single sign on locations by binding URI, empty for a service provider
+     */
+    public Map<String, String> getSingleSignOnServices() {
+        return singleSignOnServices;
+    }
+
+    /**
+     * @return the Base64 DER encoded certificates usable for signing, whitespace removed
+     */
+    public List<String> getSigningCertificates() {
+        return signingCertificates;
+    }
+
+    /**
+     * @return the EntityDescriptor of an identity provider as a standalone XML document, null for a service provider
+     */
+    public String getDescriptor() {
+        return descriptor;
+    }
+}
@@ -0,0 +1,194 @@
+package org.pac4j.vertx.saml;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable index of the entities of a set of SAML metadata files, by entityID. Files holding an EntitiesDescriptor are
+ * split into their entities, so looking one up is a single map access rather than a walk through the whole file, and
+ * the descriptor of an identity provider can be handed to the SAML client without the rest of its file.
+ *
+ * Files are parsed with DTDs and external entities disabled.
+ *
+ * @since 7.0.0
+ */
+public final class IdpMetadataIndex {
+
+    public static final String METADATA_NS = "urn:oasis:names:tc:SAML:2.0:metadata";
+    public static final String XMLDSIG_NS = "http://www.w3.org/2000/09/xmldsig#";
+
+    private static final IdpMetadataIndex EMPTY = new IdpMetadataIndex(Collections.emptyMap());
+
+    private final Map<String, EntityMetadata> entities;
+
+    private IdpMetadataIndex(final Map<String, EntityMetadata> entities) {
+        this.entities = Collections.unmodifiableMap(entities);
+    }
+
+    public static IdpMetadataIndex empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Parses the given files. An entityID found in several files is taken from the last one.
+     */
+    public static IdpMetadataIndex parse(final Collection<Path> files) throws IOException {
+        final DocumentBuilder builder = documentBuilder();
+        final Map<String, EntityMetadata> entities = new LinkedHashMap<>();
+        for (final Path file : files) {
+            try (InputStream in = Files.newInputStream(file)) {
+                parse(builder, in, file.toString()).forEach(entity -> entities.put(entity.getEntityId(), entity));
+            }
+        }
+        return new IdpMetadataIndex(entities);
+    }
+
+    /**
+     * @return the entities of one metadata document, whether a single EntityDescriptor or an EntitiesDescriptor
+     */
+    public static List<EntityMetadata> parse(final InputStream in, final String source) throws IOException {
+        return parse(documentBuilder(), in, source);
+    }
+
+    public EntityMetadata get(final String entityId) {
+        return entities.get(entityId);
+    }
+
+    public Set<String> entityIds() {
+        return entities.keySet();
+    }
+
+    public int size() {
+        return entities.size();
+    }
+
+    private static List<EntityMetadata> parse(final DocumentBuilder builder, final InputStream in, final String source)
+            throws IOException {
+        final NodeList descriptors;
+        try {
+            descriptors = builder.parse(in).getElementsByTagNameNS(METADATA_NS, "EntityDescriptor");
+        } catch (final SAXException e) {
+            throw new IOException("Invalid SAML metadata in " + source, e);
+        } finally {
+            builder.reset();
+        }
+
+        final List<EntityMetadata> entities = new ArrayList<>(descriptors.getLength());
+        for (int i = 0; i < descriptors.getLength(); i++) {
+            final Element descriptor = (Element) descriptors.item(i);
+            final String entityId = descriptor.getAttribute("entityID");
+            if (entityId.isEmpty()) {
+                throw new IOException("EntityDescriptor without entityID in " + source);
+            }
+            final List<Element> idpDescriptors = children(descriptor, "IDPSSODescriptor");
+            final boolean serviceProvider = !children(descriptor, "SPSSODescriptor").isEmpty();
+
+            final Map<String, String> singleSignOnServices = new LinkedHashMap<>();
+            final List<String> signingCertificates = new ArrayList<>();
+            for (final Element idpDescriptor : idpDescriptors) {
+                for (final Element sso : children(idpDescriptor, "SingleSignOnService")) {
+                    singleSignOnServices.putIfAbsent(sso.getAttribute("Binding"), sso.getAttribute("Location"));
+                }
+                for (final Element keyDescriptor : children(idpDescriptor, "KeyDescriptor")) {
+                    final String use = keyDescriptor.getAttribute("use");
+                    if (use.isEmpty() || "signing".equals(use)) {
+                        final NodeList certificates = keyDescriptor.getElementsByTagNameNS(XMLDSIG_NS, "X509Certificate");
+                        for (int c = 0; c < certificates.getLength(); c++) {
+                            signingCertificates.add(certificates.item(c).getTextContent().replaceAll("\\s", ""));
+                        }
+                    }
+                }
+            }
+            entities.add(new EntityMetadata(entityId, source, !idpDescriptors.isEmpty(), serviceProvider,
+                    singleSignOnServices, signingCertificates,
+                    idpDescriptors.isEmpty() ? null : serialize(descriptor, source)));
+        }
+        return entities;
+    }
+
+    /**
+     * Writes the descriptor as a document of its own, with the namespaces it inherits from an enclosing
+     * EntitiesDescriptor declared on it.
+     */
+    private static String serialize(final Element descriptor, final String source) throws IOException {
+        final Element standalone = (Element) descriptor.cloneNode(true);
+        for (Node parent = descriptor.getParentNode(); parent instanceof Element; parent = parent.getParentNode()) {
+            final NamedNodeMap attributes = parent.getAttributes();
+            for (int i = 0; i < attributes.getLength(); i++) {
+                final Attr attribute = (Attr) attributes.item(i);
+                if (XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(attribute.getNamespaceURI())
+                        && !standalone.hasAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, attribute.getLocalName())) {
+                    standalone.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, attribute.getName(),
+                            attribute.getValue());
+                }
+            }
+        }
+        final StringWriter xml = new StringWriter(4096);
+        try {
+            final TransformerFactory factory = TransformerFactory.newInstance();
+            factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+            factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_STYLESHEET, "");
+            final Transformer transformer = factory.newTransformer();
+            transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+            transformer.transform(new DOMSource(standalone), new StreamResult(xml));
+        } catch (final TransformerConfigurationException e) {
+            throw new IllegalStateException("Cannot create an XML serializer", e);
+        } catch (final TransformerException e) {
+            throw new IOException("Cannot write the descriptor of " + descriptor.getAttribute("entityID")
+                    + " from " + source, e);
+        }
+        return xml.toString();
+    }
+
+    private static List<Element> children(final Element parent, final String localName) {
+        final List<Element> children = new ArrayList<>();
+        for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child instanceof Element && METADATA_NS.equals(child.getNamespaceURI())
+                    && localName.equals(child.getLocalName())) {
+                children.add((Element) child);
+            }
+        }
+        return children;
+    }
+
+    private static DocumentBuilder documentBuilder() {
+        try {
+            final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            factory.setExpandEntityReferences(false);
+            return factory.newDocumentBuilder();
+        } catch (final ParserConfigurationException e) {
+            throw new IllegalStateException("Cannot create a secure XML parser", e);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package org.pac4j.vertx.saml;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.Shareable;
+import org.pac4j.core.client.Client;
+import org.pac4j.core.client.Clients;
+import org.pac4j.core.config.Config;
+import org.pac4j.core.util.InitializableObject;
+import org.pac4j.vertx.SharedInstances;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Holds the {@link IdpMetadataIndex} of the configured SAML metadata files and keeps it up to date: the files, and the
+ * SP keystore, are checked for changes periodically on a worker thread. A changed file is parsed into a new index
+ * which then replaces the current one in a single volatile write, so lookups never wait for a reload nor see a half
+ * built index. A file which no longer parses is logged and the current index kept; it is parsed again at the next
+ * check.
+ *
+ * The SAML clients registered with {@link #rebuildOnChange(Config, Supplier)} pick up the new metadata or keystore
+ * without a restart: after each change a new client is built and initialized on the worker thread, then swapped into
+ * the config along with a new {@link Clients}. The client in use is never re-initialized, so requests running through
+ * it are not disturbed.
+ *
+ * Configured by the "samlMetadata" config object: "files", "keystore", "watchIntervalMs" (0 disables watching) and
+ * "idpEntityId", the identity provider of the SAML client, whose metadata is then taken from the index.
+ * One registry is shared by all verticle instances, see {@link #shared(Vertx, JsonObject)}.
+ *
+ * @since 7.0.0
+ */
+public class IdpMetadataRegistry implements Shareable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IdpMetadataRegistry.class);
+
+    public static final String CONFIG_KEY = "samlMetadata";
+    public static final String IDP_ENTITY_ID = "idpEntityId";
+    public static final long DEFAULT_WATCH_INTERVAL_MS = 5000;
+
+
+    private final List<Path> metadataFiles;
+    private final List<Path> watchedFiles;
+    private final long watchIntervalMs;
+    private final Map<Config, Supplier<? extends Client>> clientFactories = new ConcurrentHashMap<>();
+    private final AtomicBoolean watching = new AtomicBoolean();
+    private final AtomicBoolean reloading = new AtomicBoolean();
+
+    private volatile IdpMetadataIndex index = IdpMetadataIndex.empty();
+    private volatile Map<Path, String> stamps = Collections.emptyMap();
+
+    public IdpMetadataRegistry(final List<Path> metadataFiles, final Path keystore, final long watchIntervalMs) {
+        this.metadataFiles = new ArrayList<>(metadataFiles);
+        this.watchedFiles = new ArrayList<>(metadataFiles);
+        if (keystore != null) {
+            watchedFiles.add(keystore);
+        }
+        this.watchIntervalMs = watchIntervalMs;
+    }
+
+    public static IdpMetadataRegistry fromConfig(final JsonObject config) {
+        final JsonObject conf = config.getJsonObject(CONFIG_KEY, new JsonObject());
+        final List<Path> files = conf.getJsonArray("files", new JsonArray()).stream()
+                .map(file -> Paths.get(file.toString()))
+                .collect(Collectors.toList());
+        final String keystore = conf.getString("keystore");
+        return new IdpMetadataRegistry(files, keystore != null ? Paths.get(keystore) : null,
+                conf.getLong("watchIntervalMs", DEFAULT_WATCH_INTERVAL_MS));
+    }
+
+    /**
+     * @return the registry shared by every verticle of this vert.x instance, created and loaded from the given config
+     * by the first caller
+     */
+    public static IdpMetadataRegistry shared(final Vertx vertx, final JsonObject config) {
+        return SharedInstances.getOrCreate(vertx, IdpMetadataRegistry.class, () -> {
+            final IdpMetadataRegistry created = fromConfig(config);
+            created.reloadIfChanged();
+            return created;
+        });
+    }
+
+    public IdpMetadataIndex index() {
+        return index;
+    }
+
+    public EntityMetadata lookup(final String entityId) {
+        return index.get(entityId);
+    }
+
+    /**
+     * Replaces the client of the given config built by the factory, matched by name, with a new one after each change
+     * of the files. A config registered by several verticles is rebuilt once.
+     */
+    public void rebuildOnChange(final Config config, final Supplier<? extends Client> clientFactory) {
+        clientFactories.putIfAbsent(config, clientFactory);
+    }
+
+    /**
+     * Starts checking the files for changes, unless already started by another verticle or disabled.
+     */
+    public void watch(final Vertx vertx) {
+        if (watchIntervalMs <= 0 || !watching.compareAndSet(false, true)) {
+            return;
+        }
+        vertx.setPeriodic(watchIntervalMs, id -> {
+            if (reloading.compareAndSet(false, true)) {
+                vertx.executeBlocking(this::reloadIfChanged, false)
+                        .onComplete(done -> reloading.set(false));
+            }
+        });
+    }
+
+    /**
+     * Blocking: parses the files again and swaps in the new index if any of them changed since the last check.
+     *
+     * @return whether the files had changed
+     */
+    public boolean reloadIfChanged() {
+        final Map<Path, String> current = stamp(watchedFiles);
+        final Map<Path, String> previous = stamps;
+        if (current.equals(previous)) {
+            return false;
+        }
+
+        final boolean metadataChanged = metadataFiles.stream()
+                .anyMatch(file -> !Objects.equals(current.get(file), previous.get(file)));
+        if (metadataChanged) {
+            final long start = System.nanoTime();
+            try {
+                index = IdpMetadataIndex.parse(metadataFiles.stream().filter(Files::isReadable).collect(Collectors.toList()));
+                LOG.info("Indexed " + index.size() + " SAML entities in "
+                        + TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start) + " us");
+            } catch (final IOException | RuntimeException e) {
+                LOG.warn("Failed to reload SAML metadata, keeping the previous entities", e);
+                return true;
+            }
+        }
+        // only once parsed, so that a file failing to parse is tried again at the next check
+        stamps = current;
+        if (!previous.isEmpty()) {
+            clientFactories.forEach(this::rebuild);
+        }
+        return true;
+    }
+
+    private void rebuild(final Config config, final Supplier<? extends Client> clientFactory) {
+        try {
+            final Client client = clientFactory.get();
+            if (client instanceof InitializableObject) {
+                ((InitializableObject) client).init();
+            }
+            final Clients current = config.getClients();
+            final List<Client> clients = new ArrayList<>();
+            for (final Client existing : current.getClients()) {
+                clients.add(existing.getName().equals(client.getName()) ? client : existing);
+            }
+            final Clients rebuilt = new Clients(current.getCallbackUrl(), clients);
+            rebuilt.setDefaultSecurityClients(current.getDefaultSecurityClients());
+            rebuilt.init();
+            config.setClients(rebuilt);
+            LOG.info("Swapped in a new " + client.getName() + " after a SAML metadata or keystore change");
+        } catch (final RuntimeException e) {
+            LOG.warn("Failed to rebuild the SAML client after a metadata or keystore change, keeping the current one", e);
+        }
+    }
+
+    private static Map<Path, String> stamp(final List<Path> files) {
+        final Map<Path, String> stamps = new HashMap<>();
+        for (final Path file : files) {
+            try {
+                stamps.put(file, Files.getLastModifiedTime(file).toMillis() + ":" + Files.size(file));
+            } catch (final IOException e) {
+                stamps.put(file, "missing");
+            }
+        }
+        return stamps;
+    }
+}
@@ -0,0 +1,106 @@
+package org.pac4j.vertx.session;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.Session;
+import io.vertx.ext.web.sstore.SessionStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * Session store keeping the sessions of its delegate within a {@link SessionBudget}: the size of each stored session
+ * is estimated, see {@link SessionSizeEstimator}, and the least recently used sessions are deleted whenever the
+ * budget is exceeded. Reads and writes are otherwise passed on unchanged. Evicted sessions are deleted without
+ * delaying the write that evicted them; a failed deletion is logged and counted, the session then staying in the
+ * delegate until it expires.
+ *
+ * @since 7.0.0
+ */
+public class BoundedSessionStore implements SessionStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BoundedSessionStore.class);
+
+    private final SessionStore delegate;
+    private final SessionBudget budget;
+
+    public BoundedSessionStore(final SessionStore delegate, final SessionBudget budget) {
+        this.delegate = delegate;
+        this.budget = budget;
+    }
+
+    @Override
+    public SessionStore init(final Vertx vertx, final JsonObject options) {
+        delegate.init(vertx, options);
+        return this;
+    }
+
+    @Override
+    public long retryTimeout() {
+        return delegate.retryTimeout();
+    }
+
+    @Override
+    public Session createSession(final long timeout) {
+        return delegate.createSession(timeout);
+    }
+
+    @Override
+    public Session createSession(final long timeout, final int length) {
+        return delegate.createSession(timeout, length);
+    }
+
+    @Override
+    public Future<Session> get(final String cookieValue) {
+        return delegate.get(cookieValue).onSuccess(session -> {
+            if (session != null) {
+                budget.accessed(session.id());
+            } else {
+                budget.removed(cookieValue);
+            }
+        });
+    }
+
+    @Override
+    public Future<Void> delete(final String id) {
+        budget.removed(id);
+        return delegate.delete(id);
+    }
+
+    @Override
+    public Future<Void> put(final Session session) {
+        final List<String> evicted = budget.stored(session.id(), SessionSizeEstimator.estimate(session), session.timeout());
+        for (final String id : evicted) {
+            delegate.delete(id).onFailure(this::evictionFailed);
+        }
+        return delegate.put(session);
+    }
+
+    @Override
+    public Future<Void> clear() {
+        budget.clear();
+        return delegate.clear();
+    }
+
+    @Override
+    public Future<Integer> size() {
+        return delegate.size();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    private void evictionFailed(final Throwable failure) {
+        budget.evictionFailed();
+        // session ids are credentials, so the session isn't named
+        LOG.warn("Failed to delete an evicted session, it stays in the store until it expires", failure);
+    }
+
+    public SessionBudget budget() {
+        return budget;
+    }
+}
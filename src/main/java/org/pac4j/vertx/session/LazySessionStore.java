@@ -0,0 +1,91 @@
+package org.pac4j.vertx.session;
+
+import io.vertx.ext.web.RoutingContext;
+import io.vertx.ext.web.Session;
+import io.vertx.ext.web.handler.SessionHandler;
+import org.pac4j.core.context.WebContext;
+import org.pac4j.vertx.VertxWebContext;
+import org.pac4j.vertx.context.session.VertxSessionStore;
+
+import java.util.Optional;
+
+/**
+ * pac4j session store creating the vert.x session on its first write, to be used along with a lazy
+ * {@link SessionHandler}. A request has a session once it carries a session cookie or something has been written to
+ * it; until then reads find nothing and the session is never created, so anonymous visits to any page touch neither
+ * the session store nor cookies.
+ *
+ * @since 7.0.0
+ */
+public class LazySessionStore extends VertxSessionStore {
+
+    private static final String WRITTEN = LazySessionStore.class.getName() + ".written";
+
+    public LazySessionStore(final io.vertx.ext.web.sstore.SessionStore sessionStore) {
+        super(sessionStore);
+    }
+
+    /**
+     * The session of the request, or null when it has none yet: getting {@link RoutingContext#session()} from a lazy
+     * session handler would create it.
+     */
+    public static Session existingSession(final RoutingContext rc) {
+        return hasSession(rc) ? rc.session() : null;
+    }
+
+    @Override
+    public Optional<String> getSessionId(final WebContext context, final boolean createSession) {
+        if (createSession) {
+            markWritten(context);
+        } else if (!hasSession(context)) {
+            return Optional.empty();
+        }
+        return super.getSessionId(context, createSession);
+    }
+
+    @Override
+    public Optional<Object> get(final WebContext context, final String key) {
+        return hasSession(context) ? super.get(context, key) : Optional.empty();
+    }
+
+    @Override
+    public void set(final WebContext context, final String key, final Object value) {
+        if (value != null) {
+            markWritten(context);
+        } else if (!hasSession(context)) {
+            return;
+        }
+        super.set(context, key, value);
+    }
+
+    @Override
+    public boolean destroySession(final WebContext context) {
+        return hasSession(context) && super.destroySession(context);
+    }
+
+    @Override
+    public Optional<Object> getTrackableSession(final WebContext context) {
+        return hasSession(context) ? super.getTrackableSession(context) : Optional.empty();
+    }
+
+    @Override
+    public boolean renewSession(final WebContext context) {
+        return hasSession(context) && super.renewSession(context);
+    }
+
+    private static boolean hasSession(final WebContext context) {
+        return hasSession(routingContext(context));
+    }
+
+    private static boolean hasSession(final RoutingContext rc) {
+        return rc.get(WRITTEN) != null || rc.request().getCookie(SessionHandler.DEFAULT_SESSION_COOKIE_NAME) != null;
+    }
+
+    private static void markWritten(final WebContext context) {
+        routingContext(context).put(WRITTEN, Boolean.TRUE);
+    }
+
+    private static RoutingContext routingContext(final WebContext context) {
+        return ((VertxWebContext) context).getVertxRoutingContext();
+    }
+}
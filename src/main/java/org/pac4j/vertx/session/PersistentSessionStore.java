@@ -0,0 +1,77 @@
+package org.pac4j.vertx.session;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.Session;
+import io.vertx.ext.web.sstore.SessionStore;
+
+/**
+ * Session store serving sessions from its in-memory delegate, and queueing every change for the write-behind
+ * {@link SessionPersistence}.
+ *
+ * @since 7.0.0
+ */
+public class PersistentSessionStore implements SessionStore {
+
+    private final SessionStore delegate;
+    private final SessionPersistence persistence;
+
+    public PersistentSessionStore(final SessionStore delegate, final SessionPersistence persistence) {
+        this.delegate = delegate;
+        this.persistence = persistence;
+    }
+
+    @Override
+    public SessionStore init(final Vertx vertx, final JsonObject options) {
+        delegate.init(vertx, options);
+        return this;
+    }
+
+    @Override
+    public long retryTimeout() {
+        return delegate.retryTimeout();
+    }
+
+    @Override
+    public Session createSession(final long timeout) {
+        return delegate.createSession(timeout);
+    }
+
+    @Override
+    public Session createSession(final long timeout, final int length) {
+        return delegate.createSession(timeout, length);
+    }
+
+    @Override
+    public Future<Session> get(final String cookieValue) {
+        return delegate.get(cookieValue);
+    }
+
+    @Override
+    public Future<Void> delete(final String id) {
+        persistence.deleted(id);
+        return delegate.delete(id);
+    }
+
+    @Override
+    public Future<Void> put(final Session session) {
+        return delegate.put(session).onSuccess(stored -> persistence.written(session));
+    }
+
+    @Override
+    public Future<Void> clear() {
+        persistence.cleared();
+        return delegate.clear();
+    }
+
+    @Override
+    public Future<Integer> size() {
+        return delegate.size();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
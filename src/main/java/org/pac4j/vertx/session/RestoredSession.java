@@ -0,0 +1,23 @@
+package org.pac4j.vertx.session;
+
+import io.vertx.ext.web.sstore.impl.SharedDataSessionImpl;
+
+import java.util.Map;
+
+/**
+ * A session read back from the database, keeping its id so the session cookies handed out before a restart stay
+ * valid. It is a shared data session, the kind the local session store holds.
+ *
+ * @since 7.0.0
+ */
+class RestoredSession extends SharedDataSessionImpl {
+
+    RestoredSession(final String id, final long timeout, final long lastAccessed, final Map<String, Object> data) {
+        setId(id);
+        setTimeout(timeout);
+        setLastAccessed(lastAccessed);
+        for (final Map.Entry<String, Object> entry : data.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+}
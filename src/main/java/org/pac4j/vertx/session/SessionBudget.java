@@ -0,0 +1,233 @@
+package org.pac4j.vertx.session;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.Shareable;
+import org.pac4j.vertx.SharedInstances;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Accounting of the sessions held by the session store: the estimated size of each one, kept in least recently used
+ * order, and their total. Once storing a session takes the store over "maxSessions" sessions or "maxBytes" estimated
+ * bytes, the least recently used sessions are picked for eviction. A limit of 0 means unlimited.
+ *
+ * Every event loop reads sessions, so reads don't wait for each other: a session read renews its expiry without any
+ * lock, and only moves up the recency order when no other thread holds the lock, making the order approximate under
+ * contention. Storing and removing sessions are accounted exactly, under the lock. The metrics are read without it.
+ *
+ * Configured by the "sessionLimits" config object. One budget is shared by all verticle instances, as their session
+ * stores share the same sessions, see {@link #shared(Vertx, JsonObject)}.
+ *
+ * @since 7.0.0
+ */
+public class SessionBudget implements Shareable {
+
+    public static final String CONFIG_KEY = "sessionLimits";
+
+
+    private final int maxSessions;
+    private final long maxBytes;
+    private final ReentrantLock lock = new ReentrantLock();
+    // guarded by the lock, in least recently used order
+    private final LinkedHashMap<String, Entry> sessions = new LinkedHashMap<>(16, 0.75f, true);
+    // the same entries, read without the lock
+    private final Map<String, Entry> index = new ConcurrentHashMap<>();
+    // written under the lock
+    private volatile long totalBytes;
+    private volatile long maxSessionBytes;
+    private volatile long evictions;
+    private final LongAdder evictionFailures = new LongAdder();
+
+    public SessionBudget(final int maxSessions, final long maxBytes) {
+        this.maxSessions = maxSessions;
+        this.maxBytes = maxBytes;
+    }
+
+    public static SessionBudget fromConfig(final JsonObject config) {
+        final JsonObject conf = config.getJsonObject(CONFIG_KEY, new JsonObject());
+        return new SessionBudget(conf.getInteger("maxSessions", 0), conf.getLong("maxBytes", 0L));
+    }
+
+    /**
+     * @return the budget shared by every verticle of this vert.x instance, created from the given config by the
+     * first caller
+     */
+    public static SessionBudget shared(final Vertx vertx, final JsonObject config) {
+        return SharedInstances.getOrCreate(vertx, SessionBudget.class, () -> fromConfig(config));
+    }
+
+    public boolean isBounded() {
+        return maxSessions > 0 || maxBytes > 0;
+    }
+
+    /**
+     * Records a session being stored.
+     *
+     * @return the ids of the sessions to evict to make room for it, never including it
+     */
+    public List<String> stored(final String id, final long bytes, final long timeoutMillis) {
+        final long now = System.currentTimeMillis();
+        final Entry stored = new Entry(bytes, timeoutMillis, now + timeoutMillis);
+        lock.lock();
+        try {
+            final Entry previous = sessions.put(id, stored);
+            index.put(id, stored);
+            totalBytes += bytes - (previous != null ? previous.bytes : 0);
+            maxSessionBytes = Math.max(maxSessionBytes, bytes);
+            forgetExpired(now);
+
+            List<String> evicted = Collections.emptyList();
+            final Iterator<Map.Entry<String, Entry>> eldest = sessions.entrySet().iterator();
+            while (overBudget() && eldest.hasNext()) {
+                final Map.Entry<String, Entry> candidate = eldest.next();
+                if (candidate.getKey().equals(id)) {
+                    break;
+                }
+                eldest.remove();
+                index.remove(candidate.getKey());
+                totalBytes -= candidate.getValue().bytes;
+                evictions++;
+                if (evicted.isEmpty()) {
+                    evicted = new ArrayList<>();
+                }
+                evicted.add(candidate.getKey());
+            }
+            return evicted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void accessed(final String id) {
+        final Entry entry = index.get(id);
+        if (entry == null) {
+            return;
+        }
+        entry.expiresAt = System.currentTimeMillis() + entry.timeoutMillis;
+        if (lock.tryLock()) {
+            try {
+                // moves it up the recency order, if it is still there
+                sessions.get(id);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    public void removed(final String id) {
+        if (!index.containsKey(id)) {
+            return;
+        }
+        lock.lock();
+        try {
+            final Entry entry = sessions.remove(id);
+            index.remove(id);
+            if (entry != null) {
+                totalBytes -= entry.bytes;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            sessions.clear();
+            index.clear();
+            totalBytes = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records that deleting an evicted session failed, leaving it in the store until it expires.
+     */
+    public void evictionFailed() {
+        evictionFailures.increment();
+    }
+
+    /**
+     * @return the estimated size of the given session when last stored, or -1 if it isn't known
+     */
+    public long sessionBytes(final String id) {
+        final Entry entry = index.get(id);
+        return entry != null ? entry.bytes : -1;
+    }
+
+    public long totalBytes() {
+        return totalBytes;
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    public long evictions() {
+        return evictions;
+    }
+
+    public long evictionFailures() {
+        return evictionFailures.sum();
+    }
+
+    public String toPrometheus() {
+        return "# HELP pac4j_sessions Sessions held by the session store\n"
+                + "# TYPE pac4j_sessions gauge\n"
+                + "pac4j_sessions " + index.size() + '\n'
+                + "# HELP pac4j_sessions_bytes Estimated heap retained by the stored sessions\n"
+                + "# TYPE pac4j_sessions_bytes gauge\n"
+                + "pac4j_sessions_bytes " + totalBytes + '\n'
+                + "# HELP pac4j_session_bytes_max Largest estimated size of a stored session\n"
+                + "# TYPE pac4j_session_bytes_max gauge\n"
+                + "pac4j_session_bytes_max " + maxSessionBytes + '\n'
+                + "# HELP pac4j_session_evictions_total Sessions evicted to stay within the session limits\n"
+                + "# TYPE pac4j_session_evictions_total counter\n"
+                + "pac4j_session_evictions_total " + evictions + '\n'
+                + "# HELP pac4j_session_eviction_failures_total Evicted sessions the session store failed to delete\n"
+                + "# TYPE pac4j_session_eviction_failures_total counter\n"
+                + "pac4j_session_eviction_failures_total " + evictionFailures.sum() + '\n';
+    }
+
+    private boolean overBudget() {
+        return (maxSessions > 0 && sessions.size() > maxSessions) || (maxBytes > 0 && totalBytes > maxBytes);
+    }
+
+    /**
+     * Forgets the least recently used sessions the store has already expired, as it doesn't say when it does.
+     */
+    private void forgetExpired(final long now) {
+        final Iterator<Map.Entry<String, Entry>> eldest = sessions.entrySet().iterator();
+        while (eldest.hasNext()) {
+            final Map.Entry<String, Entry> entry = eldest.next();
+            if (entry.getValue().expiresAt > now) {
+                return;
+            }
+            eldest.remove();
+            index.remove(entry.getKey());
+            totalBytes -= entry.getValue().bytes;
+        }
+    }
+
+    private static final class Entry {
+        private final long bytes;
+        private final long timeoutMillis;
+        private volatile long expiresAt;
+
+        private Entry(final long bytes, final long timeoutMillis, final long expiresAt) {
+            this.bytes = bytes;
+            this.timeoutMillis = timeoutMillis;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
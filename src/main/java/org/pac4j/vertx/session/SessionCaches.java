@@ -0,0 +1,50 @@
+package org.pac4j.vertx.session;
+
+import io.vertx.core.Handler;
+import io.vertx.ext.web.RoutingContext;
+import io.vertx.ext.web.Session;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Values cached in the vert.x session because they are derived from its profiles (authorization decisions, ...). They
+ * are all stored under keys starting with {@link #KEY_PREFIX}, so they can be dropped whenever the profiles change,
+ * which also bumps the session's profile set version stored under {@link #PROFILES_VERSION_KEY}.
+ *
+ * @since 7.0.0
+ */
+public final class SessionCaches {
+
+    public static final String KEY_PREFIX = "pac4j-demo.cache.";
+    public static final String PROFILES_VERSION_KEY = "pac4j-demo.profilesVersion";
+
+    private SessionCaches() {
+    }
+
+    public static void invalidate(final Session session) {
+        final List<String> keys = new ArrayList<>();
+        for (final String key : session.data().keySet()) {
+            if (key.startsWith(KEY_PREFIX)) {
+                keys.add(key);
+            }
+        }
+        keys.forEach(session::remove);
+        final Integer version = session.get(PROFILES_VERSION_KEY);
+        session.put(PROFILES_VERSION_KEY, version == null ? 1 : version + 1);
+    }
+
+    /**
+     * Handler dropping the session caches before passing on the request, to be routed in front of any handler
+     * changing the session's profiles (callback, logout).
+     */
+    public static Handler<RoutingContext> invalidationHandler() {
+        return rc -> {
+            final Session session = LazySessionStore.existingSession(rc);
+            if (session != null) {
+                invalidate(session);
+            }
+            rc.next();
+        };
+    }
+}
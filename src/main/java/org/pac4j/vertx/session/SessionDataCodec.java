@@ -0,0 +1,181 @@
+package org.pac4j.vertx.session;
+
+import io.vertx.core.buffer.Buffer;
+import org.pac4j.core.profile.UserProfile;
+import org.pac4j.vertx.profile.ProfileCodec;
+import org.pac4j.vertx.profile.ProfileSerialFilter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Encodes the data of a session for persistence. Profiles, whether alone or in the map of profiles pac4j keeps in the
+ * session, go through the configured {@link ProfileCodec}; strings are written as is and any other serializable value
+ * (requested URLs, CSRF tokens...) is Java serialized. Entries under {@link SessionCaches#KEY_PREFIX} are skipped, as
+ * are values which can't be serialized: they are derived data the demo can do without. Serialized values are read
+ * back through {@link ProfileSerialFilter}.
+ *
+ * Layout: magic 'S', version 1, entry count, then for each entry its key, a tag and the value, lengths and counts
+ * being 4 byte ints.
+ *
+ * @since 7.0.0
+ */
+public class SessionDataCodec {
+
+    private static final byte MAGIC = 'S';
+    private static final byte VERSION = 1;
+
+    private static final byte STRING = 1;
+    private static final byte PROFILE = 2;
+    private static final byte PROFILES = 3;
+    private static final byte JAVA = 4;
+
+    private final ProfileCodec profileCodec;
+
+    public SessionDataCodec(final ProfileCodec profileCodec) {
+        this.profileCodec = profileCodec;
+    }
+
+    public byte[] encode(final Map<String, Object> data) {
+        final Buffer entries = Buffer.buffer(512);
+        int count = 0;
+        for (final Map.Entry<String, Object> entry : data.entrySet()) {
+            if (entry.getKey().startsWith(SessionCaches.KEY_PREFIX) || !isEncodable(entry.getValue())) {
+                continue;
+            }
+            writeString(entries, entry.getKey());
+            writeValue(entries, entry.getValue());
+            count++;
+        }
+        return Buffer.buffer(entries.length() + 6)
+                .appendByte(MAGIC).appendByte(VERSION).appendInt(count)
+                .appendBuffer(entries)
+                .getBytes();
+    }
+
+    public Map<String, Object> decode(final byte[] encoded) {
+        final Buffer in = Buffer.buffer(encoded);
+        if (in.getByte(0) != MAGIC || in.getByte(1) != VERSION) {
+            throw new IllegalArgumentException("Unsupported session data encoding");
+        }
+        final int count = in.getInt(2);
+        final int[] position = {6};
+        final Map<String, Object> data = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            final String key = readString(in, position);
+            data.put(key, readValue(in, position));
+        }
+        return data;
+    }
+
+    private static boolean isEncodable(final Object value) {
+        return value instanceof String || value instanceof UserProfile || isProfiles(value) || value instanceof Serializable;
+    }
+
+    private static boolean isProfiles(final Object value) {
+        if (!(value instanceof Map) || ((Map<?, ?>) value).isEmpty()) {
+            return false;
+        }
+        for (final Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+            if (!(entry.getKey() instanceof String) || !(entry.getValue() instanceof UserProfile)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void writeValue(final Buffer out, final Object value) {
+        if (value instanceof String) {
+            out.appendByte(STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof UserProfile) {
+            out.appendByte(PROFILE);
+            writeBuffer(out, profileCodec.encode((UserProfile) value));
+        } else if (isProfiles(value)) {
+            final Map<?, ?> profiles = (Map<?, ?>) value;
+            out.appendByte(PROFILES);
+            out.appendInt(profiles.size());
+            profiles.forEach((name, profile) -> {
+                writeString(out, (String) name);
+                writeBuffer(out, profileCodec.encode((UserProfile) profile));
+            });
+        } else {
+            out.appendByte(JAVA);
+            writeBuffer(out, Buffer.buffer(serialize((Serializable) value)));
+        }
+    }
+
+    private Object readValue(final Buffer in, final int[] position) {
+        final byte tag = in.getByte(position[0]++);
+        switch (tag) {
+            case STRING:
+                return readString(in, position);
+            case PROFILE:
+                return profileCodec.decode(readBuffer(in, position));
+            case PROFILES:
+                final int count = in.getInt(position[0]);
+                position[0] += 4;
+                final LinkedHashMap<String, UserProfile> profiles = new LinkedHashMap<>();
+                for (int i = 0; i < count; i++) {
+                    final String name = readString(in, position);
+                    profiles.put(name, profileCodec.decode(readBuffer(in, position)));
+                }
+                return profiles;
+            case JAVA:
+                return deserialize(readBuffer(in, position).getBytes());
+            default:
+                throw new IllegalArgumentException("Unknown session value tag " + tag);
+        }
+    }
+
+    private static void writeString(final Buffer out, final String string) {
+        writeBuffer(out, Buffer.buffer(string.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String readString(final Buffer in, final int[] position) {
+        return readBuffer(in, position).toString(StandardCharsets.UTF_8);
+    }
+
+    private static void writeBuffer(final Buffer out, final Buffer value) {
+        out.appendInt(value.length()).appendBuffer(value);
+    }
+
+    private static Buffer readBuffer(final Buffer in, final int[] position) {
+        final int length = in.getInt(position[0]);
+        final Buffer value = in.getBuffer(position[0] + 4, position[0] + 4 + length);
+        position[0] += 4 + length;
+        return value;
+    }
+
+    private static byte[] serialize(final Serializable value) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Cannot serialize session value of type " + value.getClass().getName(), e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(final byte[] bytes) {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            in.setObjectInputFilter(ProfileSerialFilter.INSTANCE);
+            return in.readObject();
+        } catch (final InvalidClassException e) {
+            throw new IllegalArgumentException("Session value class not allowed", e);
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Cannot deserialize session value", e);
+        } catch (final ClassNotFoundException e) {
+            throw new IllegalArgumentException("Unknown session value class", e);
+        }
+    }
+}
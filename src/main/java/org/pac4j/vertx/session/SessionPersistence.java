@@ -0,0 +1,321 @@
+package org.pac4j.vertx.session;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.Shareable;
+import io.vertx.ext.web.Session;
+import io.vertx.ext.web.sstore.SessionStore;
+import org.pac4j.vertx.SharedInstances;
+import org.pac4j.vertx.profile.ProfileCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind persistence of the sessions to an embedded H2 database, so sessions survive restarts. Sessions are
+ * still read from memory only: written sessions are encoded into a snapshot when written, on the calling event loop,
+ * so the flush never reads a session a request may be changing. Snapshots and deleted sessions are queued, later
+ * changes to a session replacing the queued one, and the queue is written in a single batch every "flushIntervalMs"
+ * on a worker thread. A session which can't be encoded is logged and deleted from the database rather than left with
+ * an outdated copy. Expired sessions are deleted from the database as part of each flush. At startup, the sessions not
+ * yet expired are restored into the in-memory store before the server listens, without being queued again. A failed
+ * flush is logged and counted in the metrics, its changes staying queued for the next one.
+ *
+ * Configured by the "sessionPersistence" config object: "enabled", "jdbcUrl" and "flushIntervalMs". The profiles in the
+ * sessions are encoded with the configured {@link ProfileCodec}. One instance is shared by all verticles of a vert.x
+ * instance, each one acquiring it when it starts and releasing it when it stops; the last release flushes the queue
+ * and closes the database.
+ *
+ * @since 7.0.0
+ */
+public class SessionPersistence implements Shareable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SessionPersistence.class);
+
+    public static final String CONFIG_KEY = "sessionPersistence";
+    public static final String DEFAULT_JDBC_URL = "jdbc:h2:./target/pac4j-demo-sessions";
+    public static final long DEFAULT_FLUSH_INTERVAL_MS = 1000;
+
+
+    private static final String TABLE = "pac4j_demo_sessions";
+
+    private final boolean enabled;
+    private final String jdbcUrl;
+    private final long flushIntervalMs;
+    private final SessionDataCodec codec;
+    private final Map<String, Snapshot> pendingWrites = new ConcurrentHashMap<>();
+    private final Set<String> pendingDeletes = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean pendingClear = new AtomicBoolean();
+    private final AtomicInteger users = new AtomicInteger();
+    private final AtomicBoolean flushing = new AtomicBoolean();
+    private final AtomicLong flushFailures = new AtomicLong();
+    private final AtomicBoolean restoreStarted = new AtomicBoolean();
+    private final CompletableFuture<Integer> restored = new CompletableFuture<>();
+    private final Set<String> restoring = ConcurrentHashMap.newKeySet();
+
+    private Connection connection;
+    private long flushTimerId = -1;
+
+    public SessionPersistence(final JsonObject conf, final ProfileCodec profileCodec) {
+        this.enabled = conf.getBoolean("enabled", false);
+        this.jdbcUrl = conf.getString("jdbcUrl", DEFAULT_JDBC_URL);
+        this.flushIntervalMs = conf.getLong("flushIntervalMs", DEFAULT_FLUSH_INTERVAL_MS);
+        this.codec = new SessionDataCodec(profileCodec);
+    }
+
+    /**
+     * @return the persistence shared by every verticle of this vert.x instance, created from the given config by the
+     * first caller
+     */
+    public static SessionPersistence shared(final Vertx vertx, final JsonObject config) {
+        return SharedInstances.getOrCreate(vertx, SessionPersistence.class,
+                () -> new SessionPersistence(config.getJsonObject(CONFIG_KEY, new JsonObject()),
+                        ProfileCodec.fromConfig(config)));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Registers a verticle using the persistence. The first one opens the database and starts the periodic flush.
+     */
+    public synchronized void acquire(final Vertx vertx) throws SQLException {
+        if (users.getAndIncrement() > 0) {
+            return;
+        }
+        connection = DriverManager.getConnection(jdbcUrl);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS " + TABLE + " (id VARCHAR(255) PRIMARY KEY, "
+                    + "timeout BIGINT NOT NULL, last_accessed BIGINT NOT NULL, expires_at BIGINT NOT NULL, data BLOB)");
+        }
+        flushTimerId = vertx.setPeriodic(flushIntervalMs, id -> {
+            if (flushing.compareAndSet(false, true)) {
+                vertx.executeBlocking(this::flush, false)
+                        .onFailure(this::flushFailed)
+                        .onComplete(done -> flushing.set(false));
+            }
+        });
+    }
+
+    /**
+     * Blocking: unregisters a verticle. The last one flushes the pending changes and closes the database.
+     */
+    public synchronized void release(final Vertx vertx) throws SQLException {
+        if (users.decrementAndGet() > 0) {
+            return;
+        }
+        vertx.cancelTimer(flushTimerId);
+        try {
+            flush();
+        } catch (final SQLException | RuntimeException e) {
+            flushFailed(e);
+            throw e;
+        } finally {
+            // closing releases the database file lock, whether or not the last changes could be written
+            try {
+                connection.close();
+            } finally {
+                connection = null;
+            }
+        }
+    }
+
+    /**
+     * Restores the persisted sessions into the given store, once per vert.x instance; the callers after the first one
+     * get the outcome of the first restore.
+     *
+     * @return the number of sessions restored
+     */
+    public Future<Integer> restore(final Vertx vertx, final SessionStore target) {
+        if (restoreStarted.compareAndSet(false, true)) {
+            vertx.executeBlocking(this::load, false)
+                    .compose(sessions -> {
+                        final List<Future<Void>> puts = new ArrayList<>(sessions.size());
+                        // the target store may queue them as written, though they are already persisted
+                        sessions.forEach(session -> restoring.add(session.id()));
+                        sessions.forEach(session -> puts.add(target.put(session)));
+                        return Future.all(puts).map(sessions.size())
+                                .onComplete(done -> restoring.clear());
+                    })
+                    .onSuccess(count -> {
+                        LOG.info("Restored " + count + " persisted sessions");
+                        restored.complete(count);
+                    })
+                    .onFailure(restored::completeExceptionally);
+        }
+        return Future.fromCompletionStage(restored, vertx.getOrCreateContext());
+    }
+
+    /**
+     * Queues a snapshot of the session, encoded here as the session may change once the caller returns.
+     */
+    public void written(final Session session) {
+        if (restoring.remove(session.id())) {
+            return;
+        }
+        final byte[] data;
+        try {
+            data = codec.encode(session.data());
+        } catch (final RuntimeException e) {
+            LOG.warn("Cannot persist session " + session.id() + ", deleting its persisted copy", e);
+            deleted(session.id());
+            return;
+        }
+        pendingDeletes.remove(session.id());
+        pendingWrites.put(session.id(), new Snapshot(session.id(), session.timeout(), session.lastAccessed(), data));
+    }
+
+    public void deleted(final String id) {
+        pendingWrites.remove(id);
+        pendingDeletes.add(id);
+    }
+
+    public void cleared() {
+        pendingWrites.clear();
+        pendingDeletes.clear();
+        pendingClear.set(true);
+    }
+
+    /**
+     * Blocking: writes the queued changes in one transaction.
+     *
+     * @return the number of sessions written or deleted
+     */
+    public synchronized int flush() throws SQLException {
+        if (connection == null) {
+            return 0;
+        }
+        final boolean clear = pendingClear.getAndSet(false);
+        final List<Snapshot> writes = new ArrayList<>();
+        for (final String id : pendingWrites.keySet()) {
+            final Snapshot snapshot = pendingWrites.remove(id);
+            if (snapshot != null) {
+                writes.add(snapshot);
+            }
+        }
+        final List<String> deletes = new ArrayList<>();
+        for (final String id : pendingDeletes) {
+            if (pendingDeletes.remove(id)) {
+                deletes.add(id);
+            }
+        }
+
+        connection.setAutoCommit(false);
+        try {
+            if (clear) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.executeUpdate("DELETE FROM " + TABLE);
+                }
+            }
+            try (PreparedStatement merge = connection.prepareStatement("MERGE INTO " + TABLE
+                    + " (id, timeout, last_accessed, expires_at, data) KEY (id) VALUES (?, ?, ?, ?, ?)")) {
+                for (final Snapshot snapshot : writes) {
+                    merge.setString(1, snapshot.id);
+                    merge.setLong(2, snapshot.timeout);
+                    merge.setLong(3, snapshot.lastAccessed);
+                    merge.setLong(4, snapshot.lastAccessed + snapshot.timeout);
+                    merge.setBytes(5, snapshot.data);
+                    merge.addBatch();
+                }
+                merge.executeBatch();
+            }
+            try (PreparedStatement delete = connection.prepareStatement("DELETE FROM " + TABLE + " WHERE id = ?")) {
+                for (final String id : deletes) {
+                    delete.setString(1, id);
+                    delete.addBatch();
+                }
+                delete.executeBatch();
+            }
+            try (PreparedStatement expire = connection.prepareStatement("DELETE FROM " + TABLE + " WHERE expires_at <= ?")) {
+                expire.setLong(1, System.currentTimeMillis());
+                expire.executeUpdate();
+            }
+            connection.commit();
+        } catch (final SQLException | RuntimeException e) {
+            connection.rollback();
+            // put the changes back unless they were superseded meanwhile
+            writes.forEach(snapshot -> pendingWrites.putIfAbsent(snapshot.id, snapshot));
+            deletes.stream().filter(id -> !pendingWrites.containsKey(id)).forEach(pendingDeletes::add);
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+        return writes.size() + deletes.size();
+    }
+
+    public long flushFailures() {
+        return flushFailures.get();
+    }
+
+    public String toPrometheus() {
+        if (!enabled) {
+            return "";
+        }
+        return "# HELP pac4j_session_persistence_flush_failures_total Session persistence flushes which failed\n"
+                + "# TYPE pac4j_session_persistence_flush_failures_total counter\n"
+                + "pac4j_session_persistence_flush_failures_total " + flushFailures.get() + '\n'
+                + "# HELP pac4j_session_persistence_pending Session writes and deletes waiting for a flush\n"
+                + "# TYPE pac4j_session_persistence_pending gauge\n"
+                + "pac4j_session_persistence_pending " + (pendingWrites.size() + pendingDeletes.size()) + '\n';
+    }
+
+    private void flushFailed(final Throwable failure) {
+        flushFailures.incrementAndGet();
+        LOG.error("Failed to persist sessions, " + (pendingWrites.size() + pendingDeletes.size())
+                + " changes left queued", failure);
+    }
+
+    private synchronized List<Session> load() throws SQLException {
+        final List<Session> sessions = new ArrayList<>();
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT id, timeout, last_accessed, data FROM " + TABLE + " WHERE expires_at > ?")) {
+            select.setLong(1, System.currentTimeMillis());
+            try (ResultSet rows = select.executeQuery()) {
+                while (rows.next()) {
+                    final String id = rows.getString(1);
+                    try {
+                        sessions.add(new RestoredSession(id, rows.getLong(2), rows.getLong(3),
+                                codec.decode(rows.getBytes(4))));
+                    } catch (final RuntimeException e) {
+                        LOG.warn("Cannot restore session " + id + ", dropping it", e);
+                    }
+                }
+            }
+        }
+        return sessions;
+    }
+
+    /**
+     * A session as it was when written, its data encoded.
+     */
+    private static final class Snapshot {
+        private final String id;
+        private final long timeout;
+        private final long lastAccessed;
+        private final byte[] data;
+
+        private Snapshot(final String id, final long timeout, final long lastAccessed, final byte[] data) {
+            this.id = id;
+            this.timeout = timeout;
+            this.lastAccessed = lastAccessed;
+            this.data = data;
+        }
+    }
+}
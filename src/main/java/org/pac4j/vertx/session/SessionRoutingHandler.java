@@ -0,0 +1,38 @@
+package org.pac4j.vertx.session;
+
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+import io.vertx.ext.web.handler.SessionHandler;
+
+/**
+ * Routes requests through the session handler only where a session may be needed: paths under the stateless
+ * prefixes never get a session. Elsewhere the session handler is lazy, the session being created on its first write
+ * (see {@link LazySessionStore}), so anonymous visitors touch neither the session store nor cookies on any page, while
+ * logged in users still see their profiles.
+ *
+ * @since 7.0.0
+ */
+public class SessionRoutingHandler implements Handler<RoutingContext> {
+
+    private final SessionHandler sessionHandler;
+    private final StatelessPaths statelessPaths;
+
+    public SessionRoutingHandler(final SessionHandler sessionHandler, final StatelessPaths statelessPaths) {
+        this.sessionHandler = sessionHandler;
+        this.statelessPaths = statelessPaths;
+    }
+
+    public static SessionRoutingHandler fromConfig(final SessionHandler sessionHandler, final JsonObject config) {
+        return new SessionRoutingHandler(sessionHandler, StatelessPaths.fromConfig(config));
+    }
+
+    @Override
+    public void handle(final RoutingContext rc) {
+        if (statelessPaths.isStateless(rc.normalizedPath())) {
+            rc.next();
+        } else {
+            sessionHandler.handle(rc);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package org.pac4j.vertx.session;
+
+import com.nimbusds.jwt.JWT;
+import com.nimbusds.oauth2.sdk.token.Token;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.Session;
+import org.pac4j.core.profile.BasicUserProfile;
+import org.pac4j.core.profile.UserProfile;
+
+import java.net.URI;
+import java.net.URL;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Rough estimate of the heap retained by a session, walking its data: strings, numbers, collections, arrays, JSON,
+ * buffers and pac4j profiles (attributes, roles...) are sized from their content, OAuth and OpenID Connect tokens from
+ * their encoded form, and any other value from its string representation. Nothing is serialized or reflected upon, as
+ * the estimate is taken on the event loop whenever a session is stored. It is meant for relative accounting between
+ * sessions, not exact sizes.
+ *
+ * @since 7.0.0
+ */
+public final class SessionSizeEstimator {
+
+    private static final int MAX_DEPTH = 8;
+    private static final long OBJECT = 16;
+    private static final long REFERENCE = 8;
+    private static final long UNKNOWN = 64;
+
+    private SessionSizeEstimator() {
+    }
+
+    public static long estimate(final Session session) {
+        long bytes = 4 * OBJECT + estimate(session.id(), 0);
+        for (final Map.Entry<String, Object> entry : session.data().entrySet()) {
+            bytes += 2 * REFERENCE + OBJECT + estimate(entry.getKey(), 0) + estimate(entry.getValue(), 0);
+        }
+        return bytes;
+    }
+
+    static long estimate(final Object value, final int depth) {
+        if (value == null) {
+            return 0;
+        } else if (value instanceof CharSequence) {
+            return 2 * OBJECT + ((CharSequence) value).length();
+        } else if (value instanceof Number || value instanceof Boolean || value instanceof Character) {
+            return OBJECT;
+        } else if (value instanceof Date) {
+            return OBJECT + REFERENCE;
+        } else if (value instanceof Enum) {
+            return 0;
+        } else if (value instanceof URI || value instanceof URL) {
+            return OBJECT + estimate(value.toString(), depth);
+        } else if (value instanceof byte[]) {
+            return OBJECT + ((byte[]) value).length;
+        } else if (value instanceof Buffer) {
+            return 2 * OBJECT + ((Buffer) value).length();
+        } else if (value instanceof char[]) {
+            return OBJECT + 2L * ((char[]) value).length;
+        } else if (value instanceof Token) {
+            // access and refresh tokens, keeping their value and, for access tokens, their scope and lifetime
+            return 4 * OBJECT + estimate(((Token) value).getValue(), depth);
+        } else if (value instanceof JWT) {
+            // the parsed header and claims take about as much again as the encoded token
+            return 4 * OBJECT + 2 * estimate(((JWT) value).getParsedString(), depth);
+        } else if (value instanceof com.github.scribejava.core.model.Token) {
+            // OAuth 1.0 and 2.0 tokens, keeping the raw token response along with the fields parsed from it
+            return 4 * OBJECT + 2 * estimate(((com.github.scribejava.core.model.Token) value).getRawResponse(), depth);
+        } else if (depth >= MAX_DEPTH) {
+            return UNKNOWN;
+        } else if (value instanceof UserProfile) {
+            return estimateProfile((UserProfile) value, depth + 1);
+        } else if (value instanceof Map) {
+            return estimateMap((Map<?, ?>) value, depth + 1);
+        } else if (value instanceof Collection) {
+            long bytes = 3 * OBJECT;
+            for (final Object element : (Collection<?>) value) {
+                bytes += REFERENCE + estimate(element, depth + 1);
+            }
+            return bytes;
+        } else if (value instanceof JsonObject) {
+            return OBJECT + estimateMap(((JsonObject) value).getMap(), depth + 1);
+        } else if (value instanceof JsonArray) {
+            return OBJECT + estimate(((JsonArray) value).getList(), depth + 1);
+        } else if (value instanceof Object[]) {
+            long bytes = OBJECT;
+            for (final Object element : (Object[]) value) {
+                bytes += REFERENCE + estimate(element, depth + 1);
+            }
+            return bytes;
+        }
+        return OBJECT + estimate(value.toString(), depth);
+    }
+
+    private static long estimateProfile(final UserProfile profile, final int depth) {
+        long bytes = 4 * OBJECT + estimate(profile.getId(), depth) + estimate(profile.getClientName(), depth)
+                + estimateMap(profile.getAttributes(), depth) + estimate(profile.getRoles(), depth);
+        if (profile instanceof BasicUserProfile) {
+            bytes += estimateMap(((BasicUserProfile) profile).getAuthenticationAttributes(), depth);
+        }
+        return bytes;
+    }
+
+    private static long estimateMap(final Map<?, ?> map, final int depth) {
+        long bytes = 3 * OBJECT;
+        for (final Map.Entry<?, ?> entry : map.entrySet()) {
+            bytes += 2 * REFERENCE + OBJECT + estimate(entry.getKey(), depth) + estimate(entry.getValue(), depth);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,53 @@
+package org.pac4j.vertx.session;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Classifies request paths as stateless (no session handling, no session cookie) or not, from a configured list of
+ * path prefixes ("statelessPathPrefixes", relative to the root, e.g. "dba/"). The prefixes are compiled at startup
+ * into a table of plain prefix comparisons, so classifying a request needs neither regex matching nor backtracking.
+ *
+ * @since 7.0.0
+ */
+public class StatelessPaths {
+
+    public static final String CONFIG_KEY = "statelessPathPrefixes";
+    public static final List<String> DEFAULT_PREFIXES = List.of("dba/", "rest-jwt/");
+
+    private final String[] prefixes;
+
+    public StatelessPaths(final List<String> prefixes) {
+        this.prefixes = prefixes.stream()
+                .map(prefix -> prefix.startsWith("/") ? prefix.substring(1) : prefix)
+                .distinct()
+                .toArray(String[]::new);
+    }
+
+    public static StatelessPaths fromConfig(final JsonObject config) {
+        final JsonArray configured = config.getJsonArray(CONFIG_KEY);
+        if (configured == null) {
+            return new StatelessPaths(DEFAULT_PREFIXES);
+        }
+        return new StatelessPaths(Arrays.asList(configured.stream().map(String::valueOf).toArray(String[]::new)));
+    }
+
+    /**
+     * @param path the normalized request path
+     * @return true if no session should be handled for this path
+     */
+    public boolean isStateless(final String path) {
+        if (path == null || path.isEmpty() || path.charAt(0) != '/') {
+            return true;
+        }
+        for (final String prefix : prefixes) {
+            if (path.startsWith(prefix, 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,153 @@
+package org.pac4j.vertx.template;
+
+import com.github.jknack.handlebars.Context;
+import com.github.jknack.handlebars.Handlebars;
+import com.github.jknack.handlebars.Template;
+import com.github.jknack.handlebars.ValueResolver;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.file.FileSystem;
+import io.vertx.core.shareddata.Shareable;
+import io.vertx.ext.web.templ.handlebars.HandlebarsTemplateEngine;
+import org.pac4j.vertx.SharedInstances;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * All handlebars templates under templates/, compiled once at startup and rendered from their compiled form, so no
+ * template lookup or file access happens while serving requests. Compiled templates are immutable and can be rendered
+ * concurrently.
+ *
+ * Templates are rendered against the value resolvers of the vert.x handlebars engine, so JSON models render exactly as
+ * they did through HandlebarsTemplateEngine. The compiled templates are shared by every verticle of a vert.x instance,
+ * see {@link #shared(Vertx, boolean)}.
+ *
+ * @since 7.0.0
+ */
+public class PrecompiledTemplates implements Shareable {
+
+    public static final String TEMPLATE_DIRECTORY = "templates";
+    public static final String TEMPLATE_EXTENSION = ".hbs";
+
+    private static final Logger LOG = LoggerFactory.getLogger(PrecompiledTemplates.class);
+
+
+    private final Map<String, Template> templates;
+    private final ValueResolver[] resolvers;
+    private final String version;
+
+    private PrecompiledTemplates(final Map<String, Template> templates, final ValueResolver[] resolvers,
+                                 final String version) {
+        this.templates = templates;
+        this.resolvers = resolvers;
+        this.version = version;
+    }
+
+    /**
+     * The templates shared by every verticle of this vert.x instance, compiled on a worker thread by the first one to
+     * ask for them.
+     *
+     * @param failFast whether a template failing to compile fails the returned future, see
+     *                 {@link #compile(Vertx, String, boolean)}
+     */
+    public static Future<PrecompiledTemplates> shared(final Vertx vertx, final boolean failFast) {
+        final PrecompiledTemplates compiled = SharedInstances.get(vertx, PrecompiledTemplates.class);
+        if (compiled != null) {
+            return Future.succeededFuture(compiled);
+        }
+        return vertx.executeBlocking(() -> compile(vertx, TEMPLATE_DIRECTORY, failFast), false)
+                .map(templates -> SharedInstances.putIfAbsent(vertx, PrecompiledTemplates.class, templates));
+    }
+
+    /**
+     * Compiles every template of a directory. This reads files, so must not be called on an event loop.
+     *
+     * @param directory the directory holding the templates, resolved as vert.x resolves files, e.g. on the classpath
+     * @param failFast whether a template failing to compile throws an IllegalStateException, rather than being logged
+     *                 and failing the requests rendering it
+     */
+    public static PrecompiledTemplates compile(final Vertx vertx, final String directory, final boolean failFast) {
+        final FileSystem fileSystem = vertx.fileSystem();
+        final Handlebars handlebars = new Handlebars();
+        final Map<String, Template> templates = new HashMap<>();
+        final Map<String, String> sources = new TreeMap<>();
+        final List<String> paths = fileSystem.readDirBlocking(directory, ".*\\" + TEMPLATE_EXTENSION);
+        for (final String path : paths) {
+            final String fileName = new File(path).getName();
+            final String name = fileName.substring(0, fileName.length() - TEMPLATE_EXTENSION.length());
+            try {
+                final String source = fileSystem.readFileBlocking(path).toString(StandardCharsets.UTF_8);
+                sources.put(name, source);
+                templates.put(name, handlebars.compileInline(source));
+            } catch (final IOException | RuntimeException e) {
+                if (failFast) {
+                    throw new IllegalStateException("Failed to compile template " + fileName, e);
+                }
+                LOG.error("Failed to compile template " + fileName + ", requests rendering it will fail", e);
+            }
+        }
+        LOG.info("Compiled templates " + templates.keySet());
+        final ValueResolver[] resolvers = HandlebarsTemplateEngine.create(vertx).getResolvers();
+        return new PrecompiledTemplates(templates, resolvers, digest(sources));
+    }
+
+    /**
+     * @return a SHA-256 digest of the template names and sources, URL-safe base64 encoded, each length-prefixed in
+     * name order
+     */
+    private static String digest(final Map<String, String> sources) {
+        final MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not supported", e);
+        }
+        sources.forEach((name, source) -> {
+            update(sha256, name);
+            update(sha256, source);
+        });
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(sha256.digest());
+    }
+
+    private static void update(final MessageDigest digest, final String value) {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+        digest.update(bytes);
+    }
+
+    /**
+     * @return an identifier of the template sources, changing when any template changes
+     */
+    public String version() {
+        return version;
+    }
+
+    /**
+     * @param name the template file name without directory or extension, e.g. "index"
+     */
+    public Buffer render(final String name, final Object model) {
+        final Template template = templates.get(name);
+        if (template == null) {
+            throw new IllegalArgumentException("No compiled template named " + name);
+        }
+        try {
+            return Buffer.buffer(template.apply(Context.newBuilder(model).resolver(resolvers).build()));
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Failed to render template " + name, e);
+        }
+    }
+}
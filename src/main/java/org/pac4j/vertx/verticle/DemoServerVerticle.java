@@ -1,26 +1,57 @@
 package org.pac4j.vertx.verticle;
 
 import io.vertx.core.AbstractVerticle;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServer;
 import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
 import io.vertx.ext.web.handler.BodyHandler;
 import io.vertx.ext.web.handler.SessionHandler;
 import io.vertx.ext.web.handler.StaticHandler;
+import io.vertx.ext.web.sstore.ClusteredSessionStore;
 import io.vertx.ext.web.sstore.LocalSessionStore;
+import io.vertx.ext.web.sstore.SessionStore;
+import org.pac4j.core.client.Client;
 import org.pac4j.core.config.Config;
-import org.pac4j.core.context.HttpConstants;
-import org.pac4j.core.context.session.SessionStore;
+import org.pac4j.core.profile.UserProfile;
+import org.pac4j.core.util.Pac4jConstants;
+import org.pac4j.vertx.config.ClientWarmup;
 import org.pac4j.vertx.config.Pac4jConfigurationFactory;
 import org.pac4j.vertx.context.session.VertxSessionStore;
+import org.pac4j.vertx.handler.AuthBulkheads;
 import org.pac4j.vertx.handler.DemoHandlers;
+import org.pac4j.vertx.handler.ErrorPages;
+import org.pac4j.vertx.handler.LoginThrottle;
+import org.pac4j.vertx.handler.ProtectedEndpoints;
 import org.pac4j.vertx.handler.impl.CallbackHandler;
 import org.pac4j.vertx.handler.impl.CallbackHandlerOptions;
 import org.pac4j.vertx.handler.impl.SecurityHandlerOptions;
+import org.pac4j.vertx.jwt.JwtTokenService;
+import org.pac4j.vertx.metrics.AuthMetrics;
+import org.pac4j.vertx.saml.IdpMetadataRegistry;
+import org.pac4j.vertx.session.BoundedSessionStore;
+import org.pac4j.vertx.session.LazySessionStore;
+import org.pac4j.vertx.session.SessionBudget;
+import org.pac4j.vertx.session.PersistentSessionStore;
+import org.pac4j.vertx.session.SessionCaches;
+import org.pac4j.vertx.session.SessionPersistence;
+import org.pac4j.vertx.session.SessionRoutingHandler;
+import org.pac4j.vertx.session.StatelessPaths;
+import org.pac4j.vertx.template.PrecompiledTemplates;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
 import static io.vertx.core.http.HttpHeaders.TEXT_HTML;
 import static org.pac4j.vertx.handler.DemoHandlers.forceLogin;
 import static org.pac4j.vertx.handler.DemoHandlers.setContentTypeHandler;
@@ -34,160 +65,241 @@ import static org.pac4j.vertx.handler.DemoHandlers.setContentTypeHandler;
  */
 public class DemoServerVerticle extends AbstractVerticle {
 
+    /**
+     * Regular expression formerly used to route the session handler, equivalent to the default
+     * {@link StatelessPaths} prefixes. Kept as the reference the classifier is tested against.
+     */
     protected static final String SESSION_HANDLER_REGEXP = "\\/((?!dba\\/|rest-jwt\\/)).*";
 
+    /**
+     * Name of the vert.x shared map backing the session store. Every instance of this verticle deployed in the same
+     * vert.x instance resolves the same map, so a session created by one instance's /callback is visible to whichever
+     * instance receives the next request.
+     */
+    public static final String SESSION_MAP_NAME = "pac4j-demo.sessions";
+
+    public static final int DEFAULT_HTTP_PORT = 8080;
+
     private static final Logger LOG = LoggerFactory.getLogger(DemoServerVerticle.class);
 
     private VertxSessionStore sessionStore;
     private Handler<RoutingContext> protectedIndexRenderer;
     private Config config = null;
+    private AuthMetrics metrics;
+    private AuthBulkheads bulkheads;
+    private LoginThrottle loginThrottle;
+    private SessionPersistence sessionPersistence;
+    private ServerReadiness readiness;
+    private boolean listening;
 
     @Override
-    public void start() {
+    public void start(final Promise<Void> startPromise) {
+        // Every template is compiled once, off the event loop, and shared by all verticles and their handlers
+        PrecompiledTemplates.shared(vertx, config().getBoolean("templatesFailFast", false))
+                .compose(this::serve)
+                .onSuccess(servers -> startPromise.complete())
+                // a verticle failing to start isn't stopped, so it gives the persistence back itself
+                .onFailure(failure -> releaseSessionPersistence()
+                        .onComplete(released -> startPromise.fail(failure)));
+    }
 
+    private Future<CompositeFuture> serve(final PrecompiledTemplates templates) {
         final Router router = Router.router(vertx);
-        LocalSessionStore vertxSessionStore = LocalSessionStore.create(vertx);
-        sessionStore = new VertxSessionStore(vertxSessionStore);
-        SessionHandler sessionHandler = SessionHandler.create(vertxSessionStore);
-        protectedIndexRenderer = DemoHandlers.protectedIndexHandler(vertx, sessionStore);
-
-        // Only use the following handler where we want to use sessions - this is enforced by the regexp
-        router.routeWithRegex(SESSION_HANDLER_REGEXP).handler(sessionHandler);
-
-        router.route().failureHandler(rc -> {
-            final int statusCode = rc.statusCode();
-            rc.response().setStatusCode(statusCode > 0 ? statusCode : 500); // use status code 500 in the event that vert.x hasn't set one,
-            // as we've failed for an unspecified reason - which implies internal server error
+        final SessionStore vertxSessionStore = createSessionStore(vertx, config());
+        sessionStore = new LazySessionStore(vertxSessionStore);
+        // sessions are only created when pac4j first writes to them
+        SessionHandler sessionHandler = SessionHandler.create(vertxSessionStore).setLazySession(true);
+        protectedIndexRenderer = DemoHandlers.protectedIndexHandler(templates, sessionStore);
 
-            switch (rc.response().getStatusCode()) {
+        // Only use the session handler where we want to use sessions - paths under the configured stateless prefixes
+        // skip it
+        router.route().handler(SessionRoutingHandler.fromConfig(sessionHandler, config()));
 
-                case HttpConstants.FORBIDDEN:
-                    rc.response().sendFile("static/error403.html");
-                    break;
-
-                case HttpConstants.UNAUTHORIZED:
-                    rc.response().sendFile("static/error401.html");
-                    break;
-
-                case 500:
-                    LOG.error("Unexpected error in request handling", rc.failure());
-                    rc.response().sendFile("static/error500.html");
-                    break;
-
-                default:
-                    rc.response().end();
-
-            }
-        });
+        // Failed security checks are timed before their error pages are written
+        router.route().failureHandler(AuthMetrics.failureHandler());
+        // Error pages are served from buffers loaded once, JSON for the stateless web services
+        router.route().failureHandler(ErrorPages.load(vertx, StatelessPaths.fromConfig(config())).failureHandler());
 
 
         // need to add a json configuration file internally and ensure it's consumed by this verticle
         LOG.info("DemoServerVerticle: config is \n" + config().encodePrettily());
-        config = new Pac4jConfigurationFactory(config(), vertx, vertxSessionStore).build();
-        config.setSessionStoreFactoryIfUndefined(param -> sessionStore);
-
-        // Facebook-authenticated endpoints
-        addProtectedEndpointWithoutAuthorizer("/facebook/index.html", "FacebookClient", router);
-        addProtectedEndpoint("/facebookadmin/index.html", "FacebookClient", Pac4jConfigurationFactory.AUTHORIZER_ADMIN, router);
-        addProtectedEndpoint("/facebookcustom/index.html", "FacebookClient", Pac4jConfigurationFactory.AUTHORIZER_CUSTOM, router);
-
-        // Twitter/facebook-authenticated endpoints
-        addProtectedEndpointWithoutAuthorizer("/twitter/index.html", "TwitterClient,FacebookClient", router);
-
-        // Form-authenticated endpoint
-        addProtectedEndpointWithoutAuthorizer("/form/index.html", "FormClient", router);
-
-        // Form-protected AJAX endpoint
-        SecurityHandlerOptions securityHandlerOptions = new SecurityHandlerOptions().setClients("FormClient");
-        final String ajaxProtectedUrl = "/form/index.html.json";
-        router.get(ajaxProtectedUrl).handler(DemoHandlers.authHandler(vertx, sessionStore, config,
-                securityHandlerOptions));
-        router.get(ajaxProtectedUrl).handler(setContentTypeHandler("application/json"));
-        router.get(ajaxProtectedUrl).handler(DemoHandlers.formIndexJsonHandler(vertx, sessionStore));
-
-        // Indirect basic auth-protected endpoint
-        addProtectedEndpointWithoutAuthorizer("/basicauth/index.html", "IndirectBasicAuthClient", router);
-
-        // Cas-authenticated endpoint
-        addProtectedEndpointWithoutAuthorizer("/cas/index.html", "CasClient", router);
-
-        // Oidc-authenticated endpoint
-        addProtectedEndpointWithoutAuthorizer("/oidc/index.html", "OidcClient", router);
-
-        // Saml-authenticated endpoint
-        addProtectedEndpointWithoutAuthorizer("/saml/index.html", "SAML2Client", router);
-
-        // Strava-authenticated endpoint
-        addProtectedEndpointWithoutAuthorizer("/strava/index.html", "StravaClient", router);
-
-        // Requires authentication endpoint without specific authenticator attached
-        addProtectedEndpointWithoutAuthorizer("/protected/index.html", "", router);
-
-        // Direct basic auth authentication (web services)
-        addProtectedEndpointWithoutAuthorizer("/dba/index.html", "DirectBasicAuthClient,ParameterClient", router);
-        SecurityHandlerOptions dbaEndpointOptions = new SecurityHandlerOptions().setClients("DirectBasicAuthClient,ParameterClient");
-        router.post("/dba/index.html").handler(DemoHandlers.authHandler(vertx, sessionStore, config,
-                dbaEndpointOptions));
-        router.post("/dba/index.html").handler(protectedIndexRenderer);
-
-
-        // Direct basic auth then token authentication (web services)
-        addProtectedEndpointWithoutAuthorizer("/rest-jwt/index.html", "ParameterClient", router);
-
-        addAnonymousProtectionTo("/index.html", router);
-        router.get("/index.html").handler(setContentTypeHandler(TEXT_HTML));
-        router.get("/index.html").handler(DemoHandlers.indexHandler(vertx, sessionStore));
+        // Share the clients initialized by the startup warmup if there was one, otherwise they initialize on first use
+        final ClientWarmup warmup = ClientWarmup.published(vertx);
+        if (warmup != null) {
+            // shared by every verticle, with its session store already set
+            config = warmup.config();
+        } else {
+            config = new Pac4jConfigurationFactory(config(), vertx, vertxSessionStore).build();
+            config.setSessionStoreFactory(param -> sessionStore);
+        }
+        metrics = AuthMetrics.shared(vertx);
+        readiness = ServerReadiness.shared(vertx, config());
+        bulkheads = AuthBulkheads.shared(vertx, config());
+        loginThrottle = LoginThrottle.shared(vertx, config());
+        // SAML metadata is indexed once for all verticles, and a new SAML client swapped in whenever it changes
+        final IdpMetadataRegistry idpMetadata = IdpMetadataRegistry.shared(vertx, config());
+        if (config.getClients().findClient("SAML2Client").isPresent()) {
+            idpMetadata.rebuildOnChange(config, () -> Pac4jConfigurationFactory.saml2Client(config(), idpMetadata));
+        }
+        idpMetadata.watch(vertx);
+        final List<String> clientNames = config.getClients().getClients().stream()
+                .map(Client::getName)
+                .collect(Collectors.toList());
+
+        // Protected endpoints, one route each, as declared in the config
+        // credentials are throttled per IP and username before reaching the direct basic auth authenticator
+        router.route("/dba/index.html").handler(loginThrottle.basicAuth("DirectBasicAuthClient"));
+        ProtectedEndpoints.fromConfig(config()).mount(router,
+                endpoint -> authHandler(endpoint.path(), endpoint.clients(), endpoint.options(), clientNames),
+                // the security checks are timed until they let the request through to the renderers
+                Map.of(ProtectedEndpoints.DEFAULT_RENDERER, AuthMetrics.passed(protectedIndexRenderer),
+                        "formIndexJson", AuthMetrics.passed(DemoHandlers.formIndexJsonHandler(templates, sessionStore)),
+                        "index", AuthMetrics.passed(DemoHandlers.indexHandler(templates, sessionStore))));
 
         final CallbackHandlerOptions callbackHandlerOptions = new CallbackHandlerOptions()
                 .setDefaultUrl("/")
                 .setMultiProfile(true);
-        final CallbackHandler callbackHandler = new CallbackHandler(vertx, sessionStore, config, callbackHandlerOptions);
+        final Handler<RoutingContext> callbackHandler = metrics.instrumentByClientParameter("callback", "/callback",
+                Pac4jConstants.DEFAULT_CLIENT_NAME_PARAMETER, clientNames,
+                bulkheads.wrapByClientParameter(vertx, Pac4jConstants.DEFAULT_CLIENT_NAME_PARAMETER, clientNames,
+                        new CallbackHandler(vertx, sessionStore, config, callbackHandlerOptions)));
+        // Anything cached from the session's profiles is dropped wherever those profiles may change
+        router.route("/callback").handler(SessionCaches.invalidationHandler());
         router.get("/callback").handler(callbackHandler); // This will deploy the callback handler
         router.post("/callback").handler(BodyHandler.create().setMergeFormAttributes(true));
+        router.post("/callback").handler(loginThrottle.formLogin("FormClient"));
         router.post("/callback").handler(callbackHandler);
 
-        router.get("/forceLogin").handler(forceLogin(config, sessionStore));
+        router.get("/forceLogin").handler(metrics.instrumentByClientParameter("forceLogin", "/forceLogin",
+                Pac4jConstants.DEFAULT_CLIENT_NAME_PARAMETER, clientNames, forceLogin(config, sessionStore)));
 
+        router.get("/logout").handler(SessionCaches.invalidationHandler());
         router.get("/logout").handler(DemoHandlers.logoutHandler(vertx, config, sessionStore));
 
+        router.get("/centralLogout").handler(SessionCaches.invalidationHandler());
         router.get("/centralLogout").handler(DemoHandlers.centralLogoutHandler(vertx, config, sessionStore));
 
-        router.get("/loginForm").handler(DemoHandlers.loginFormHandler(vertx, config));
+        router.get("/loginForm").handler(DemoHandlers.loginFormHandler(templates, config));
 
+        // One token service per verticle, building its signer once rather than per issued token
+        final JwtTokenService tokenService = new JwtTokenService(config().getString("jwtSalt"));
         router.get("/jwt.html").handler(setContentTypeHandler(TEXT_HTML));
-        router.get("/jwt.html").handler(DemoHandlers.jwtGenerator(vertx, config(), sessionStore));
+        router.get("/jwt.html").handler(DemoHandlers.jwtGenerator(templates, tokenService, sessionStore));
 
-        addAnonymousProtectionTo("/", router);
-        router.get("/").handler(setContentTypeHandler(TEXT_HTML));
-        router.get("/").handler(DemoHandlers.indexHandler(vertx, sessionStore));
+        // Tokens for every profile of the session in one request
+        router.get("/jwt.json").handler(setContentTypeHandler("application/json"));
+        router.get("/jwt.json").handler(DemoHandlers.jwtBatchGenerator(tokenService, sessionStore));
 
         router.get("/*").handler(setContentTypeHandler(TEXT_HTML));
         router.get("/*").handler(StaticHandler.create("static"));
 
-        HttpServerOptions options = new HttpServerOptions();
-        options.setMaxFormAttributeSize(65536);
-        vertx.createHttpServer(options)
-                .requestHandler(router)
-                .listen(8080);
+        final HttpServerOptions options = ServerTuning.httpServerOptions(config());
+        // Persisted sessions are restored before any request can look for them
+        return restoreSessions(vertxSessionStore)
+                .compose(restored -> Future.all(
+                        vertx.createHttpServer(options)
+                                .requestHandler(router)
+                                .listen(config().getInteger("httpPort", DEFAULT_HTTP_PORT))
+                                .onSuccess(server -> {
+                                    listening = true;
+                                    readiness.listening();
+                                }),
+                        startMetricsServer()));
+    }
+
+    @Override
+    public void stop(final Promise<Void> stopPromise) {
+        if (listening) {
+            readiness.stopped();
+        }
+        releaseSessionPersistence().onComplete(stopPromise);
+    }
+
+    /**
+     * The last verticle to release the session persistence writes the pending session changes.
+     */
+    private Future<Void> releaseSessionPersistence() {
+        final SessionPersistence persistence = sessionPersistence;
+        if (persistence == null) {
+            return Future.succeededFuture();
+        }
+        sessionPersistence = null;
+        return vertx.executeBlocking(() -> {
+            persistence.release(vertx);
+            return null;
+        }, false).mapEmpty();
+    }
+
+    private Future<Integer> restoreSessions(final SessionStore target) {
+        final SessionPersistence persistence = SessionPersistence.shared(vertx, config());
+        if (vertx.isClustered() || !persistence.isEnabled()) {
+            return Future.succeededFuture(0);
+        }
+        return vertx.executeBlocking(() -> {
+            persistence.acquire(vertx);
+            sessionPersistence = persistence;
+            return null;
+        }, false).compose(acquired -> persistence.restore(vertx, target));
+    }
+
+    /**
+     * Serves the authentication metrics in the Prometheus text format on a separate listener, by default only
+     * reachable locally, along with a readiness endpoint reporting the client init times. A metricsPort of 0 disables
+     * it.
+     */
+    private Future<HttpServer> startMetricsServer() {
+        final int metricsPort = config().getInteger("metricsPort", 0);
+        if (metricsPort <= 0) {
+            return Future.succeededFuture();
+        }
+        final Router metricsRouter = Router.router(vertx);
+        final SessionBudget sessionBudget = SessionBudget.shared(vertx, config());
+        final SessionPersistence sessionPersistence = SessionPersistence.shared(vertx, config());
+        metricsRouter.get("/metrics").handler(metrics.scrapeHandler(
+                () -> sessionBudget.toPrometheus() + sessionPersistence.toPrometheus() + loginThrottle.toPrometheus()));
+        // Unavailable until the client warmup is done and every instance listens, then with the client init times
+        metricsRouter.get("/ready").handler(rc -> {
+            final ClientWarmup warmup = ClientWarmup.published(vertx);
+            rc.response().setStatusCode(readiness.isReady(vertx) ? 200 : 503);
+            rc.json(warmup != null ? warmup.toJson() : new JsonObject());
+        });
+        return vertx.createHttpServer()
+                .requestHandler(metricsRouter)
+                .listen(metricsPort, config().getString("metricsHost", "127.0.0.1"));
     }
 
-    private void addProtectedEndpointWithoutAuthorizer(final String url, final String clientNames, final Router router) {
-        addProtectedEndpoint(url, clientNames, null, router);
+    private Handler<RoutingContext> authHandler(final String url, final String clientNames,
+                                                final SecurityHandlerOptions options,
+                                                final List<String> knownClients) {
+        return metrics.instrument("security", url, clientNames, knownClients, this::authenticatedProfiles,
+                bulkheads.wrap(vertx, clientNames, DemoHandlers.authHandler(vertx, sessionStore, config, options)));
     }
 
-    private void addAnonymousProtectionTo(final String url, final Router router) {
-        SecurityHandlerOptions options = new SecurityHandlerOptions().setClients("AnonymousClient");
-        router.get(url).handler(DemoHandlers.authHandler(vertx, sessionStore, config, options));
+    /**
+     * @return the profiles pac4j put on the request context as it authenticated them, or those of the session for a
+     * login from an earlier request
+     */
+    private List<UserProfile> authenticatedProfiles(final RoutingContext rc) {
+        final Map<String, UserProfile> authenticated = rc.get(Pac4jConstants.USER_PROFILES);
+        return authenticated != null
+                ? new ArrayList<>(authenticated.values())
+                : DemoHandlers.getUserProfiles(rc, sessionStore);
     }
 
-    private void addProtectedEndpoint(final String url, final String clientNames, final String authName, final Router router) {
-        SecurityHandlerOptions options = new SecurityHandlerOptions().setClients(clientNames);
-        if (authName != null) {
-            options = options.setAuthorizers(authName);
+    static SessionStore createSessionStore(final Vertx vertx, final JsonObject conf) {
+        // When clustered, sessions have to be visible to every node, otherwise sharing the local map is enough
+        // to make sessions visible to every instance of this verticle
+        SessionStore store = vertx.isClustered()
+                ? ClusteredSessionStore.create(vertx)
+                : LocalSessionStore.create(vertx, SESSION_MAP_NAME);
+        // Local sessions are persisted behind the in-memory store to survive restarts
+        final SessionPersistence persistence = SessionPersistence.shared(vertx, conf);
+        if (!vertx.isClustered() && persistence.isEnabled()) {
+            store = new PersistentSessionStore(store, persistence);
         }
-        router.get(url).handler(DemoHandlers.authHandler(vertx, sessionStore, config, options));
-        router.get(url).handler(setContentTypeHandler(TEXT_HTML));
-        router.get(url).handler(protectedIndexRenderer);
+        // The session limits are accounted per vert.x instance
+        final SessionBudget budget = SessionBudget.shared(vertx, conf);
+        return budget.isBounded() ? new BoundedSessionStore(store, budget) : store;
     }
 
 }
@@ -2,12 +2,22 @@ package org.pac4j.vertx.verticle;
 
 import io.vertx.core.AbstractVerticle;
 import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
 import io.vertx.core.Promise;
 import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.sstore.SessionStore;
+import org.pac4j.core.config.Config;
+import org.pac4j.vertx.context.session.VertxSessionStore;
+import org.pac4j.vertx.config.ClientWarmup;
+import org.pac4j.vertx.config.Pac4jConfigurationFactory;
+import org.pac4j.vertx.idp.MockIdpVerticle;
+import org.pac4j.vertx.oidc.CachingResourceRetriever;
+import org.pac4j.vertx.session.LazySessionStore;
+import org.pac4j.vertx.template.PrecompiledTemplates;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.*;
+import java.lang.management.ManagementFactory;
 
 /**
  * Main verticle to load the config from the classpath (so we can, for example, store facebook config within
@@ -20,37 +30,86 @@ public class MainVerticle extends AbstractVerticle {
 
     private static final Logger LOG = LoggerFactory.getLogger(MainVerticle.class);
 
+    public static final String CONFIG_FILE = "config_demo.json";
+    public static final String AUTH_WORKER_POOL_NAME = "pac4j-demo-auth";
+    public static final int DEFAULT_AUTH_WORKER_POOL_SIZE = 20;
+
     @Override
     public void start(Promise<Void> startPromise) throws Exception {
         super.start();
-        vertx.executeBlocking(() -> {
-            final InputStream inputStream = getClass().getClassLoader().getResourceAsStream("config_demo.json");
-            final InputStreamReader inputStreamReader;
-            final char[] buffer = new char[1000]; // we know the config file will be small so we should be ok
-            final StringBuilder builder = new StringBuilder();
-            try {
-                inputStreamReader = new InputStreamReader(inputStream, "UTF-8");
-                final BufferedReader bufferedReader = new BufferedReader(inputStreamReader);
-                for (; ; ) {
-                    int rsz = bufferedReader.read(buffer, 0, buffer.length);
-                    if (rsz < 0)
-                        break;
-                    builder.append(buffer, 0, rsz);
-                }
-            } catch (UnsupportedEncodingException e) {
-                throw new RuntimeException("UTF-8 not supported", e);
-            } catch (IOException e) {
-                throw new RuntimeException("Failed to read config file", e);
-            }
-            return builder.toString();
+        // the config is passed in by Main, otherwise read from the classpath
+        final Future<JsonObject> config = config().isEmpty()
+                ? vertx.fileSystem().readFile(CONFIG_FILE).map(JsonObject::new)
+                : Future.succeededFuture(config());
+        config
+        // when enabled, the OIDC, CAS and SAML clients log in against in-process stand-ins rather than the real providers
+        .flatMap(conf -> MockIdpVerticle.deployIfEnabled(vertx, conf))
+        // the demo server verticles only start listening once every client is initialized
+        .flatMap(conf -> warmUpClients(conf).map(conf))
+        // the templates are compiled once for all of them
+        .flatMap(conf -> PrecompiledTemplates.shared(vertx, conf.getBoolean("templatesFailFast", false)).map(conf))
+        .map(MainVerticle::deploymentOptions)
+        .flatMap(options -> {
+            LOG.info("Deploying " + options.getInstances() + " instance(s) of the demo server verticle");
+            return vertx.deployVerticle(DemoServerVerticle.class.getName(), options);
         })
-        .map(s -> new JsonObject(s))
-        .map(conf -> new DeploymentOptions().setConfig(conf))
-        .flatMap(options -> vertx.deployVerticle(DemoServerVerticle.class.getName(), options))
-        .onComplete(s -> {
-            LOG.info("Demo server verticle deployed with deployment id '" + s + "'");
+        .onSuccess(s -> {
+            LOG.info("Demo server verticle deployed with deployment id '" + s + "', listening "
+                    + ManagementFactory.getRuntimeMXBean().getUptime() + " ms after JVM start");
             startPromise.complete();
-        });
+        })
+        .onFailure(startPromise::fail);
+
+    }
+
+    @Override
+    public void stop(final Promise<Void> stopPromise) {
+        // the demo server verticles deployed by this one are undeployed by now
+        CachingResourceRetriever.closeShared(vertx).onComplete(stopPromise);
+    }
+
+    /**
+     * Builds the pac4j config once and initializes all its clients in parallel, publishing it for the demo server
+     * verticles to share, see {@link ClientWarmup}. Its session store is set here, before it is published, as the
+     * sessions of every verticle live in the same store.
+     */
+    private Future<Void> warmUpClients(final JsonObject conf) {
+        if (!ClientWarmup.isEnabled(conf)) {
+            return Future.succeededFuture();
+        }
+        final SessionStore sessionStore = DemoServerVerticle.createSessionStore(vertx, conf);
+        final Config config = new Pac4jConfigurationFactory(conf, vertx, sessionStore).build();
+        final VertxSessionStore pac4jSessionStore = new LazySessionStore(sessionStore);
+        config.setSessionStoreFactory(param -> pac4jSessionStore);
+        return ClientWarmup.run(vertx, config, conf, AUTH_WORKER_POOL_NAME, authWorkerPoolSize(conf))
+                .onSuccess(warmup -> warmup.publish(vertx))
+                .mapEmpty();
+    }
+
+    /**
+     * Deployment options of the DemoServerVerticle instances. Their blocking work, which is where pac4j validates
+     * credentials and retrieves profiles, runs on a dedicated, bounded worker pool rather than vert.x's default one.
+     */
+    static DeploymentOptions deploymentOptions(final JsonObject conf) {
+        return new DeploymentOptions()
+                .setConfig(conf)
+                .setInstances(serverInstances(conf))
+                .setWorkerPoolName(AUTH_WORKER_POOL_NAME)
+                .setWorkerPoolSize(authWorkerPoolSize(conf));
+    }
+
+    private static int authWorkerPoolSize(final JsonObject conf) {
+        return conf.getJsonObject("authExecution", new JsonObject())
+                .getInteger("workerPoolSize", DEFAULT_AUTH_WORKER_POOL_SIZE);
+    }
+
+    /**
+     * Number of DemoServerVerticle instances to deploy, taken from the "serverInstances" config entry. A missing or
+     * non-positive value means one instance per available core, so that every event loop serves requests.
+     */
+    static int serverInstances(final JsonObject conf) {
+        final int configured = conf.getInteger("serverInstances", 0);
+        return configured > 0 ? configured : Runtime.getRuntime().availableProcessors();
 
     }
 }
@@ -0,0 +1,51 @@
+package org.pac4j.vertx.verticle;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.Shareable;
+import org.pac4j.vertx.SharedInstances;
+import org.pac4j.vertx.config.ClientWarmup;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Whether the demo server is ready to serve: the client warmup, when enabled, has completed and every configured
+ * DemoServerVerticle instance is listening. Until then, the metrics listener answers /ready with a 503.
+ *
+ * One readiness is shared by all verticle instances of a vert.x instance, see {@link #shared(Vertx, JsonObject)}.
+ *
+ * @since 7.0.0
+ */
+class ServerReadiness implements Shareable {
+
+
+    private final int instances;
+    private final boolean warmupEnabled;
+    private final AtomicInteger listening = new AtomicInteger();
+
+    ServerReadiness(final int instances, final boolean warmupEnabled) {
+        this.instances = instances;
+        this.warmupEnabled = warmupEnabled;
+    }
+
+    /**
+     * @return the readiness shared by every verticle of this vert.x instance, created from the given config by the
+     * first caller
+     */
+    static ServerReadiness shared(final Vertx vertx, final JsonObject config) {
+        return SharedInstances.getOrCreate(vertx, ServerReadiness.class,
+                () -> new ServerReadiness(MainVerticle.serverInstances(config), ClientWarmup.isEnabled(config)));
+    }
+
+    void listening() {
+        listening.incrementAndGet();
+    }
+
+    void stopped() {
+        listening.decrementAndGet();
+    }
+
+    boolean isReady(final Vertx vertx) {
+        return listening.get() >= instances && (!warmupEnabled || ClientWarmup.published(vertx) != null);
+    }
+}
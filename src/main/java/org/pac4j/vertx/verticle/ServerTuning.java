@@ -0,0 +1,88 @@
+package org.pac4j.vertx.verticle;
+
+import io.netty.handler.codec.compression.StandardCompressionOptions;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.http.Http2Settings;
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.json.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Listener and transport tuning of the demo server, from the "server" config object:
+ * <ul>
+ *     <li>"h2c": HTTP/2 over cleartext, by prior knowledge or upgrade, with at most "http2MaxConcurrentStreams"
+ *     streams per connection</li>
+ *     <li>"compression": gzip/deflate compression of responses at "compressionLevel" (1 to 9) for clients accepting
+ *     it, plus brotli when "brotli" is set and brotli4j is on the classpath</li>
+ *     <li>"tcpNoDelay", "tcpFastOpen" and "reusePort", the last two needing the native transport</li>
+ *     <li>"idleTimeoutSeconds" after which idle connections are closed (0 never closes them) and "acceptBacklog"</li>
+ *     <li>"nativeTransport": prefer epoll/kqueue over NIO when the netty native transport is on the classpath</li>
+ * </ul>
+ * Missing entries keep the vert.x defaults.
+ *
+ * @since 7.0.0
+ */
+public final class ServerTuning {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ServerTuning.class);
+
+    public static final String CONFIG_KEY = "server";
+    public static final int MAX_FORM_ATTRIBUTE_SIZE = 65536;
+
+    private static final String BROTLI_CLASS = "com.aayushatharva.brotli4j.Brotli4jLoader";
+
+    private ServerTuning() {
+    }
+
+    public static HttpServerOptions httpServerOptions(final JsonObject config) {
+        final JsonObject conf = config.getJsonObject(CONFIG_KEY, new JsonObject());
+        final HttpServerOptions options = new HttpServerOptions().setMaxFormAttributeSize(MAX_FORM_ATTRIBUTE_SIZE);
+
+        options.setHttp2ClearTextEnabled(conf.getBoolean("h2c", options.isHttp2ClearTextEnabled()));
+        if (conf.containsKey("http2MaxConcurrentStreams")) {
+            options.setInitialSettings(new Http2Settings()
+                    .setMaxConcurrentStreams(conf.getLong("http2MaxConcurrentStreams")));
+        }
+
+        if (conf.getBoolean("compression", false)) {
+            final int level = conf.getInteger("compressionLevel", HttpServerOptions.DEFAULT_COMPRESSION_LEVEL);
+            options.setCompressionSupported(true)
+                    .setCompressionLevel(level)
+                    .addCompressor(StandardCompressionOptions.gzip(level, 15, 8))
+                    .addCompressor(StandardCompressionOptions.deflate(level, 15, 8));
+            if (conf.getBoolean("brotli", false)) {
+                if (brotliAvailable()) {
+                    options.addCompressor(StandardCompressionOptions.brotli());
+                } else {
+                    LOG.warn("Brotli compression requested but brotli4j isn't on the classpath, only gzip/deflate are used");
+                }
+            }
+        }
+
+        options.setTcpNoDelay(conf.getBoolean("tcpNoDelay", options.isTcpNoDelay()));
+        options.setTcpFastOpen(conf.getBoolean("tcpFastOpen", options.isTcpFastOpen()));
+        options.setReusePort(conf.getBoolean("reusePort", options.isReusePort()));
+        if (conf.containsKey("idleTimeoutSeconds")) {
+            options.setIdleTimeout(conf.getInteger("idleTimeoutSeconds")).setIdleTimeoutUnit(TimeUnit.SECONDS);
+        }
+        options.setAcceptBacklog(conf.getInteger("acceptBacklog", options.getAcceptBacklog()));
+        return options;
+    }
+
+    public static VertxOptions vertxOptions(final JsonObject config) {
+        final JsonObject conf = config.getJsonObject(CONFIG_KEY, new JsonObject());
+        return new VertxOptions().setPreferNativeTransport(conf.getBoolean("nativeTransport", false));
+    }
+
+    private static boolean brotliAvailable() {
+        try {
+            Class.forName(BROTLI_CLASS, false, ServerTuning.class.getClassLoader());
+            return true;
+        } catch (final ClassNotFoundException e) {
+            return false;
+        }
+    }
+}
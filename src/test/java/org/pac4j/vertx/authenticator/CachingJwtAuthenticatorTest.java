@@ -0,0 +1,77 @@
+package org.pac4j.vertx.authenticator;
+
+import org.junit.Test;
+import org.pac4j.core.context.CallContext;
+import org.pac4j.core.context.MockWebContext;
+import org.pac4j.core.context.session.MockSessionStore;
+import org.pac4j.core.credentials.Credentials;
+import org.pac4j.core.credentials.TokenCredentials;
+import org.pac4j.core.credentials.authenticator.Authenticator;
+import org.pac4j.core.profile.UserProfile;
+import org.pac4j.jwt.profile.JwtProfile;
+import org.pac4j.vertx.cache.ExpiringLruCache;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Checks that verified tokens are only validated once, and that every request gets a profile of its own.
+ *
+ * @since 7.0.0
+ */
+public class CachingJwtAuthenticatorTest {
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private final Authenticator backend = (ctx, credentials) -> {
+        calls.incrementAndGet();
+        final JwtProfile profile = new JwtProfile();
+        profile.setId("jleleu");
+        profile.addAttribute("email", "jleleu@example.org");
+        profile.addRole("ROLE_USER");
+        credentials.setUserProfile(profile);
+        return Optional.of(credentials);
+    };
+    private final CachingJwtAuthenticator authenticator =
+            new CachingJwtAuthenticator(backend, new ExpiringLruCache<>(100), 60_000);
+    private final CallContext ctx = new CallContext(MockWebContext.create(), new MockSessionStore());
+
+    @Test
+    public void testTokenIsValidatedOnce() {
+        for (int i = 0; i < 5; i++) {
+            assertThat(validate("token").getId(), is("jleleu"));
+        }
+        assertThat(calls.get(), is(1));
+        assertThat(authenticator.hits(), is(4L));
+    }
+
+    @Test
+    public void testEveryRequestGetsItsOwnProfile() {
+        final UserProfile first = validate("token");
+        // as authorization generators and the security logic do once the request is authenticated
+        first.addRole("ROLE_ADMIN");
+        first.setClientName("ParameterClient");
+        first.addAttribute("email", "changed@example.org");
+
+        final UserProfile second = validate("token");
+        final UserProfile third = validate("token");
+        assertThat(second, not(sameInstance(third)));
+        assertThat(second, instanceOf(JwtProfile.class));
+        assertThat(second.getRoles().contains("ROLE_ADMIN"), is(false));
+        assertThat(second.getRoles().contains("ROLE_USER"), is(true));
+        assertThat(second.getAttribute("email"), is("jleleu@example.org"));
+
+        second.addRole("ROLE_OTHER");
+        assertThat(third.getRoles().contains("ROLE_OTHER"), is(false));
+    }
+
+    private UserProfile validate(final String token) {
+        final Optional<Credentials> validated = authenticator.validate(ctx, new TokenCredentials(token));
+        return validated.get().getUserProfile();
+    }
+}
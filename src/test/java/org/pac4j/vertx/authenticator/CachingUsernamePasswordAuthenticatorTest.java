@@ -0,0 +1,211 @@
+package org.pac4j.vertx.authenticator;
+
+import io.vertx.core.Vertx;
+import org.junit.Test;
+import org.pac4j.core.context.CallContext;
+import org.pac4j.core.context.MockWebContext;
+import org.pac4j.core.context.session.MockSessionStore;
+import org.pac4j.core.credentials.Credentials;
+import org.pac4j.core.credentials.UsernamePasswordCredentials;
+import org.pac4j.core.credentials.authenticator.Authenticator;
+import org.pac4j.core.exception.CredentialsException;
+import org.pac4j.core.profile.CommonProfile;
+import org.pac4j.core.profile.UserProfile;
+import org.pac4j.vertx.cache.ExpiringLruCache;
+import org.pac4j.vertx.verticle.DemoServerFixture;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks the authenticator's caching, negative caching and coalescing against a stand-in backend counting its calls.
+ *
+ * @since 7.0.0
+ */
+public class CachingUsernamePasswordAuthenticatorTest {
+
+    private static final long TTL = 60_000;
+    private static final long NEGATIVE_TTL = 10_000;
+
+    private final AtomicLong now = new AtomicLong(1000);
+    private final CountingAuthenticator backend = new CountingAuthenticator();
+    private final CachingUsernamePasswordAuthenticator authenticator = new CachingUsernamePasswordAuthenticator(
+            backend, new ExpiringLruCache<>(100, now::get), TTL, NEGATIVE_TTL);
+    private final CallContext ctx = new CallContext(MockWebContext.create(), new MockSessionStore());
+
+    @Test
+    public void testValidCredentialsAreCheckedOnceUntilExpiry() {
+        for (int i = 0; i < 10; i++) {
+            final Optional<Credentials> validated = authenticator.validate(ctx, credentials("jleleu", "jleleu"));
+            assertThat(validated.get().getUserProfile().getId(), is("jleleu"));
+        }
+        assertThat(backend.calls.get(), is(1));
+
+        now.addAndGet(TTL);
+        authenticator.validate(ctx, credentials("jleleu", "jleleu"));
+        assertThat(backend.calls.get(), is(2));
+    }
+
+    @Test
+    public void testEveryRequestGetsItsOwnProfile() {
+        final UserProfile first = authenticator.validate(ctx, credentials("jleleu", "jleleu")).get().getUserProfile();
+        first.addRole("ROLE_ADMIN");
+        first.setClientName("DirectBasicAuthClient");
+
+        final UserProfile second = authenticator.validate(ctx, credentials("jleleu", "jleleu")).get().getUserProfile();
+        assertThat(second, not(sameInstance(first)));
+        assertThat(second.getId(), is("jleleu"));
+        assertThat(second.getRoles().contains("ROLE_ADMIN"), is(false));
+        assertThat(second.getClientName(), nullValue());
+        assertThat(backend.calls.get(), is(1));
+    }
+
+    @Test
+    public void testFailuresAreCachedForTheNegativeTtl() {
+        for (int i = 0; i < 10; i++) {
+            try {
+                authenticator.validate(ctx, credentials("jleleu", "wrong"));
+                fail("Bad credentials must be rejected");
+            } catch (final CredentialsException e) {
+                assertThat(e.getMessage(), is(CountingAuthenticator.REJECTED));
+            }
+        }
+        assertThat(backend.calls.get(), is(1));
+
+        now.addAndGet(NEGATIVE_TTL);
+        try {
+            authenticator.validate(ctx, credentials("jleleu", "wrong"));
+            fail("Bad credentials must be rejected");
+        } catch (final CredentialsException e) {
+            assertThat(backend.calls.get(), is(2));
+        }
+    }
+
+    @Test
+    public void testCredentialsAreCachedSeparately() {
+        authenticator.validate(ctx, credentials("jleleu", "jleleu"));
+        authenticator.validate(ctx, credentials("jleleu2", "jleleu2"));
+        try {
+            authenticator.validate(ctx, credentials("jleleu", "jleleu2"));
+        } catch (final CredentialsException e) {
+            // expected
+        }
+        assertThat(backend.calls.get(), is(3));
+    }
+
+    @Test
+    public void testConcurrentIdenticalLookupsAreCoalesced() throws Exception {
+        backend.delayMillis = 200;
+        final int callers = 20;
+        final ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit((Callable<String>) () -> {
+                    start.await();
+                    return authenticator.validate(ctx, credentials("jleleu", "jleleu")).get().getUserProfile().getId();
+                }));
+            }
+            start.countDown();
+            for (final Future<String> result : results) {
+                assertThat(result.get(10, TimeUnit.SECONDS), is("jleleu"));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(backend.calls.get(), is(1));
+    }
+
+    @Test
+    public void testEventLoopCallersDoNotWaitForAnotherThread() throws Exception {
+        backend.delayMillis = 500;
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final Vertx vertx = Vertx.vertx();
+        try {
+            final Future<?> worker = executor.submit(() -> authenticator.validate(ctx, credentials("jleleu", "jleleu")));
+            while (backend.calls.get() == 0) {
+                Thread.sleep(5);
+            }
+            // an event loop has the backend called on its own thread rather than blocking on the worker's call
+            final CompletableFuture<String> onEventLoop = new CompletableFuture<>();
+            vertx.runOnContext(v -> onEventLoop.complete(authenticator.validate(ctx, credentials("jleleu", "jleleu"))
+                    .get().getUserProfile().getId()));
+            assertThat(onEventLoop.get(10, TimeUnit.SECONDS), is("jleleu"));
+            worker.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+            DemoServerFixture.await(vertx.close());
+        }
+        assertThat(backend.calls.get(), is(2));
+    }
+
+    @Test
+    public void testBackendErrorsAreNotCached() {
+        backend.unavailable = true;
+        for (int i = 0; i < 2; i++) {
+            try {
+                authenticator.validate(ctx, credentials("jleleu", "jleleu"));
+                fail("Backend errors must be passed on");
+            } catch (final IllegalStateException e) {
+                // expected
+            }
+        }
+        assertThat(backend.calls.get(), is(2));
+    }
+
+    private static UsernamePasswordCredentials credentials(final String username, final String password) {
+        return new UsernamePasswordCredentials(username, password);
+    }
+
+    /**
+     * Stand-in for an LDAP or SQL backend: accepts username == password.
+     */
+    private static class CountingAuthenticator implements Authenticator {
+        private static final String REJECTED = "Username and password must be equal";
+
+        private final AtomicInteger calls = new AtomicInteger();
+        private volatile long delayMillis;
+        private volatile boolean unavailable;
+
+        @Override
+        public Optional<Credentials> validate(final CallContext ctx, final Credentials credentials) {
+            calls.incrementAndGet();
+            if (delayMillis > 0) {
+                try {
+                    Thread.sleep(delayMillis);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (unavailable) {
+                throw new IllegalStateException("Backend unavailable");
+            }
+            final UsernamePasswordCredentials usernamePassword = (UsernamePasswordCredentials) credentials;
+            if (!usernamePassword.getUsername().equals(usernamePassword.getPassword())) {
+                throw new CredentialsException(REJECTED);
+            }
+            final CommonProfile profile = new CommonProfile();
+            profile.setId(usernamePassword.getUsername());
+            credentials.setUserProfile(profile);
+            return Optional.of(credentials);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package org.pac4j.vertx.authorizer;
+
+import org.junit.Test;
+import org.pac4j.core.authorization.authorizer.Authorizer;
+import org.pac4j.core.authorization.authorizer.RequireAnyRoleAuthorizer;
+import org.pac4j.core.context.MockWebContext;
+import org.pac4j.core.context.WebContext;
+import org.pac4j.core.context.session.MockSessionStore;
+import org.pac4j.core.context.session.SessionStore;
+import org.pac4j.core.profile.CommonProfile;
+import org.pac4j.core.profile.UserProfile;
+import org.pac4j.core.util.Pac4jConstants;
+import org.pac4j.vertx.session.SessionCaches;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Counts the invocations of the authorizers behind the decision cache.
+ *
+ * @since 7.0.0
+ */
+public class CachingAuthorizerTest {
+
+    private final WebContext context = MockWebContext.create();
+    private final SessionStore sessionStore = new MockSessionStore();
+    private final CountingAuthorizer admin = new CountingAuthorizer(new RequireAnyRoleAuthorizer("ROLE_ADMIN"));
+    private final CountingAuthorizer custom = new CountingAuthorizer(new CustomAuthorizer());
+    private final Authorizer cachingAdmin = new CachingAuthorizer("admin", admin);
+    private final Authorizer cachingCustom = new CachingAuthorizer("custom", custom);
+
+    @Test
+    public void testDecisionIsMadeOncePerProfileSet() {
+        final List<UserProfile> profiles = login(profile("jleleu", "ROLE_ADMIN"));
+        for (int i = 0; i < 10; i++) {
+            assertThat(cachingAdmin.isAuthorized(context, sessionStore, profiles), is(true));
+            assertThat(cachingCustom.isAuthorized(context, sessionStore, profiles), is(true));
+        }
+        assertThat(admin.calls.get(), is(1));
+        assertThat(custom.calls.get(), is(1));
+    }
+
+    @Test
+    public void testNegativeDecisionsAreCachedToo() {
+        final List<UserProfile> profiles = login(profile("someone", "ROLE_USER"));
+        for (int i = 0; i < 10; i++) {
+            assertThat(cachingAdmin.isAuthorized(context, sessionStore, profiles), is(false));
+        }
+        assertThat(admin.calls.get(), is(1));
+    }
+
+    @Test
+    public void testDecisionIsStoredAsBooleanUnderTheProfilesVersion() {
+        cachingAdmin.isAuthorized(context, sessionStore, login(profile("jleleu", "ROLE_ADMIN")));
+        assertThat(sessionStore.get(context, SessionCaches.KEY_PREFIX + "authorizer.admin@0"),
+                is(Optional.of(Boolean.TRUE)));
+    }
+
+    @Test
+    public void testNewLoginIsAuthorizedAgain() {
+        assertThat(cachingAdmin.isAuthorized(context, sessionStore, login(profile("someone", "ROLE_USER"))), is(false));
+
+        // what SessionCaches.invalidationHandler() does on the callback and logout
+        sessionStore.set(context, SessionCaches.PROFILES_VERSION_KEY, 1);
+        final List<UserProfile> profiles = login(profile("jleleu", "ROLE_ADMIN"));
+        assertThat(cachingAdmin.isAuthorized(context, sessionStore, profiles), is(true));
+        assertThat(cachingAdmin.isAuthorized(context, sessionStore, profiles), is(true));
+        assertThat(admin.calls.get(), is(2));
+    }
+
+    @Test
+    public void testProfilesOutsideTheSessionAreNotCached() {
+        login(profile("jleleu", "ROLE_USER"));
+        final List<UserProfile> direct = List.of(profile("jleleu", "ROLE_ADMIN"));
+        for (int i = 0; i < 3; i++) {
+            assertThat(cachingAdmin.isAuthorized(context, sessionStore, direct), is(true));
+        }
+        assertThat(admin.calls.get(), is(3));
+    }
+
+    @Test
+    public void testRequestsWithoutSessionAreNotCached() {
+        final List<UserProfile> profiles = List.of(profile("jleleu", "ROLE_ADMIN"));
+        for (int i = 0; i < 3; i++) {
+            cachingAdmin.isAuthorized(context, sessionStore, profiles);
+        }
+        assertThat(admin.calls.get(), is(3));
+        assertThat(sessionStore.getSessionId(context, false).isPresent(), is(false));
+    }
+
+    /**
+     * Saves the profile in the session, as the callback does.
+     */
+    private List<UserProfile> login(final CommonProfile profile) {
+        final LinkedHashMap<String, UserProfile> profiles = new LinkedHashMap<>();
+        profiles.put("client", profile);
+        sessionStore.set(context, Pac4jConstants.USER_PROFILES, profiles);
+        return List.of(profile);
+    }
+
+    private static CommonProfile profile(final String id, final String role) {
+        final CommonProfile profile = new CommonProfile();
+        profile.setId(id);
+        profile.addAttribute("username", id);
+        profile.addRole(role);
+        return profile;
+    }
+
+    private static class CountingAuthorizer implements Authorizer {
+        private final Authorizer delegate;
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private CountingAuthorizer(final Authorizer delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public boolean isAuthorized(final WebContext context, final SessionStore sessionStore, final List<UserProfile> profiles) {
+            calls.incrementAndGet();
+            return delegate.isAuthorized(context, sessionStore, profiles);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package org.pac4j.vertx.benchmark;
+
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.PoolOptions;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pac4j.vertx.handler.ErrorPages;
+import org.pac4j.vertx.session.StatelessPaths;
+import org.pac4j.vertx.verticle.DemoServerFixture;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of 401 responses, as during a credential stuffing burst, with the former failure handler sending the
+ * error page file for every request and with the error pages built at startup. The failing route stands in for a
+ * rejected login, so only the error path is measured.
+ *
+ * @since 7.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(32)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+public class ErrorPagesBenchmark {
+
+
+    @Param({"sendFile", "errorPages"})
+    public String failureHandler;
+
+    private Vertx vertx;
+    private HttpClient client;
+    private int port;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        vertx = Vertx.vertx();
+        final Router router = Router.router(vertx);
+        router.route().failureHandler("sendFile".equals(failureHandler)
+                ? sendFileHandler()
+                : ErrorPages.load(vertx, StatelessPaths.fromConfig(DemoServerFixture.demoConfig())).failureHandler());
+        router.route().handler(rc -> rc.fail(401));
+        port = DemoServerFixture.await(vertx.createHttpServer().requestHandler(router).listen(0)).actualPort();
+        client = vertx.createHttpClient(new HttpClientOptions().setKeepAlive(true), new PoolOptions().setHttp1MaxSize(64));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        DemoServerFixture.await(vertx.close());
+    }
+
+    @Benchmark
+    public int statelessApi401() throws Exception {
+        return get("/dba/index.html", null);
+    }
+
+    @Benchmark
+    public int statefulPage401() throws Exception {
+        return get("/form/index.html", null);
+    }
+
+    @Benchmark
+    public int statefulPage401Gzip() throws Exception {
+        return get("/form/index.html", "gzip, deflate");
+    }
+
+    private int get(final String uri, final String acceptEncoding) throws Exception {
+        return DemoServerFixture.await(client.request(HttpMethod.GET, port, "localhost", uri).compose(request -> {
+            if (acceptEncoding != null) {
+                request.putHeader("Accept-Encoding", acceptEncoding);
+            }
+            return request.send();
+        }).compose(response -> {
+            if (response.statusCode() != 401) {
+                return Future.failedFuture("Unexpected status " + response.statusCode());
+            }
+            return response.body().map(body -> body.length());
+        }));
+    }
+
+    /**
+     * The failure handler as it was, resolving and sending the page file for every failed request.
+     */
+    private static Handler<RoutingContext> sendFileHandler() {
+        return rc -> {
+            final int statusCode = rc.statusCode();
+            rc.response().setStatusCode(statusCode > 0 ? statusCode : 500);
+            switch (rc.response().getStatusCode()) {
+                case 403:
+                    rc.response().sendFile("static/error403.html");
+                    break;
+                case 401:
+                    rc.response().sendFile("static/error401.html");
+                    break;
+                case 500:
+                    rc.response().sendFile("static/error500.html");
+                    break;
+                default:
+                    rc.response().end();
+            }
+        };
+    }
+}
@@ -0,0 +1,54 @@
+package org.pac4j.vertx.benchmark;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pac4j.vertx.handler.JsonBuffers;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares wrapping a rendered protected index page into the /form/index.html.json body the former way (decode to a
+ * String, pretty-print a JsonObject) with the compact byte-level escaping. Run with "-prof gc" to compare allocations.
+ *
+ * @since 7.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FormIndexJsonBenchmark {
+
+    private Buffer renderedPage;
+
+    @Setup
+    public void setUp() {
+        final StringBuilder page = new StringBuilder("<h1>protected area</h1>\n<a href=\"..\">Back</a><br />\n<br /><br />\nprofiles: ");
+        for (int i = 0; i < 3; i++) {
+            page.append("[{&quot;id&quot;:&quot;jle").append(i)
+                    .append("&quot;,&quot;attributes&quot;:{&quot;username&quot;:&quot;jle&quot;,&quot;city&quot;:&quot;Z\u00fcrich&quot;}}]");
+        }
+        renderedPage = Buffer.buffer(page.append("<br />\n").toString());
+    }
+
+    @Benchmark
+    public Buffer prettyPrintedString() {
+        return Buffer.buffer(new JsonObject().put("content", renderedPage.toString()).encodePrettily());
+    }
+
+    @Benchmark
+    public Buffer compactBytes() {
+        return JsonBuffers.stringField("content", renderedPage);
+    }
+}
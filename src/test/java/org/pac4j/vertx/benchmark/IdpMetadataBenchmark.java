@@ -0,0 +1,78 @@
+package org.pac4j.vertx.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.pac4j.vertx.saml.EntityMetadata;
+import org.pac4j.vertx.saml.IdpMetadataIndex;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looks up the entities of the shipped SAML metadata files (samlConfig/, run from the project directory) in the
+ * entityID index, and by parsing the multi-entity testshib file as a whole as it was before. Also measures parsing
+ * all files into a new index, which is the work of a reload.
+ *
+ * @since 7.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class IdpMetadataBenchmark {
+
+    private static final List<Path> FILES = Arrays.asList(Paths.get("samlConfig", "metadata-okta.xml"),
+            Paths.get("samlConfig", "testshib-providers.xml"), Paths.get("samlConfig", "openidp-feide.xml"));
+    private static final Path TESTSHIB = FILES.get(1);
+    private static final String[] ENTITY_IDS = {"https://idp.testshib.org/idp/shibboleth",
+            "https://sp.testshib.org/shibboleth-sp", "https://openidp.feide.no", "http://www.okta.com/exk5gxols9EwZuGon0h7"};
+
+    private IdpMetadataIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        index = IdpMetadataIndex.parse(FILES);
+    }
+
+    @Benchmark
+    public void indexedLookup(final Blackhole blackhole) {
+        for (final String entityId : ENTITY_IDS) {
+            blackhole.consume(index.get(entityId));
+        }
+    }
+
+    @Benchmark
+    public EntityMetadata parseWholeFileLookup() throws IOException {
+        try (InputStream in = Files.newInputStream(TESTSHIB)) {
+            for (final EntityMetadata entity : IdpMetadataIndex.parse(in, TESTSHIB.toString())) {
+                if (entity.getEntityId().equals(ENTITY_IDS[0])) {
+                    return entity;
+                }
+            }
+        }
+        return null;
+    }
+
+    @Benchmark
+    public IdpMetadataIndex reload() throws IOException {
+        return IdpMetadataIndex.parse(FILES);
+    }
+}
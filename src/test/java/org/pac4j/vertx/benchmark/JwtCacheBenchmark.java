@@ -0,0 +1,69 @@
+package org.pac4j.vertx.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pac4j.core.context.CallContext;
+import org.pac4j.core.context.MockWebContext;
+import org.pac4j.core.context.session.MockSessionStore;
+import org.pac4j.core.credentials.Credentials;
+import org.pac4j.core.credentials.TokenCredentials;
+import org.pac4j.core.credentials.authenticator.Authenticator;
+import org.pac4j.core.profile.CommonProfile;
+import org.pac4j.jwt.config.signature.SecretSignatureConfiguration;
+import org.pac4j.jwt.credentials.authenticator.JwtAuthenticator;
+import org.pac4j.jwt.profile.JwtGenerator;
+import org.pac4j.vertx.authenticator.CachingJwtAuthenticator;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares validating the same JWT over and over with and without the verified-token cache.
+ *
+ * @since 7.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class JwtCacheBenchmark {
+
+    private static final String SALT = "12345678901234567890123456789012";
+
+    private String token;
+    private CallContext ctx;
+    private Authenticator uncached;
+    private Authenticator cached;
+
+    @Setup
+    public void setUp() {
+        final CommonProfile profile = new CommonProfile();
+        profile.setId("jle");
+        profile.addAttribute("email", "jle@example.org");
+        token = new JwtGenerator(new SecretSignatureConfiguration(SALT)).generate(profile);
+        ctx = new CallContext(MockWebContext.create(), new MockSessionStore());
+        uncached = new JwtAuthenticator(new SecretSignatureConfiguration(SALT));
+        cached = new CachingJwtAuthenticator(new JwtAuthenticator(new SecretSignatureConfiguration(SALT)),
+                1000, 5, TimeUnit.MINUTES);
+    }
+
+    @Benchmark
+    public Optional<Credentials> uncached() {
+        return uncached.validate(ctx, new TokenCredentials(token));
+    }
+
+    @Benchmark
+    public Optional<Credentials> cached() {
+        return cached.validate(ctx, new TokenCredentials(token));
+    }
+}
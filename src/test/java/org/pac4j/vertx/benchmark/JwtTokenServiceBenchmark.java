@@ -0,0 +1,56 @@
+package org.pac4j.vertx.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pac4j.core.profile.CommonProfile;
+import org.pac4j.jwt.config.signature.SecretSignatureConfiguration;
+import org.pac4j.jwt.profile.JwtGenerator;
+import org.pac4j.vertx.jwt.JwtTokenService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares issuing a token with a generator built per request (the former /jwt.html behaviour) against the shared
+ * JwtTokenService. Run with "-prof gc" to compare allocation rates.
+ *
+ * @since 7.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class JwtTokenServiceBenchmark {
+
+    private static final String SALT = "12345678901234567890123456789012";
+
+    private CommonProfile profile;
+    private JwtTokenService tokenService;
+
+    @Setup
+    public void setUp() {
+        profile = new CommonProfile();
+        profile.setId("jle");
+        profile.addAttribute("email", "jle@example.org");
+        tokenService = new JwtTokenService(SALT);
+    }
+
+    @Benchmark
+    public String generatorPerRequest() {
+        return new JwtGenerator(new SecretSignatureConfiguration(SALT)).generate(profile);
+    }
+
+    @Benchmark
+    public String sharedTokenService() {
+        return tokenService.generate(profile);
+    }
+}
@@ -0,0 +1,67 @@
+package org.pac4j.vertx.benchmark;
+
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pac4j.vertx.handler.LoginThrottle;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the login throttle on credential submissions which are let through, from many threads over many distinct
+ * IPs and usernames, with the throttle disabled and enabled. The limits are high enough for no submission to be
+ * throttled, so only the bookkeeping is measured.
+ *
+ * @since 7.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Threads(8)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LoginThrottleBenchmark {
+
+    private static final int KEYS = 1 << 16;
+
+    @Param({"false", "true"})
+    public boolean enabled;
+
+    private LoginThrottle throttle;
+    private final String[] ips = new String[KEYS];
+    private final String[] usernames = new String[KEYS];
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final JsonObject limit = new JsonObject().put("burst", 10_000).put("perSecond", 1_000_000.0);
+        throttle = new LoginThrottle(new JsonObject().put("enabled", enabled).put("clients", new JsonObject()
+                .put("FormClient", new JsonObject().put("perIp", limit).put("perUsername", limit))));
+        for (int i = 0; i < KEYS; i++) {
+            ips[i] = "10." + (i >> 8 & 0xff) + "." + (i & 0xff) + "." + (i * 31 & 0xff);
+            usernames[i] = "user" + i;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+    }
+
+    @Benchmark
+    public long tryAcquire(final Cursor cursor) {
+        final int i = cursor.next++ & KEYS - 1;
+        return throttle.tryAcquire("FormClient", ips[i], usernames[i]);
+    }
+}
@@ -0,0 +1,65 @@
+package org.pac4j.vertx.benchmark;
+
+import io.vertx.core.buffer.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pac4j.core.profile.UserProfile;
+import org.pac4j.vertx.profile.CompactProfileCodec;
+import org.pac4j.vertx.profile.JavaSerializationProfileCodec;
+import org.pac4j.vertx.profile.ProfileCodec;
+import org.pac4j.vertx.profile.SampleProfiles;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares encoding and decoding a sample profile of each client type with Java serialization and with the compact
+ * codec. The encoded sizes are compared by {@code CompactProfileCodecTest#testEncodingIsSmallerThanJavaSerialization}.
+ *
+ * @since 7.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ProfileCodecBenchmark {
+
+    @Param({"FormClient", "FacebookClient", "TwitterClient", "CasClient", "SAML2Client", "OidcClient", "StravaClient",
+            "ParameterClient"})
+    public String client;
+
+    @Param({"java", "compact"})
+    public String codecName;
+
+    private ProfileCodec codec;
+    private UserProfile profile;
+    private Buffer encoded;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        codec = "java".equals(codecName) ? new JavaSerializationProfileCodec() : new CompactProfileCodec();
+        profile = SampleProfiles.all().get(client);
+        encoded = codec.encode(profile);
+    }
+
+    @Benchmark
+    public Buffer encode() {
+        return codec.encode(profile);
+    }
+
+    @Benchmark
+    public UserProfile decode() {
+        return codec.decode(encoded);
+    }
+}
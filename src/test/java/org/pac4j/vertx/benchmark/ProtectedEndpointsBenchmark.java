@@ -0,0 +1,102 @@
+package org.pac4j.vertx.benchmark;
+
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.PoolOptions;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pac4j.vertx.handler.ProtectedEndpoints;
+import org.pac4j.vertx.verticle.DemoServerFixture;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static io.vertx.core.http.HttpHeaders.CONTENT_TYPE;
+import static org.pac4j.vertx.handler.DemoHandlers.setContentTypeHandler;
+
+/**
+ * Throughput of the router on /rest-jwt/index.html, one of the last protected endpoints, with the endpoints of the
+ * demo config mounted as three routes each (security, content type, renderer) as they used to be, and as one route
+ * each. The security handlers and renderers are stand-ins letting every request through, so only routing is measured.
+ *
+ * @since 7.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(32)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+public class ProtectedEndpointsBenchmark {
+
+    private static final Buffer BODY = Buffer.buffer("<html><body>protected</body></html>");
+
+    @Param({"threeRoutes", "oneRoute"})
+    public String routing;
+
+    private Vertx vertx;
+    private HttpClient client;
+    private int port;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        vertx = Vertx.vertx();
+        final ProtectedEndpoints endpoints = ProtectedEndpoints.fromConfig(DemoServerFixture.demoConfig());
+        final Handler<RoutingContext> renderer = rc -> rc.response().end(BODY);
+        final Router router = Router.router(vertx);
+        // stands in for the session routing handler
+        router.route().handler(RoutingContext::next);
+        if ("threeRoutes".equals(routing)) {
+            for (final ProtectedEndpoints.Endpoint endpoint : endpoints.endpoints()) {
+                router.get(endpoint.path()).handler(RoutingContext::next);
+                router.get(endpoint.path()).handler(setContentTypeHandler("text/html"));
+                router.get(endpoint.path()).handler(renderer);
+            }
+        } else {
+            final Map<String, Handler<RoutingContext>> renderers = new HashMap<>();
+            endpoints.endpoints().forEach(endpoint -> renderers.put(endpoint.renderer(), renderer));
+            endpoints.mount(router, endpoint -> RoutingContext::next, renderers);
+        }
+        router.get("/*").handler(rc -> rc.response().putHeader(CONTENT_TYPE, "text/html").end());
+        port = DemoServerFixture.await(vertx.createHttpServer().requestHandler(router).listen(0)).actualPort();
+        client = vertx.createHttpClient(new HttpClientOptions().setKeepAlive(true), new PoolOptions().setHttp1MaxSize(64));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        DemoServerFixture.await(vertx.close());
+    }
+
+    @Benchmark
+    public int restJwt() throws Exception {
+        return DemoServerFixture.await(client.request(HttpMethod.GET, port, "localhost", "/rest-jwt/index.html")
+                .compose(request -> request.send())
+                .compose(response -> {
+                    if (response.statusCode() != 200) {
+                        return Future.failedFuture("Unexpected status " + response.statusCode());
+                    }
+                    return response.body().map(Buffer::length);
+                }));
+    }
+}
@@ -0,0 +1,51 @@
+package org.pac4j.vertx.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.pac4j.vertx.session.StatelessPaths;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Compares deciding whether the session handler applies with the former lookahead regex and with the compiled
+ * stateless path prefixes, over a mix of stateful and stateless paths.
+ *
+ * @since 7.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RouteClassifierBenchmark {
+
+    private static final String[] PATHS = {"/", "/index.html", "/form/index.html", "/facebookadmin/index.html",
+            "/dba/index.html", "/rest-jwt/index.html", "/callback", "/javascript/app.js"};
+
+    private final Pattern pattern = Pattern.compile("\\/((?!dba\\/|rest-jwt\\/)).*");
+    private final StatelessPaths statelessPaths = new StatelessPaths(StatelessPaths.DEFAULT_PREFIXES);
+
+    @Benchmark
+    public void regex(final Blackhole blackhole) {
+        for (final String path : PATHS) {
+            blackhole.consume(pattern.matcher(path).matches());
+        }
+    }
+
+    @Benchmark
+    public void statelessPrefixes(final Blackhole blackhole) {
+        for (final String path : PATHS) {
+            blackhole.consume(!statelessPaths.isStateless(path));
+        }
+    }
+}
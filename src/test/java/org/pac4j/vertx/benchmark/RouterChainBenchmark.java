@@ -0,0 +1,107 @@
+package org.pac4j.vertx.benchmark;
+
+import io.vertx.core.MultiMap;
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pac4j.vertx.verticle.DemoServerFixture;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives the full router of DemoServerVerticle (session, security, authorization and rendering handlers) in-process
+ * over HTTP, one benchmark per kind of request: anonymous, direct basic auth, JWT parameter, an existing form session
+ * and token issuing. Run it before and after a pac4j or vertx-pac4j upgrade, adding {@code -prof gc} to
+ * {@code jmh.args} to also compare the allocations per request.
+ *
+ * The "caches" parameter runs each benchmark with the verified JWT and basic auth outcome caches ("cached", the
+ * configured defaults) and without them ("uncached", jwtCacheSize and basicAuthCacheSize set to 0), where every request
+ * checks its JWT signature or its credentials again, as it would for mostly distinct callers.
+ *
+ * @since 7.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(16)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+public class RouterChainBenchmark {
+
+    @Param({"cached", "uncached"})
+    public String caches;
+
+    private DemoServerFixture server;
+    private String sessionCookie;
+    private MultiMap basicAuth;
+    private String jwtUri;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        final JsonObject config = new JsonObject().put("httpPort", DemoServerFixture.freePort());
+        if ("uncached".equals(caches)) {
+            config.put("jwtCacheSize", 0).put("basicAuthCacheSize", 0);
+        }
+        server = DemoServerFixture.start(config);
+        sessionCookie = server.loginWithForm("jle");
+        basicAuth = MultiMap.caseInsensitiveMultiMap().add("Authorization", "Basic "
+                + Base64.getEncoder().encodeToString("jle:jle".getBytes(StandardCharsets.UTF_8)));
+
+        final DemoServerFixture.Result tokens = server.get("/jwt.json", sessionCookie);
+        final String token = new JsonObject(tokens.body).getJsonArray("tokens").getJsonObject(0).getString("token");
+        jwtUri = "/rest-jwt/index.html?token=" + URLEncoder.encode(token, StandardCharsets.UTF_8);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        server.close();
+    }
+
+    @Benchmark
+    public int anonymousIndex() throws Exception {
+        return expectOk(server.get("/", null));
+    }
+
+    @Benchmark
+    public int directBasicAuth() throws Exception {
+        return expectOk(server.getWithHeaders("/dba/index.html", basicAuth));
+    }
+
+    @Benchmark
+    public int jwtParameter() throws Exception {
+        return expectOk(server.get(jwtUri, null));
+    }
+
+    @Benchmark
+    public int formSession() throws Exception {
+        return expectOk(server.get("/form/index.html", sessionCookie));
+    }
+
+    @Benchmark
+    public int jwtIssuing() throws Exception {
+        return expectOk(server.get("/jwt.html", sessionCookie));
+    }
+
+    private static int expectOk(final DemoServerFixture.Result result) {
+        if (result.status != 200) {
+            throw new IllegalStateException("Unexpected status " + result.status);
+        }
+        return result.body.length();
+    }
+}
@@ -0,0 +1,64 @@
+package org.pac4j.vertx.benchmark;
+
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pac4j.vertx.verticle.DemoServerFixture;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test of the form-protected page against a growing number of DemoServerVerticle instances sharing one session
+ * store. The session is created by a single login, so every instance has to resolve it from the shared store.
+ *
+ * @since 7.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(64)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+public class ServerInstancesBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    public int instances;
+
+    private DemoServerFixture server;
+    private String sessionCookie;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = DemoServerFixture.start(new JsonObject()
+                .put("httpPort", DemoServerFixture.freePort())
+                .put("serverInstances", instances));
+        sessionCookie = server.loginWithForm("jle");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        server.close();
+    }
+
+    @Benchmark
+    public int protectedFormPage() throws Exception {
+        final DemoServerFixture.Result result = server.get("/form/index.html", sessionCookie);
+        if (result.status != 200) {
+            throw new IllegalStateException("Unexpected status " + result.status);
+        }
+        return result.body.length();
+    }
+}
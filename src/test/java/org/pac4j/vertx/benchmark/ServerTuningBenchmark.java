@@ -0,0 +1,93 @@
+package org.pac4j.vertx.benchmark;
+
+import io.vertx.core.MultiMap;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.pac4j.vertx.verticle.DemoServerFixture;
+import org.pac4j.vertx.verticle.ServerTuning;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the protected endpoints served over HTTP/1.1 and over HTTP/2 cleartext (prior knowledge), with and without
+ * response compression, the rest of the "server" config object being tuned as in config_demo.json.
+ *
+ * @since 7.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(32)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+public class ServerTuningBenchmark {
+
+    @Param({"HTTP_1_1", "HTTP_2"})
+    public HttpVersion protocol;
+
+    @Param({"false", "true"})
+    public boolean compression;
+
+    private DemoServerFixture server;
+    private String sessionCookie;
+    private MultiMap basicAuth;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        final JsonObject tuning = DemoServerFixture.demoConfig().getJsonObject(ServerTuning.CONFIG_KEY, new JsonObject())
+                .copy()
+                .put("h2c", true)
+                .put("compression", compression);
+        final HttpClientOptions clientOptions = new HttpClientOptions()
+                .setKeepAlive(true)
+                .setProtocolVersion(protocol)
+                .setHttp2ClearTextUpgrade(false)
+                .setDecompressionSupported(compression);
+        server = DemoServerFixture.start(new JsonObject()
+                .put("httpPort", DemoServerFixture.freePort())
+                .put(ServerTuning.CONFIG_KEY, tuning), clientOptions);
+        sessionCookie = server.loginWithForm("jle");
+        basicAuth = MultiMap.caseInsensitiveMultiMap().add("Authorization", "Basic "
+                + Base64.getEncoder().encodeToString("jle:jle".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        server.close();
+    }
+
+    @Benchmark
+    public int formSession() throws Exception {
+        return expectOk(server.get("/form/index.html", sessionCookie));
+    }
+
+    @Benchmark
+    public int directBasicAuth() throws Exception {
+        return expectOk(server.getWithHeaders("/dba/index.html", basicAuth));
+    }
+
+    private static int expectOk(final DemoServerFixture.Result result) {
+        if (result.status != 200) {
+            throw new IllegalStateException("Unexpected status " + result.status);
+        }
+        return result.body.length();
+    }
+}
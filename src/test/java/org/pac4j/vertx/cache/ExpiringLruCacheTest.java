@@ -0,0 +1,50 @@
+package org.pac4j.vertx.cache;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Checks size-bounded LRU eviction, per-entry expiry and hit/miss accounting of the cache.
+ *
+ * @since 7.0.0
+ */
+public class ExpiringLruCacheTest {
+
+    private final AtomicLong now = new AtomicLong(1000);
+
+    @Test
+    public void testExpiredEntriesAreMisses() {
+        final ExpiringLruCache<String, String> cache = new ExpiringLruCache<>(10, now::get);
+        cache.put("a", "A", 2000);
+        assertThat(cache.get("a"), is("A"));
+        now.set(2000);
+        assertThat(cache.get("a"), is(nullValue()));
+        assertThat(cache.size(), is(0));
+        assertThat(cache.hits(), is(1L));
+        assertThat(cache.misses(), is(1L));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntryIsEvicted() {
+        final ExpiringLruCache<String, String> cache = new ExpiringLruCache<>(2, now::get);
+        cache.put("a", "A", 5000);
+        cache.put("b", "B", 5000);
+        cache.get("a");
+        cache.put("c", "C", 5000);
+        assertThat(cache.get("b"), is(nullValue()));
+        assertThat(cache.get("a"), is("A"));
+        assertThat(cache.get("c"), is("C"));
+    }
+
+    @Test
+    public void testAlreadyExpiredValuesAreNotStored() {
+        final ExpiringLruCache<String, String> cache = new ExpiringLruCache<>(2, now::get);
+        cache.put("a", "A", 1000);
+        assertThat(cache.size(), is(0));
+    }
+}
@@ -0,0 +1,151 @@
+package org.pac4j.vertx.config;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pac4j.core.client.Clients;
+import org.pac4j.core.client.direct.AnonymousClient;
+import org.pac4j.core.config.Config;
+import org.pac4j.vertx.handler.ProtectedEndpoints;
+
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.fail;
+
+/**
+ * @since 7.0.0
+ */
+public class ClientWarmupTest {
+
+    private static final long INIT_MILLIS = 500;
+
+    private Vertx vertx;
+
+    @Before
+    public void setUp() {
+        vertx = Vertx.vertx();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        await(vertx.close());
+    }
+
+    @Test
+    public void testClientsAreInitializedInParallel() throws Exception {
+        final Config config = new Config(new Clients(slowClient("Slow1"), slowClient("Slow2"), slowClient("Slow3")));
+
+        final long start = System.nanoTime();
+        final ClientWarmup warmup = await(ClientWarmup.run(vertx, config, warmupConf(false), "test-warmup", 4));
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), lessThan(2 * INIT_MILLIS));
+        assertThat(warmup.initMillis().keySet().size(), is(3));
+        config.getClients().getClients().forEach(client -> assertThat(((AnonymousClient) client).isInitialized(), is(true)));
+    }
+
+    @Test
+    public void testFailingClientIsSkippedUnlessFailFast() throws Exception {
+        final Config config = new Config(new Clients(slowClient("Slow1"), failingClient()));
+
+        final ClientWarmup warmup = await(ClientWarmup.run(vertx, config, warmupConf(false), "test-warmup", 4));
+        assertThat(warmup.initMillis().containsKey("Slow1"), is(true));
+        assertThat(warmup.initMillis().containsKey("Failing"), is(false));
+
+        try {
+            await(ClientWarmup.run(vertx, config, warmupConf(true), "test-warmup", 4));
+            fail("Warmup should fail fast");
+        } catch (final ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(IllegalStateException.class));
+        }
+    }
+
+    @Test
+    public void testTimedOutClientFinishesItsInit() throws Exception {
+        final Config config = new Config(new Clients(slowClient("Slow1")));
+        final JsonObject conf = warmupConf(false);
+        conf.getJsonObject(ClientWarmup.CONFIG_KEY).put("timeoutMs", INIT_MILLIS / 5);
+
+        final ClientWarmup warmup = await(ClientWarmup.run(vertx, config, conf, "test-warmup", 1));
+        final AnonymousClient client = (AnonymousClient) config.getClients().findClient("Slow1").get();
+        assertThat(warmup.initMillis().isEmpty(), is(true));
+        assertThat(client.isInitialized(), is(false));
+
+        // its worker pool is kept until the init returns
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(5 * INIT_MILLIS);
+        while (!client.isInitialized() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(client.isInitialized(), is(true));
+    }
+
+    @Test
+    public void testPublishedWarmupIsShared() throws Exception {
+        final Config config = new Config(new Clients(slowClient("Slow1")));
+        final ClientWarmup warmup = await(ClientWarmup.run(vertx, config, warmupConf(false), "test-warmup", 1));
+        warmup.publish(vertx);
+        assertThat(ClientWarmup.published(vertx).config(), sameInstance(config));
+    }
+
+    @Test
+    public void testUnreferencedClientsAreLeftLazy() throws Exception {
+        final Config config = new Config(new Clients(slowClient("Slow1"), slowClient("Slow2"), slowClient("Slow3")));
+        final JsonObject conf = warmupConf(false);
+        conf.getJsonObject(ClientWarmup.CONFIG_KEY).put("lazyUnreferenced", true);
+        conf.put(ProtectedEndpoints.CONFIG_KEY, new JsonArray()
+                .add(new JsonObject().put("path", "/a").put("clients", "Slow1"))
+                .add(new JsonObject().put("path", "/b").put("clients", "Slow1, Slow3")));
+
+        final ClientWarmup warmup = await(ClientWarmup.run(vertx, config, conf, "test-warmup", 4));
+        assertThat(warmup.initMillis().keySet(), is(Set.of("Slow1", "Slow3")));
+        assertThat(((AnonymousClient) config.getClients().findClient("Slow2").get()).isInitialized(), is(false));
+    }
+
+    private static JsonObject warmupConf(final boolean failFast) {
+        return new JsonObject().put(ClientWarmup.CONFIG_KEY, new JsonObject()
+                .put("enabled", true)
+                .put("timeoutMs", 5000)
+                .put("failFast", failFast));
+    }
+
+    private static AnonymousClient slowClient(final String name) {
+        final AnonymousClient client = new AnonymousClient() {
+            @Override
+            protected void internalInit(final boolean forceReinit) {
+                super.internalInit(forceReinit);
+                try {
+                    Thread.sleep(INIT_MILLIS);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        client.setName(name);
+        return client;
+    }
+
+    private static AnonymousClient failingClient() {
+        final AnonymousClient client = new AnonymousClient() {
+            @Override
+            protected void internalInit(final boolean forceReinit) {
+                throw new IllegalStateException("Identity provider unreachable");
+            }
+        };
+        client.setName("Failing");
+        return client;
+    }
+
+    private static <T> T await(final Future<T> future) throws Exception {
+        return future.toCompletionStage().toCompletableFuture().get(30, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,118 @@
+package org.pac4j.vertx.handler;
+
+import io.vertx.core.Future;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.PoolOptions;
+import io.vertx.core.json.JsonObject;
+import org.junit.After;
+import org.junit.Test;
+import org.pac4j.vertx.idp.MockIdpVerticle;
+import org.pac4j.vertx.loadtest.LoginFlow;
+import org.pac4j.vertx.verticle.DemoServerFixture;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.pac4j.vertx.verticle.DemoServerFixture.await;
+
+/**
+ * Runs the demo against a deliberately slow stand-in CAS server: flooded with CAS logins, it neither holds more than
+ * its share of the worker pool nor delays the other clients, and a timed out login gives its slot back once its 504 is
+ * sent.
+ *
+ * @since 7.0.0
+ */
+public class AuthBulkheadsTest {
+
+    private static final int CAS_LIMIT = 2;
+    private static final int SLOW_LOGINS = 20;
+    private static final long SLOW_IDP_MILLIS = 1500;
+
+    private DemoServerFixture server;
+    private HttpClient client;
+
+    @After
+    public void tearDown() throws Exception {
+        if (client != null) {
+            await(client.close());
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testSlowClientDoesNotDelayOtherClients() throws Exception {
+        final LoginFlow flow = start(10000);
+
+        final List<Future<String>> slowLogins = new ArrayList<>();
+        for (int i = 0; i < SLOW_LOGINS; i++) {
+            slowLogins.add(flow.login("/cas/index.html", "cas" + i));
+        }
+        Thread.sleep(200);
+
+        final long start = System.nanoTime();
+        assertThat(await(flow.login("/form/index.html", "jleleu")), containsString("jleleu"));
+        assertThat(server.get("/", null).status, is(200));
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), lessThan(SLOW_IDP_MILLIS / 2));
+
+        int succeeded = 0;
+        int rejected = 0;
+        for (final Future<String> slowLogin : slowLogins) {
+            try {
+                await(slowLogin);
+                succeeded++;
+            } catch (final Exception e) {
+                assertThat(e.getMessage(), containsString("Status 503"));
+                rejected++;
+            }
+        }
+        assertThat(succeeded, lessThanOrEqualTo(CAS_LIMIT));
+        assertThat(succeeded + rejected, is(SLOW_LOGINS));
+    }
+
+    @Test
+    public void testTimedOutLoginReleasesItsSlot() throws Exception {
+        final LoginFlow flow = start(200);
+        String failure = null;
+        try {
+            await(flow.login("/cas/index.html", "bob"));
+        } catch (final Exception e) {
+            failure = e.getMessage();
+        }
+        assertThat(failure, containsString("Status 504"));
+        final AuthBulkheads bulkheads = AuthBulkheads.shared(server.vertx(), new JsonObject());
+        // released by the end of the 504 response, the stand-in CAS server still not having answered
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SLOW_IDP_MILLIS / 2);
+        while (bulkheads.inFlight("CasClient") != 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(bulkheads.inFlight("CasClient"), is(0));
+    }
+
+    private LoginFlow start(final long timeoutMs) throws Exception {
+        final int port = DemoServerFixture.freePort();
+        server = DemoServerFixture.start(new JsonObject()
+                .put("httpPort", port)
+                .put("baseUrl", "http://localhost:" + port)
+                .put("serverInstances", 1)
+                .put(AuthBulkheads.CONFIG_KEY, new JsonObject()
+                        .put("enabled", true)
+                        .put("timeoutMs", timeoutMs)
+                        .put("clientLimits", new JsonObject().put("CasClient", CAS_LIMIT).put("AnonymousClient", 0)))
+                .put(MockIdpVerticle.CONFIG_KEY, new JsonObject()
+                        .put("enabled", true)
+                        .put("port", DemoServerFixture.freePort())
+                        .put("responseDelayMs", SLOW_IDP_MILLIS)));
+        client = server.vertx().createHttpClient(new HttpClientOptions(),
+                new PoolOptions().setHttp1MaxSize(SLOW_LOGINS + 5));
+        return new LoginFlow(client, "http://localhost:" + port);
+    }
+}
@@ -0,0 +1,141 @@
+package org.pac4j.vertx.handler;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.Router;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.pac4j.vertx.session.StatelessPaths;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Checks the error responses of stateful and stateless paths, with and without gzip.
+ *
+ * @since 7.0.0
+ */
+public class ErrorPagesTest {
+
+
+    private static Vertx vertx;
+    private static HttpClient client;
+    private static int port;
+    private static Buffer error401;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        vertx = Vertx.vertx();
+        error401 = vertx.fileSystem().readFileBlocking("static/error401.html");
+        final Router router = Router.router(vertx);
+        router.route().failureHandler(ErrorPages.load(vertx, new StatelessPaths(List.of("dba/"))).failureHandler());
+        router.get("/fail/:status").handler(rc -> rc.fail(Integer.parseInt(rc.pathParam("status"))));
+        router.get("/dba/fail/:status").handler(rc -> rc.fail(Integer.parseInt(rc.pathParam("status"))));
+        router.get("/boom").handler(rc -> {
+            throw new IllegalStateException("boom");
+        });
+        port = await(vertx.createHttpServer().requestHandler(router).listen(0)).actualPort();
+        client = vertx.createHttpClient();
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        await(vertx.close());
+    }
+
+    @Test
+    public void testHtmlPage() throws Exception {
+        final Response response = get("/fail/401", null);
+        assertThat(response.status, is(401));
+        assertThat(response.contentType, is("text/html; charset=utf-8"));
+        assertThat(response.contentEncoding, nullValue());
+        assertThat(response.body, is(error401));
+    }
+
+    @Test
+    public void testGzippedHtmlPage() throws Exception {
+        final Response response = get("/fail/401", "deflate, gzip;q=0.8");
+        assertThat(response.status, is(401));
+        assertThat(response.contentEncoding, is("gzip"));
+        assertThat(gunzip(response.body), is(error401));
+    }
+
+    @Test
+    public void testGzipRefused() throws Exception {
+        assertThat(get("/fail/403", "gzip;q=0, br").contentEncoding, nullValue());
+    }
+
+    @Test
+    public void testUnexpectedFailureIsA500() throws Exception {
+        final Response response = get("/boom", null);
+        assertThat(response.status, is(500));
+        assertThat(response.body, is(vertx.fileSystem().readFileBlocking("static/error500.html")));
+    }
+
+    @Test
+    public void testJsonForStatelessPaths() throws Exception {
+        final Response response = get("/dba/fail/401", "gzip");
+        assertThat(response.status, is(401));
+        assertThat(response.contentType, is("application/json"));
+        assertThat(response.contentEncoding, nullValue());
+        assertThat(new JsonObject(response.body), is(new JsonObject().put("status", 401).put("error", "Unauthorized")));
+
+        assertThat(new JsonObject(get("/dba/fail/503", null).body).getString("error"), is("Service Unavailable"));
+    }
+
+    @Test
+    public void testAcceptsGzip() {
+        assertThat(ErrorPages.acceptsGzip(null), is(false));
+        assertThat(ErrorPages.acceptsGzip("br"), is(false));
+        assertThat(ErrorPages.acceptsGzip("GZIP"), is(true));
+        assertThat(ErrorPages.acceptsGzip("*;q=0.1"), is(true));
+        assertThat(ErrorPages.acceptsGzip("gzip; q=0.0"), is(false));
+    }
+
+    private static Response get(final String uri, final String acceptEncoding) throws Exception {
+        return await(client.request(HttpMethod.GET, port, "localhost", uri).compose(request -> {
+            if (acceptEncoding != null) {
+                request.putHeader("Accept-Encoding", acceptEncoding);
+            }
+            return request.send();
+        }).compose(response -> response.body().map(body -> new Response(response, body))));
+    }
+
+    private static Buffer gunzip(final Buffer gzipped) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped.getBytes()))) {
+            return Buffer.buffer(in.readAllBytes());
+        }
+    }
+
+    private static <T> T await(final Future<T> future) throws Exception {
+        return future.toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    }
+
+    private static class Response {
+        private final int status;
+        private final String contentType;
+        private final String contentEncoding;
+        private final Buffer body;
+
+        private Response(final HttpClientResponse response, final Buffer body) {
+            this.status = response.statusCode();
+            this.contentType = response.getHeader("Content-Type");
+            this.contentEncoding = response.getHeader("Content-Encoding");
+            this.body = body;
+        }
+    }
+}
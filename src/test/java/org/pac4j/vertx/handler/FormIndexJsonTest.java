@@ -0,0 +1,67 @@
+package org.pac4j.vertx.handler;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.pac4j.vertx.verticle.DemoServerFixture;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Checks both formats of /form/index.html.json for a form login: the rendered page as {"content": "..."} and, with
+ * format=profiles, the session's profiles.
+ *
+ * @since 7.0.0
+ */
+public class FormIndexJsonTest {
+
+    private static DemoServerFixture server;
+    private static String sessionCookie;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        final int port = DemoServerFixture.freePort();
+        server = DemoServerFixture.start(new JsonObject()
+                .put("httpPort", port)
+                .put("baseUrl", "http://localhost:" + port)
+                .put("serverInstances", 1));
+        sessionCookie = server.loginWithForm("jle");
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        server.close();
+    }
+
+    @Test
+    public void testRenderedContent() throws Exception {
+        final DemoServerFixture.Result result = server.get("/form/index.html.json", sessionCookie);
+        assertThat(result.status, is(200));
+        final JsonObject json = new JsonObject(result.body);
+        assertThat(json.fieldNames().size(), is(1));
+        assertThat(json.getString("content"), containsString("jle"));
+    }
+
+    @Test
+    public void testProfiles() throws Exception {
+        final DemoServerFixture.Result result = server.get("/form/index.html.json?format=profiles", sessionCookie);
+        assertThat(result.status, is(200));
+        final JsonArray profiles = new JsonObject(result.body).getJsonArray("profiles");
+        assertThat(profiles.size(), is(1));
+        final JsonObject profile = profiles.getJsonObject(0);
+        assertThat(profile.getString("id"), is("jle"));
+        assertThat(profile.getString("clientName"), is("FormClient"));
+        assertThat(profile.getJsonArray("roles") != null, is(true));
+        assertThat(profile.getJsonObject("attributes").getString("username"), is("jle"));
+    }
+
+    @Test
+    public void testProfilesNeedALogin() throws Exception {
+        final DemoServerFixture.Result result = server.get("/form/index.html.json?format=profiles", null);
+        assertThat(result.status, is(302));
+    }
+}
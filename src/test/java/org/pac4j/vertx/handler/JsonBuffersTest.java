@@ -0,0 +1,65 @@
+package org.pac4j.vertx.handler;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Checks that the content written by {@link JsonBuffers#stringField} reads back as is with a JSON parser.
+ *
+ * @since 7.0.0
+ */
+public class JsonBuffersTest {
+
+    @Test
+    public void testPlainText() {
+        assertRoundTrip("<p>Hello jle</p>");
+    }
+
+    @Test
+    public void testEmptyContent() {
+        assertRoundTrip("");
+    }
+
+    @Test
+    public void testQuotesAndBackslashes() {
+        assertRoundTrip("<a href=\"/logout?url=\\\">\"\\\\\"</a>\\");
+    }
+
+    @Test
+    public void testControlCharacters() {
+        final StringBuilder content = new StringBuilder();
+        for (char c = 0; c < 0x20; c++) {
+            content.append('[').append(c).append(']');
+        }
+        assertRoundTrip(content.append("\u007f").toString());
+    }
+
+    @Test
+    public void testLineAndParagraphSeparators() {
+        assertRoundTrip("line\u2028separator\u2029paragraph");
+    }
+
+    @Test
+    public void testMultiByteUtf8() {
+        assertRoundTrip("caf\u00e9 \u20ac \u65e5\u672c\u8a9e \ud83d\udd12 \"\u00e9\"\n\u00e9");
+    }
+
+    @Test
+    public void testOutputIsCompact() {
+        final Buffer json = JsonBuffers.stringField("content", Buffer.buffer("a\"b"));
+        assertThat(json.toString(StandardCharsets.UTF_8), is("{\"content\":\"a\\\"b\"}"));
+    }
+
+    private static void assertRoundTrip(final String content) {
+        final Buffer json = JsonBuffers.stringField("content", Buffer.buffer(content, "UTF-8"));
+        final JsonObject parsed = new JsonObject(json);
+        assertThat(parsed.size(), is(1));
+        assertThat(parsed.getString("content"), is(content));
+    }
+}
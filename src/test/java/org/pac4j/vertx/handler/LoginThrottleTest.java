@@ -0,0 +1,169 @@
+package org.pac4j.vertx.handler;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.Router;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Checks the token buckets of the login throttle, under contention and as time passes, and that throttled requests
+ * never reach the handlers behind it.
+ *
+ * @since 7.0.0
+ */
+public class LoginThrottleTest {
+
+    private final AtomicLong now = new AtomicLong(1_700_000_000_000L);
+
+    @Test
+    public void testConcurrentAttemptsNeverExceedTheBurst() throws Exception {
+        final LoginThrottle throttle = new LoginThrottle(config(100, 0, 1000, 0), now::get);
+        final ExecutorService executor = Executors.newFixedThreadPool(32);
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicInteger allowed = new AtomicInteger();
+        final List<java.util.concurrent.Future<?>> attempts = new ArrayList<>();
+        try {
+            for (int t = 0; t < 32; t++) {
+                attempts.add(executor.submit((Callable<Void>) () -> {
+                    start.await();
+                    for (int i = 0; i < 1000; i++) {
+                        if (throttle.tryAcquire("FormClient", "10.0.0.1", null) == 0) {
+                            allowed.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (final java.util.concurrent.Future<?> attempt : attempts) {
+                attempt.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(allowed.get(), is(100));
+    }
+
+    @Test
+    public void testBucketRefillsOverTime() {
+        final LoginThrottle throttle = new LoginThrottle(config(5, 1, 1000, 0), now::get);
+        for (int i = 0; i < 5; i++) {
+            assertThat(throttle.tryAcquire("FormClient", "10.0.0.1", null), is(0L));
+        }
+        assertThat(throttle.tryAcquire("FormClient", "10.0.0.1", null), is(1000L));
+
+        now.addAndGet(1000);
+        assertThat(throttle.tryAcquire("FormClient", "10.0.0.1", null), is(0L));
+        assertThat(throttle.tryAcquire("FormClient", "10.0.0.2", null), is(0L));
+    }
+
+    @Test
+    public void testSlowRatesRefillDespiteFrequentAttempts() {
+        final LoginThrottle throttle = new LoginThrottle(config(1000, 1000, 1, 0.2), now::get);
+        assertThat(throttle.tryAcquire("FormClient", "10.0.0.1", "jleleu"), is(0L));
+
+        int attempts = 0;
+        while (throttle.tryAcquire("FormClient", "10.0.0.1", "jleleu") != 0) {
+            now.addAndGet(100);
+            attempts++;
+        }
+        assertThat(attempts, is(50));
+    }
+
+    @Test
+    public void testUsernameIsLimitedAcrossAddresses() {
+        final LoginThrottle throttle = new LoginThrottle(config(1000, 1000, 3, 0), now::get);
+        assertThat(throttle.tryAcquire("FormClient", "10.0.0.1", "jleleu"), is(0L));
+        assertThat(throttle.tryAcquire("FormClient", "10.0.0.2", "JLELEU"), is(0L));
+        assertThat(throttle.tryAcquire("FormClient", "10.0.0.3", "jleleu"), is(0L));
+        assertThat(throttle.tryAcquire("FormClient", "10.0.0.4", "jleleu") > 0, is(true));
+        assertThat(throttle.tryAcquire("FormClient", "10.0.0.4", "someone"), is(0L));
+    }
+
+    @Test
+    public void testOtherClientsAreNotThrottled() {
+        final LoginThrottle throttle = new LoginThrottle(config(1, 0, 1, 0), now::get);
+        for (int i = 0; i < 10; i++) {
+            assertThat(throttle.tryAcquire("CasClient", "10.0.0.1", "jleleu"), is(0L));
+        }
+    }
+
+    @Test
+    public void testBasicAuthUsername() {
+        assertThat(LoginThrottle.basicAuthUsername(basic("jleleu:secret")), is("jleleu"));
+        assertThat(LoginThrottle.basicAuthUsername("Bearer abc"), nullValue());
+        assertThat(LoginThrottle.basicAuthUsername("Basic %%%"), nullValue());
+        assertThat(LoginThrottle.basicAuthUsername(null), nullValue());
+    }
+
+    @Test
+    public void testThrottledRequestsDoNotReachTheAuthenticator() throws Exception {
+        final JsonObject conf = new JsonObject().put("enabled", true).put("slots", 1024).put("clients",
+                new JsonObject().put("DirectBasicAuthClient", new JsonObject()
+                        .put("perIp", new JsonObject().put("burst", 3).put("perSecond", 0.001))));
+        final Vertx vertx = Vertx.vertx();
+        try {
+            final LoginThrottle throttle = new LoginThrottle(conf);
+            final AtomicInteger authenticated = new AtomicInteger();
+            final Router router = Router.router(vertx);
+            router.route("/dba/index.html").handler(throttle.basicAuth("DirectBasicAuthClient"));
+            router.route("/dba/index.html").handler(rc -> {
+                authenticated.incrementAndGet();
+                rc.response().end("ok");
+            });
+            final int port = await(vertx.createHttpServer().requestHandler(router).listen(0)).actualPort();
+            final HttpClient client = vertx.createHttpClient();
+
+            final List<HttpClientResponse> responses = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                responses.add(await(client.request(HttpMethod.GET, port, "localhost", "/dba/index.html")
+                        .compose(request -> request.putHeader("Authorization", basic("jleleu:jleleu")).send())));
+            }
+            assertThat(await(client.request(HttpMethod.GET, port, "localhost", "/dba/index.html")
+                    .compose(request -> request.send())).statusCode(), is(200));
+
+            assertThat(responses.get(2).statusCode(), is(200));
+            assertThat(responses.get(3).statusCode(), is(429));
+            assertThat(responses.get(4).getHeader("Retry-After") != null, is(true));
+            assertThat(authenticated.get(), is(4));
+        } finally {
+            await(vertx.close());
+        }
+    }
+
+    private static JsonObject config(final int ipBurst, final double ipPerSecond, final int userBurst,
+                                     final double userPerSecond) {
+        return new JsonObject().put("enabled", true).put("slots", 1 << 16).put("clients", new JsonObject()
+                .put("FormClient", new JsonObject()
+                        .put("perIp", new JsonObject().put("burst", ipBurst).put("perSecond", ipPerSecond))
+                        .put("perUsername", new JsonObject().put("burst", userBurst).put("perSecond", userPerSecond))));
+    }
+
+    private static String basic(final String credentials) {
+        return "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static <T> T await(final Future<T> future) throws Exception {
+        return future.toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    }
+}
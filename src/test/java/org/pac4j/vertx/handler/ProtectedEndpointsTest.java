@@ -0,0 +1,119 @@
+package org.pac4j.vertx.handler;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+import org.junit.Test;
+import org.pac4j.vertx.verticle.DemoServerFixture;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Checks the protected endpoints read from the config and the single route each of them is mounted as.
+ *
+ * @since 7.0.0
+ */
+public class ProtectedEndpointsTest {
+
+    @Test
+    public void testDemoConfig() throws Exception {
+        final List<ProtectedEndpoints.Endpoint> endpoints =
+                ProtectedEndpoints.fromConfig(DemoServerFixture.demoConfig()).endpoints();
+        final ProtectedEndpoints.Endpoint admin = find(endpoints, "/facebookadmin/index.html");
+        assertThat(admin.clients(), is("FacebookClient"));
+        assertThat(admin.options().getClients(), is("FacebookClient"));
+        assertThat(admin.options().getAuthorizers(), is("admin"));
+        assertThat(find(endpoints, "/form/index.html").authorizers(), nullValue());
+        assertThat(find(endpoints, "/form/index.html.json").renderer(), is("formIndexJson"));
+        assertThat(find(endpoints, "/rest-jwt/index.html").renderer(), is(ProtectedEndpoints.DEFAULT_RENDERER));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRelativePathIsRejected() {
+        ProtectedEndpoints.fromConfig(config(new JsonObject().put("path", "form/index.html")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownRendererIsRejected() {
+        final Vertx vertx = Vertx.vertx();
+        try {
+            ProtectedEndpoints.fromConfig(config(new JsonObject().put("path", "/a").put("renderer", "missing")))
+                    .mount(Router.router(vertx), endpoint -> RoutingContext::next, Map.of());
+        } finally {
+            vertx.close();
+        }
+    }
+
+    @Test
+    public void testOneRoutePerEndpoint() throws Exception {
+        final ProtectedEndpoints endpoints = ProtectedEndpoints.fromConfig(config(
+                new JsonObject().put("path", "/open").put("clients", "AnonymousClient"),
+                new JsonObject().put("path", "/closed").put("clients", "FormClient"),
+                new JsonObject().put("path", "/json").put("clients", "FormClient")
+                        .put("methods", new JsonArray().add("GET").add("POST"))
+                        .put("contentType", "application/json").put("renderer", "json")));
+        final Vertx vertx = Vertx.vertx();
+        try {
+            final AtomicInteger secured = new AtomicInteger();
+            final Router router = Router.router(vertx);
+            // stands in for the security handlers: only /closed rejects the request
+            endpoints.mount(router, endpoint -> endpoint.path().equals("/closed")
+                    ? rc -> rc.fail(401)
+                    : rc -> {
+                        secured.incrementAndGet();
+                        rc.next();
+                    }, Map.of(ProtectedEndpoints.DEFAULT_RENDERER, rc -> rc.response().end("page"),
+                            "json", rc -> rc.response().end("{}")));
+            assertThat(router.getRoutes().size(), is(3));
+            final int port = await(vertx.createHttpServer().requestHandler(router).listen(0)).actualPort();
+            final HttpClient client = vertx.createHttpClient();
+
+            final HttpClientResponse open = send(client, port, HttpMethod.GET, "/open");
+            assertThat(open.statusCode(), is(200));
+            assertThat(open.getHeader("Content-Type"), is("text/html"));
+            assertThat(send(client, port, HttpMethod.GET, "/closed").statusCode(), is(401));
+            final HttpClientResponse json = send(client, port, HttpMethod.POST, "/json");
+            assertThat(json.statusCode(), is(200));
+            assertThat(json.getHeader("Content-Type"), is("application/json"));
+            assertThat(send(client, port, HttpMethod.POST, "/open").statusCode(), is(405));
+            assertThat(secured.get(), is(2));
+        } finally {
+            await(vertx.close());
+        }
+    }
+
+    private static JsonObject config(final JsonObject... endpoints) {
+        final JsonArray array = new JsonArray();
+        for (final JsonObject endpoint : endpoints) {
+            array.add(endpoint);
+        }
+        return new JsonObject().put(ProtectedEndpoints.CONFIG_KEY, array);
+    }
+
+    private static ProtectedEndpoints.Endpoint find(final List<ProtectedEndpoints.Endpoint> endpoints,
+                                                   final String path) {
+        return endpoints.stream().filter(endpoint -> endpoint.path().equals(path)).findFirst().orElseThrow();
+    }
+
+    private static HttpClientResponse send(final HttpClient client, final int port, final HttpMethod method,
+                                           final String uri) throws Exception {
+        return await(client.request(method, port, "localhost", uri).compose(request -> request.send()));
+    }
+
+    private static <T> T await(final Future<T> future) throws Exception {
+        return future.toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    }
+}
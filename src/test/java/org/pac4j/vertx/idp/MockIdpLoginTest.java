@@ -0,0 +1,68 @@
+package org.pac4j.vertx.idp;
+
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.json.JsonObject;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.pac4j.vertx.loadtest.LoginFlow;
+import org.pac4j.vertx.verticle.DemoServerFixture;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Logs in through the OidcClient, CasClient, SAML2Client and FormClient with the demo pointed at the mock identity providers,
+ * following every redirection up to the protected page.
+ *
+ * @since 7.0.0
+ */
+public class MockIdpLoginTest {
+
+
+    private static DemoServerFixture server;
+    private static HttpClient client;
+    private static LoginFlow flow;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        final int port = DemoServerFixture.freePort();
+        final String baseUrl = "http://localhost:" + port;
+        server = DemoServerFixture.start(new JsonObject()
+                .put("httpPort", port)
+                .put("baseUrl", baseUrl)
+                .put(MockIdpVerticle.CONFIG_KEY, new JsonObject().put("enabled", true).put("port", DemoServerFixture.freePort())));
+        client = server.vertx().createHttpClient();
+        flow = new LoginFlow(client, baseUrl);
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        DemoServerFixture.await(client.close());
+        server.close();
+    }
+
+    @Test
+    public void testOidcLogin() throws Exception {
+        final String page = DemoServerFixture.await(flow.login("/oidc/index.html", "alice"));
+        assertThat(page, containsString("alice@example.org"));
+    }
+
+    @Test
+    public void testCasLogin() throws Exception {
+        final String page = DemoServerFixture.await(flow.login("/cas/index.html", "bob"));
+        assertThat(page, containsString("bob"));
+    }
+
+    @Test
+    public void testSamlLogin() throws Exception {
+        final String page = DemoServerFixture.await(flow.login("/saml/index.html", "dave"));
+        assertThat(page, containsString("dave@example.org"));
+    }
+
+    @Test
+    public void testFormLogin() throws Exception {
+        final String page = DemoServerFixture.await(flow.login("/form/index.html", "carol"));
+        assertThat(page, containsString("carol"));
+    }
+}
@@ -0,0 +1,183 @@
+package org.pac4j.vertx.loadtest;
+
+import io.vertx.core.Future;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.RequestOptions;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * One complete, browser-like login against the demo: the protected page redirects to the identity provider, which
+ * redirects back to /callback, which redirects to the protected page, now served with a 200. Redirections are followed
+ * by hand, keeping the demo's cookies; the mock identity providers are told which user to log in with "login_hint", and
+ * the login form is answered by posting the credentials to the callback (the demo accepts username == password).
+ * The auto-submitting forms of the SAML HTTP-POST binding, carrying the AuthnRequest to the identity provider and its
+ * response back to /callback, are posted as a browser would.
+ *
+ * @since 7.0.0
+ */
+public class LoginFlow {
+
+    private static final int MAX_HOPS = 8;
+    private static final Pattern FORM_ACTION = Pattern.compile("<form[^>]*\\saction=\"([^\"]*)\"", Pattern.CASE_INSENSITIVE);
+    private static final Pattern HIDDEN_INPUT = Pattern.compile("<input[^>]*type=\"hidden\"[^>]*>", Pattern.CASE_INSENSITIVE);
+    private static final Pattern INPUT_ATTRIBUTE = Pattern.compile("\\s(name|value)=\"([^\"]*)\"");
+    private static final Pattern CHARACTER_REFERENCE = Pattern.compile("&(#[xX][0-9a-fA-F]+|#[0-9]+|amp|lt|gt|quot|apos);");
+    private static final Map<String, String> NAMED_REFERENCES = Map.of(
+            "amp", "&", "lt", "<", "gt", ">", "quot", "\"", "apos", "'");
+
+    private final HttpClient client;
+    private final URI app;
+
+    public LoginFlow(final HttpClient client, final String appBaseUrl) {
+        this.client = client;
+        this.app = URI.create(appBaseUrl);
+    }
+
+    /**
+     * @param protectedPath e.g. "/oidc/index.html"
+     * @return the body of the protected page, failed if any step answers unexpectedly
+     */
+    public Future<String> login(final String protectedPath, final String user) {
+        return follow(app.resolve(protectedPath), new LinkedHashMap<>(), user, 0);
+    }
+
+    private Future<String> follow(final URI uri, final Map<String, String> cookies, final String user, final int hop) {
+        if (hop > MAX_HOPS) {
+            return Future.failedFuture("Too many redirections, last one to " + uri);
+        }
+        final boolean toApp = sameOrigin(uri);
+        if (toApp && uri.getPath().equals("/loginForm")) {
+            final String credentials = "username=" + encode(user) + "&password=" + encode(user);
+            return send(HttpMethod.POST, app.resolve("/callback?client_name=FormClient"), cookies, credentials)
+                    .compose(response -> next(response, uri, cookies, user, hop));
+        }
+        final URI target = toApp ? uri : withLoginHint(uri, user);
+        return send(HttpMethod.GET, target, toApp ? cookies : Map.of(), null)
+                .compose(response -> next(response, target, cookies, user, hop));
+    }
+
+    private Future<String> post(final URI action, final String formBody, final Map<String, String> cookies,
+                                final String user, final int hop) {
+        if (hop > MAX_HOPS) {
+            return Future.failedFuture("Too many redirections, last one to " + action);
+        }
+        final boolean toApp = sameOrigin(action);
+        final URI target = toApp ? action : withLoginHint(action, user);
+        return send(HttpMethod.POST, target, toApp ? cookies : Map.of(), formBody)
+                .compose(response -> next(response, target, cookies, user, hop));
+    }
+
+    private Future<String> next(final HttpClientResponse response, final URI requested, final Map<String, String> cookies,
+                                final String user, final int hop) {
+        if (sameOrigin(requested)) {
+            for (final String cookie : response.cookies()) {
+                final int eq = cookie.indexOf('=');
+                final int end = cookie.indexOf(';');
+                cookies.put(cookie.substring(0, eq), cookie.substring(eq + 1, end > 0 ? end : cookie.length()));
+            }
+        }
+        final int status = response.statusCode();
+        if (status >= 300 && status < 400 && response.getHeader("Location") != null) {
+            final URI location = requested.resolve(response.getHeader("Location"));
+            return response.body().compose(ignored -> follow(location, cookies, user, hop + 1));
+        }
+        return response.body().compose(body -> {
+            if (status != 200) {
+                return Future.failedFuture("Status " + status + " from " + requested.getPath());
+            }
+            final String page = body.toString();
+            final Matcher action = FORM_ACTION.matcher(page);
+            final String fields = samlFormFields(page);
+            return fields != null && action.find()
+                    ? post(requested.resolve(unescape(action.group(1))), fields, cookies, user, hop + 1)
+                    : Future.succeededFuture(page);
+        });
+    }
+
+    /**
+     * @return the hidden fields of a SAML HTTP-POST binding form, URL encoded, or null if the page holds none
+     */
+    private static String samlFormFields(final String page) {
+        final StringBuilder fields = new StringBuilder();
+        boolean saml = false;
+        final Matcher input = HIDDEN_INPUT.matcher(page);
+        while (input.find()) {
+            String name = null;
+            String value = "";
+            final Matcher attribute = INPUT_ATTRIBUTE.matcher(input.group());
+            while (attribute.find()) {
+                if ("name".equals(attribute.group(1))) {
+                    name = unescape(attribute.group(2));
+                } else {
+                    value = unescape(attribute.group(2));
+                }
+            }
+            if (name != null) {
+                saml |= name.equals("SAMLRequest") || name.equals("SAMLResponse");
+                fields.append(fields.length() > 0 ? "&" : "").append(encode(name)).append('=').append(encode(value));
+            }
+        }
+        return saml ? fields.toString() : null;
+    }
+
+    /**
+     * Decodes the character references of an attribute value, as the SAML encoders escape URLs and Base64 values.
+     */
+    private static String unescape(final String value) {
+        final Matcher reference = CHARACTER_REFERENCE.matcher(value);
+        final StringBuilder unescaped = new StringBuilder(value.length());
+        while (reference.find()) {
+            final String name = reference.group(1);
+            final String character;
+            if (name.startsWith("#x") || name.startsWith("#X")) {
+                character = new String(Character.toChars(Integer.parseInt(name.substring(2), 16)));
+            } else if (name.startsWith("#")) {
+                character = new String(Character.toChars(Integer.parseInt(name.substring(1))));
+            } else {
+                character = NAMED_REFERENCES.get(name);
+            }
+            reference.appendReplacement(unescaped, Matcher.quoteReplacement(character));
+        }
+        reference.appendTail(unescaped);
+        return unescaped.toString();
+    }
+
+    private Future<HttpClientResponse> send(final HttpMethod method, final URI uri, final Map<String, String> cookies,
+                                            final String formBody) {
+        final RequestOptions options = new RequestOptions().setMethod(method).setAbsoluteURI(uri.toString());
+        if (!cookies.isEmpty()) {
+            final StringBuilder header = new StringBuilder();
+            cookies.forEach((name, value) -> header.append(header.length() > 0 ? "; " : "").append(name).append('=').append(value));
+            options.putHeader("Cookie", header.toString());
+        }
+        return client.request(options).compose(request -> {
+            if (formBody == null) {
+                return request.send();
+            }
+            request.putHeader("Content-Type", "application/x-www-form-urlencoded");
+            return request.send(formBody);
+        });
+    }
+
+    private boolean sameOrigin(final URI uri) {
+        return app.getHost().equals(uri.getHost()) && app.getPort() == uri.getPort();
+    }
+
+    private static URI withLoginHint(final URI uri, final String user) {
+        final String url = uri.toString();
+        return URI.create(url + (url.indexOf('?') >= 0 ? "&" : "?") + "login_hint=" + encode(user));
+    }
+
+    private static String encode(final String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,183 @@
+package org.pac4j.vertx.loadtest;
+
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.PoolOptions;
+import io.vertx.core.json.JsonObject;
+import org.pac4j.vertx.idp.MockIdpVerticle;
+import org.pac4j.vertx.verticle.DemoServerFixture;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs complete logins ({@link LoginFlow}) against the demo at a target rate and reports the login latency
+ * distribution per client, to size instances for a login storm. Logins are started on schedule whether or not the
+ * previous ones have completed, and their latency runs from their scheduled start, so a saturated server shows up as
+ * growing latencies rather than as a lower request rate.
+ *
+ * Arguments are key=value pairs:
+ * <ul>
+ *     <li>rate: logins per second, spread over the clients in turn (default 50)</li>
+ *     <li>duration: seconds to run for (default 30)</li>
+ *     <li>clients: comma separated OidcClient, CasClient, SAML2Client and FormClient (default all four)</li>
+ *     <li>target: base URL of a running demo whose "mockIdp" is enabled; by default the demo and the mock identity
+ *     providers are started in-process</li>
+ * </ul>
+ * e.g. {@code mvn -Ploadtest test-compile exec:exec -Dloadtest.args="rate=200 duration=60"}
+ *
+ * @since 7.0.0
+ */
+public class LoginLoadGenerator {
+
+    private static final Map<String, String> PROTECTED_PATHS = Map.of(
+            "OidcClient", "/oidc/index.html",
+            "CasClient", "/cas/index.html",
+            "SAML2Client", "/saml/index.html",
+            "FormClient", "/form/index.html");
+
+    private static final long TICK_MS = 10;
+    // how long logins still in flight at the end of the run are waited for
+    private static final long DRAIN_GRACE_MS = 30000;
+
+    public static void main(final String[] args) throws Exception {
+        final Map<String, String> options = new LinkedHashMap<>();
+        for (final String arg : args) {
+            final int eq = arg.indexOf('=');
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        final double rate = Double.parseDouble(options.getOrDefault("rate", "50"));
+        final long durationSeconds = Long.parseLong(options.getOrDefault("duration", "30"));
+        final List<String> clients = Arrays.asList(options.getOrDefault("clients", "OidcClient,CasClient,SAML2Client,FormClient").split(","));
+        for (final String client : clients) {
+            if (!PROTECTED_PATHS.containsKey(client)) {
+                throw new IllegalArgumentException("Unsupported client " + client + ", expected one of " + PROTECTED_PATHS.keySet());
+            }
+        }
+
+        final DemoServerFixture server;
+        final String target;
+        final Vertx vertx;
+        if (options.containsKey("target")) {
+            server = null;
+            target = options.get("target");
+            vertx = Vertx.vertx();
+        } else {
+            final int port = DemoServerFixture.freePort();
+            target = "http://localhost:" + port;
+            server = DemoServerFixture.start(new JsonObject()
+                    .put("httpPort", port)
+                    .put("baseUrl", target)
+                    .put(MockIdpVerticle.CONFIG_KEY, new JsonObject().put("enabled", true).put("port", DemoServerFixture.freePort())));
+            vertx = server.vertx();
+        }
+
+        final HttpClient client = vertx.createHttpClient(new HttpClientOptions().setKeepAlive(true),
+                new PoolOptions().setHttp1MaxSize(1024));
+        try {
+            final Map<String, LatencyRecorder> results = run(vertx, new LoginFlow(client, target), clients, rate,
+                    TimeUnit.SECONDS.toMillis(durationSeconds));
+            System.out.printf(Locale.ROOT, "%n%d s at %.1f logins/s against %s%n", durationSeconds, rate, target);
+            results.forEach((name, recorder) -> System.out.println(recorder.summary(name, durationSeconds)));
+        } finally {
+            DemoServerFixture.await(client.close());
+            if (server != null) {
+                server.close();
+            } else {
+                DemoServerFixture.await(vertx.close());
+            }
+        }
+    }
+
+    /**
+     * Starts logins every {@link #TICK_MS} ms for the given duration, then waits up to {@link #DRAIN_GRACE_MS} ms for
+     * the ones in flight.
+     */
+    static Map<String, LatencyRecorder> run(final Vertx vertx, final LoginFlow flow, final List<String> clients,
+                                            final double rate, final long durationMs) throws Exception {
+        final Map<String, LatencyRecorder> results = new LinkedHashMap<>();
+        clients.forEach(name -> results.put(name, new LatencyRecorder()));
+        final AtomicLong started = new AtomicLong();
+        final AtomicLong completed = new AtomicLong();
+        final AtomicBoolean allStarted = new AtomicBoolean();
+        final Promise<Void> done = Promise.promise();
+        final long start = System.nanoTime();
+
+        vertx.setPeriodic(TICK_MS, timer -> {
+            final long elapsedNanos = System.nanoTime() - start;
+            final boolean last = elapsedNanos >= TimeUnit.MILLISECONDS.toNanos(durationMs);
+            final long due = last
+                    ? (long) (rate * durationMs / 1000)
+                    : (long) (rate * elapsedNanos / 1_000_000_000d);
+            while (started.get() < due) {
+                final long n = started.getAndIncrement();
+                // the time this login should have started at, had the ticks been exact
+                final long scheduled = start + (long) (n * 1_000_000_000d / rate);
+                final String name = clients.get((int) (n % clients.size()));
+                final LatencyRecorder recorder = results.get(name);
+                flow.login(PROTECTED_PATHS.get(name), "user" + n).onComplete(result -> {
+                    if (result.succeeded()) {
+                        recorder.record(System.nanoTime() - scheduled);
+                    } else {
+                        recorder.error(result.cause().getMessage());
+                    }
+                    if (completed.incrementAndGet() == started.get() && allStarted.get()) {
+                        done.tryComplete();
+                    }
+                });
+            }
+            if (last) {
+                vertx.cancelTimer(timer);
+                allStarted.set(true);
+                if (completed.get() == started.get()) {
+                    done.tryComplete();
+                }
+            }
+        });
+
+        done.future().toCompletionStage().toCompletableFuture().get(durationMs + DRAIN_GRACE_MS, TimeUnit.MILLISECONDS);
+        return results;
+    }
+
+    static class LatencyRecorder {
+        private final List<Long> nanos = new ArrayList<>();
+        private final Map<String, Integer> errors = new LinkedHashMap<>();
+
+        synchronized void record(final long latencyNanos) {
+            nanos.add(latencyNanos);
+        }
+
+        synchronized void error(final String message) {
+            errors.merge(String.valueOf(message), 1, Integer::sum);
+        }
+
+        synchronized String summary(final String name, final long durationSeconds) {
+            final long[] sorted = nanos.stream().mapToLong(Long::longValue).sorted().toArray();
+            final StringBuilder out = new StringBuilder(String.format(Locale.ROOT,
+                    "%-11s logins=%d (%.1f/s) errors=%d p50=%.1fms p90=%.1fms p99=%.1fms p99.9=%.1fms max=%.1fms",
+                    name, sorted.length, (double) sorted.length / durationSeconds,
+                    errors.values().stream().mapToInt(Integer::intValue).sum(),
+                    millis(sorted, 0.50), millis(sorted, 0.90), millis(sorted, 0.99), millis(sorted, 0.999),
+                    millis(sorted, 1)));
+            errors.forEach((message, count) -> out.append(String.format(Locale.ROOT, "%n    %dx %s", count, message)));
+            return out.toString();
+        }
+
+        private static double millis(final long[] sorted, final double quantile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            final int index = (int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1);
+            return sorted[Math.max(0, index)] / 1e6;
+        }
+    }
+}
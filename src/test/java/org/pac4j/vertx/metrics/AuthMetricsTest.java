@@ -0,0 +1,201 @@
+package org.pac4j.vertx.metrics;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServer;
+import io.vertx.ext.web.Router;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pac4j.core.profile.CommonProfile;
+import org.pac4j.core.profile.UserProfile;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+
+/**
+ * Drives instrumented stand-in handlers over HTTP and checks the histogram and counter lines of the Prometheus output,
+ * in particular the client label of the security handlers, taken from the profile let through.
+ *
+ * @since 7.0.0
+ */
+public class AuthMetricsTest {
+
+    private static final String PROFILES_KEY = "profiles";
+    private static final List<String> KNOWN_CLIENTS = List.of("FormClient", "DirectBasicAuthClient", "ParameterClient");
+
+    private Vertx vertx;
+    private HttpClient client;
+    private AuthMetrics metrics;
+    private int port;
+
+    @Before
+    public void setUp() throws Exception {
+        vertx = Vertx.vertx();
+        metrics = new AuthMetrics();
+        final Router router = Router.router(vertx);
+        router.route().failureHandler(AuthMetrics.failureHandler());
+        router.route().failureHandler(rc -> rc.response().setStatusCode(rc.statusCode()).end());
+        // the stand-in security handler lets 200s through, fails 401s and 403s and answers any other status itself,
+        // with the profile client given as parameter
+        router.get("/dba/index.html").handler(metrics.instrument("security", "/dba/index.html",
+                "DirectBasicAuthClient,ParameterClient", KNOWN_CLIENTS, rc -> rc.get(PROFILES_KEY), rc -> {
+                    final String profileClient = rc.request().getParam("client");
+                    if (profileClient != null) {
+                        final CommonProfile profile = new CommonProfile();
+                        profile.setClientName(profileClient);
+                        rc.put(PROFILES_KEY, List.<UserProfile>of(profile));
+                    }
+                    final int status = Integer.parseInt(rc.request().getParam("status"));
+                    if (status == 200) {
+                        rc.next();
+                    } else if (status == 401 || status == 403) {
+                        rc.fail(status);
+                    } else {
+                        rc.response().setStatusCode(status).end();
+                    }
+                }))
+                // the stand-in protected page takes the given time to render
+                .handler(AuthMetrics.passed(rc -> {
+                    final long renderMillis = Long.parseLong(rc.request().getParam("renderMillis", "0"));
+                    if (renderMillis > 0) {
+                        vertx.setTimer(renderMillis, timer -> rc.response().end());
+                    } else {
+                        rc.response().end();
+                    }
+                }));
+        router.get("/callback").handler(metrics.instrumentByClientParameter("callback", "/callback", "client_name",
+                KNOWN_CLIENTS, rc -> rc.response().setStatusCode(302).end()));
+        final HttpServer server = await(vertx.createHttpServer().requestHandler(router).listen(0));
+        port = server.actualPort();
+        client = vertx.createHttpClient();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        await(vertx.close());
+    }
+
+    @Test
+    public void testSecurityClientIsTheProfileClient() throws Exception {
+        get("/dba/index.html?status=200&client=DirectBasicAuthClient");
+        get("/dba/index.html?status=200&client=DirectBasicAuthClient");
+        get("/dba/index.html?status=200&client=ParameterClient");
+        get("/dba/index.html?status=401");
+        get("/dba/index.html?status=403&client=FormClient");
+        get("/dba/index.html?status=200&client=InventedClient");
+
+        final String lines = metrics.toPrometheus();
+        assertThat(value(lines, "pac4j_auth_duration_seconds_count", security("DirectBasicAuthClient")), is(2.0));
+        assertThat(value(lines, "pac4j_auth_requests_total", security("DirectBasicAuthClient") + ",outcome=\"success\""),
+                is(2.0));
+        assertThat(value(lines, "pac4j_auth_requests_total", security("ParameterClient") + ",outcome=\"success\""),
+                is(1.0));
+        assertThat(value(lines, "pac4j_auth_requests_total", security(AuthMetrics.NO_PROFILE) + ",outcome=\"unauthorized\""),
+                is(1.0));
+        // a profile from a client the endpoint doesn't accept, or that isn't configured, gets no series of its own
+        assertThat(value(lines, "pac4j_auth_requests_total", security(AuthMetrics.UNKNOWN_CLIENT) + ",outcome=\"forbidden\""),
+                is(1.0));
+        assertThat(value(lines, "pac4j_auth_requests_total", security(AuthMetrics.UNKNOWN_CLIENT) + ",outcome=\"success\""),
+                is(1.0));
+        assertThat(lines, not(containsString("InventedClient")));
+        assertThat(lines, not(containsString("client=\"DirectBasicAuthClient,ParameterClient\"")));
+    }
+
+    @Test
+    public void testSecurityLatencyExcludesRendering() throws Exception {
+        get("/dba/index.html?status=200&client=DirectBasicAuthClient&renderMillis=500");
+
+        final String lines = metrics.toPrometheus();
+        final String labels = security("DirectBasicAuthClient");
+        assertThat(value(lines, "pac4j_auth_duration_seconds_count", labels), is(1.0));
+        assertThat(value(lines, "pac4j_auth_duration_seconds_sum", labels), lessThan(0.5));
+        assertThat(value(lines, "pac4j_auth_requests_total", labels + ",outcome=\"success\""), is(1.0));
+    }
+
+    @Test
+    public void testNotModifiedIsASuccess() throws Exception {
+        get("/dba/index.html?status=304&client=DirectBasicAuthClient");
+        get("/dba/index.html?status=302");
+
+        final String lines = metrics.toPrometheus();
+        assertThat(value(lines, "pac4j_auth_requests_total", security("DirectBasicAuthClient") + ",outcome=\"success\""),
+                is(1.0));
+        assertThat(value(lines, "pac4j_auth_requests_total", security(AuthMetrics.NO_PROFILE) + ",outcome=\"redirect\""),
+                is(1.0));
+    }
+
+    @Test
+    public void testHistogramLines() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            get("/dba/index.html?status=200&client=DirectBasicAuthClient");
+        }
+
+        final String lines = metrics.toPrometheus();
+        assertThat(lines, containsString("# TYPE pac4j_auth_duration_seconds histogram\n"));
+        assertThat(lines, containsString("# TYPE pac4j_auth_requests_total counter\n"));
+        final String labels = security("DirectBasicAuthClient");
+        double previous = 0;
+        for (final String le : new String[] {"0.001", "0.005", "0.01", "0.025", "0.05", "0.1", "0.25", "0.5", "1.0",
+                "2.5", "5.0", "10.0"}) {
+            final double bucket = value(lines, "pac4j_auth_duration_seconds_bucket", labels + ",le=\"" + le + "\"");
+            assertThat("buckets are cumulative", bucket >= previous, is(true));
+            previous = bucket;
+        }
+        assertThat(value(lines, "pac4j_auth_duration_seconds_bucket", labels + ",le=\"+Inf\""), is(3.0));
+        assertThat(value(lines, "pac4j_auth_duration_seconds_count", labels), is(3.0));
+        assertThat(value(lines, "pac4j_auth_duration_seconds_sum", labels), greaterThan(0.0));
+        // the series of every accepted client exist from the start, at zero
+        assertThat(value(lines, "pac4j_auth_duration_seconds_count", security("ParameterClient")), is(0.0));
+        assertThat(value(lines, "pac4j_auth_requests_total", labels + ",outcome=\"error\""), is(0.0));
+    }
+
+    @Test
+    public void testCallbackClientIsTheRequestedOne() throws Exception {
+        get("/callback?client_name=FormClient");
+        get("/callback?client_name=NotAClient");
+        get("/callback");
+
+        final String lines = metrics.toPrometheus();
+        assertThat(value(lines, "pac4j_auth_requests_total",
+                "handler=\"callback\",route=\"/callback\",client=\"FormClient\",outcome=\"redirect\""), is(1.0));
+        assertThat(value(lines, "pac4j_auth_requests_total",
+                "handler=\"callback\",route=\"/callback\",client=\"unknown\",outcome=\"redirect\""), is(2.0));
+        assertThat(lines, not(containsString("NotAClient")));
+    }
+
+    private static String security(final String client) {
+        return "handler=\"security\",route=\"/dba/index.html\",client=\"" + client + "\"";
+    }
+
+    /**
+     * @return the value of the sample with exactly these labels
+     */
+    private static double value(final String lines, final String name, final String labels) {
+        final Matcher matcher = Pattern.compile("^" + Pattern.quote(name + "{" + labels + "} ") + "(\\S+)$",
+                Pattern.MULTILINE).matcher(lines);
+        assertThat("no sample " + name + "{" + labels + "}", matcher.find(), is(true));
+        return Double.parseDouble(matcher.group(1));
+    }
+
+    private void get(final String uri) throws Exception {
+        await(client.request(HttpMethod.GET, port, "localhost", uri)
+                .compose(request -> request.send())
+                .compose(response -> response.body()));
+    }
+
+    private static <T> T await(final Future<T> future) throws Exception {
+        return future.toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    }
+}
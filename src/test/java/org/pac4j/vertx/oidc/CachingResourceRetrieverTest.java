@@ -0,0 +1,241 @@
+package org.pac4j.vertx.oidc;
+
+import com.nimbusds.jose.util.Resource;
+import com.nimbusds.jose.util.ResourceRetriever;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks the coalescing, background refresh and stale copies of the retriever against a stand-in provider counting its
+ * fetches.
+ *
+ * @since 7.0.0
+ */
+public class CachingResourceRetrieverTest {
+
+    private static final long TTL = 30_000;
+    private static final long REFRESH_AHEAD = 5_000;
+    private static final long MAX_STALE = 3_600_000;
+
+    private final AtomicLong now = new AtomicLong(1000);
+    private final CountingProvider provider = new CountingProvider();
+    private final List<Runnable> backgroundTasks = new ArrayList<>();
+    private final CachingResourceRetriever retriever = new CachingResourceRetriever(provider, backgroundTasks::add,
+            now::get, TTL, REFRESH_AHEAD, MAX_STALE);
+    private final ExecutorService callbacks = Executors.newFixedThreadPool(32);
+
+    @After
+    public void tearDown() {
+        callbacks.shutdownNow();
+    }
+
+    @Test
+    public void testConcurrentFetchesAreCoalesced() throws Exception {
+        final URL jwks = new URL("http://localhost/oidc/jwks");
+        provider.blocked = new CountDownLatch(1);
+        final CountDownLatch ready = new CountDownLatch(32);
+        final List<Future<Resource>> results = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            results.add(callbacks.submit((Callable<Resource>) () -> {
+                ready.countDown();
+                return retriever.retrieve(jwks);
+            }));
+        }
+        ready.await(5, TimeUnit.SECONDS);
+        Thread.sleep(100);
+        provider.blocked.countDown();
+
+        for (final Future<Resource> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS).getContent(), is("document 1 of " + jwks));
+        }
+        assertThat(provider.fetches.get(), is(1));
+        assertThat(retriever.fetches(), is(1L));
+    }
+
+    @Test
+    public void testDocumentsAreCachedPerUrlUntilExpiry() throws Exception {
+        final URL discovery = new URL("http://localhost/oidc/.well-known/openid-configuration");
+        final URL jwks = new URL("http://localhost/oidc/jwks");
+        for (int i = 0; i < 10; i++) {
+            retriever.retrieve(discovery);
+            retriever.retrieve(jwks);
+        }
+        assertThat(provider.fetches.get(), is(2));
+
+        now.addAndGet(TTL);
+        assertThat(retriever.retrieve(jwks).getContent(), is("document 3 of " + jwks));
+        assertThat(provider.fetches.get(), is(3));
+    }
+
+    @Test
+    public void testDocumentIsRefreshedInTheBackgroundBeforeExpiry() throws Exception {
+        final URL jwks = new URL("http://localhost/oidc/jwks");
+        retriever.retrieve(jwks);
+
+        now.addAndGet(TTL - REFRESH_AHEAD);
+        for (int i = 0; i < 5; i++) {
+            assertThat(retriever.retrieve(jwks).getContent(), is("document 1 of " + jwks));
+        }
+        assertThat(backgroundTasks.size(), is(1));
+        backgroundTasks.get(0).run();
+        assertThat(provider.fetches.get(), is(2));
+
+        now.addAndGet(REFRESH_AHEAD);
+        assertThat(retriever.retrieve(jwks).getContent(), is("document 2 of " + jwks));
+        assertThat(provider.fetches.get(), is(2));
+    }
+
+    @Test
+    public void testLastGoodCopyIsServedWhileTheProviderIsDown() throws Exception {
+        final URL jwks = new URL("http://localhost/oidc/jwks");
+        retriever.retrieve(jwks);
+        provider.down.set(true);
+
+        now.addAndGet(TTL);
+        assertThat(retriever.retrieve(jwks).getContent(), is("document 1 of " + jwks));
+        assertThat(retriever.staleServed(), is(1L));
+
+        now.addAndGet(MAX_STALE);
+        try {
+            retriever.retrieve(jwks);
+            fail("The copy is older than the max staleness");
+        } catch (final IOException e) {
+            assertThat(e.getMessage(), is("provider down"));
+        }
+
+        provider.down.set(false);
+        assertThat(retriever.retrieve(jwks).getContent(), is("document 4 of " + jwks));
+    }
+
+    @Test
+    public void testOnlyTheFirstCallerWaitsForAFailingProvider() throws Exception {
+        final URL jwks = new URL("http://localhost/oidc/jwks");
+        retriever.retrieve(jwks);
+        provider.down.set(true);
+
+        now.addAndGet(TTL);
+        assertThat(retriever.retrieve(jwks).getContent(), is("document 1 of " + jwks));
+        assertThat(provider.fetches.get(), is(2));
+        for (int i = 0; i < 10; i++) {
+            assertThat(retriever.retrieve(jwks).getContent(), is("document 1 of " + jwks));
+        }
+        assertThat(provider.fetches.get(), is(2));
+        assertThat(backgroundTasks.size(), is(0));
+        assertThat(retriever.staleServed(), is(11L));
+    }
+
+    @Test
+    public void testFailingProviderIsRetriedInTheBackgroundWithBackoff() throws Exception {
+        final URL jwks = new URL("http://localhost/oidc/jwks");
+        retriever.retrieve(jwks);
+        provider.down.set(true);
+        now.addAndGet(TTL);
+        retriever.retrieve(jwks);
+
+        now.addAndGet(CachingResourceRetriever.DEFAULT_RETRY_BACKOFF_MS);
+        retriever.retrieve(jwks);
+        retriever.retrieve(jwks);
+        assertThat(backgroundTasks.size(), is(1));
+        backgroundTasks.remove(0).run();
+        assertThat(provider.fetches.get(), is(3));
+
+        // the second failure doubles the backoff
+        now.addAndGet(CachingResourceRetriever.DEFAULT_RETRY_BACKOFF_MS);
+        retriever.retrieve(jwks);
+        assertThat(backgroundTasks.size(), is(0));
+        now.addAndGet(CachingResourceRetriever.DEFAULT_RETRY_BACKOFF_MS);
+        assertThat(retriever.retrieve(jwks).getContent(), is("document 1 of " + jwks));
+        assertThat(backgroundTasks.size(), is(1));
+
+        provider.down.set(false);
+        backgroundTasks.remove(0).run();
+        assertThat(retriever.retrieve(jwks).getContent(), is("document 4 of " + jwks));
+        assertThat(provider.fetches.get(), is(4));
+    }
+
+    @Test
+    public void testJwksRefetchSkipsTheCacheOncePerInterval() throws Exception {
+        final URL jwks = new URL("http://localhost/oidc/jwks");
+        provider.keySets = true;
+        retriever.retrieve(jwks);
+        // an unknown key right after the keys were fetched is answered from the cache
+        assertThat(retriever.retrieve(jwks).getContent(), is(keySet(1)));
+
+        now.addAndGet(CachingResourceRetriever.DEFAULT_JWKS_REFETCH_INTERVAL_MS);
+        provider.blocked = new CountDownLatch(1);
+        final List<Future<Resource>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(callbacks.submit((Callable<Resource>) () -> retriever.retrieve(jwks)));
+        }
+        Thread.sleep(100);
+        provider.blocked.countDown();
+        for (final Future<Resource> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS).getContent(), is(keySet(2)));
+        }
+        assertThat(provider.fetches.get(), is(2));
+
+        now.addAndGet(CachingResourceRetriever.DEFAULT_JWKS_REFETCH_INTERVAL_MS - 1);
+        assertThat(retriever.retrieve(jwks).getContent(), is(keySet(2)));
+        assertThat(provider.fetches.get(), is(2));
+    }
+
+    @Test
+    public void testFailuresAreNotCached() throws Exception {
+        final URL jwks = new URL("http://localhost/oidc/jwks");
+        provider.down.set(true);
+        for (int i = 0; i < 3; i++) {
+            try {
+                retriever.retrieve(jwks);
+                fail("No copy to serve");
+            } catch (final IOException e) {
+                // expected
+            }
+        }
+        assertThat(provider.fetches.get(), is(3));
+    }
+
+    private static String keySet(final int fetch) {
+        return "{\"keys\":[],\"fetch\":" + fetch + "}";
+    }
+
+    private static class CountingProvider implements ResourceRetriever {
+        private final AtomicInteger fetches = new AtomicInteger();
+        private final AtomicBoolean down = new AtomicBoolean();
+        private volatile CountDownLatch blocked;
+        private volatile boolean keySets;
+
+        @Override
+        public Resource retrieve(final URL url) throws IOException {
+            final int fetch = fetches.incrementAndGet();
+            if (blocked != null) {
+                try {
+                    blocked.await(5, TimeUnit.SECONDS);
+                } catch (final InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+            if (down.get()) {
+                throw new IOException("provider down");
+            }
+            return new Resource(keySets ? keySet(fetch) : "document " + fetch + " of " + url, "application/json");
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package org.pac4j.vertx.oidc;
+
+import io.vertx.core.Future;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.PoolOptions;
+import io.vertx.core.json.JsonObject;
+import org.junit.After;
+import org.junit.Test;
+import org.pac4j.vertx.idp.MockIdpVerticle;
+import org.pac4j.vertx.loadtest.LoginFlow;
+import org.pac4j.vertx.verticle.DemoServerFixture;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+/**
+ * Runs concurrent OIDC logins against the mock provider through several verticle instances, each with its own
+ * OidcClient, and checks the discovery document and JWKS are fetched from the provider at most once each.
+ *
+ * @since 7.0.0
+ */
+public class OidcConcurrentCallbacksTest {
+
+    private static final int LOGINS = 40;
+
+    private DemoServerFixture server;
+    private HttpClient client;
+
+    @After
+    public void tearDown() throws Exception {
+        if (client != null) {
+            DemoServerFixture.await(client.close());
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testProviderDocumentsAreFetchedOnce() throws Exception {
+        final int port = DemoServerFixture.freePort();
+        final String baseUrl = "http://localhost:" + port;
+        server = DemoServerFixture.start(new JsonObject()
+                .put("httpPort", port)
+                .put("baseUrl", baseUrl)
+                .put("serverInstances", 4)
+                .put(MockIdpVerticle.CONFIG_KEY, new JsonObject().put("enabled", true).put("port", DemoServerFixture.freePort())));
+        client = server.vertx().createHttpClient(new HttpClientOptions(), new PoolOptions().setHttp1MaxSize(LOGINS));
+        final LoginFlow flow = new LoginFlow(client, baseUrl);
+
+        final List<Future<String>> logins = new ArrayList<>();
+        for (int i = 0; i < LOGINS; i++) {
+            logins.add(flow.login("/oidc/index.html", "user" + i));
+        }
+        DemoServerFixture.await(Future.all(logins));
+
+        final long fetches = CachingResourceRetriever.shared(server.vertx(), new JsonObject()).fetches();
+        assertThat(fetches, allOf(greaterThan(0L), lessThanOrEqualTo(2L)));
+    }
+}
@@ -0,0 +1,145 @@
+package org.pac4j.vertx.profile;
+
+import io.vertx.core.buffer.Buffer;
+import org.junit.Test;
+import org.pac4j.core.profile.CommonProfile;
+import org.pac4j.core.profile.UserProfile;
+
+import javax.security.auth.x500.X500Principal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.fail;
+
+/**
+ * @since 7.0.0
+ */
+public class CompactProfileCodecTest {
+
+    private final ProfileCodec compact = new CompactProfileCodec();
+    private final ProfileCodec javaSerialization = new JavaSerializationProfileCodec();
+
+    @Test
+    public void testRoundTripOfEveryClientType() {
+        for (final Map.Entry<String, UserProfile> sample : SampleProfiles.all().entrySet()) {
+            final UserProfile profile = sample.getValue();
+            final UserProfile decoded = compact.decode(compact.encode(profile));
+
+            assertThat(sample.getKey(), decoded.getClass(), equalTo(profile.getClass()));
+            assertThat(sample.getKey(), decoded.getId(), is(profile.getId()));
+            assertThat(sample.getKey(), decoded.getClientName(), is(profile.getClientName()));
+            assertThat(sample.getKey(), decoded.getRoles(), is(profile.getRoles()));
+            assertThat(sample.getKey(), decoded.getPermissions(), is(profile.getPermissions()));
+            assertThat(sample.getKey(), decoded.getAttributes(), is(profile.getAttributes()));
+            assertThat(sample.getKey(), decoded.getAuthenticationAttributes(), is(profile.getAuthenticationAttributes()));
+            assertThat(sample.getKey(), ProfileFingerprints.digest(List.of(decoded)), is(ProfileFingerprints.digest(List.of(profile))));
+        }
+    }
+
+    @Test
+    public void testEncodingIsSmallerThanJavaSerialization() {
+        for (final Map.Entry<String, UserProfile> sample : SampleProfiles.all().entrySet()) {
+            assertThat(sample.getKey(), compact.encode(sample.getValue()).length(),
+                    lessThan(javaSerialization.encode(sample.getValue()).length()));
+        }
+    }
+
+    @Test
+    public void testProfileClassOutsideTheTable() {
+        final CommonProfile profile = new CustomProfile();
+        profile.setId("custom");
+        profile.setLinkedId("linked");
+        profile.setRemembered(true);
+        profile.addAttribute("count", Long.MIN_VALUE);
+        profile.addAttribute("ratio", -0.5d);
+
+        final UserProfile decoded = compact.decode(compact.encode(profile));
+        assertThat(decoded.getClass(), equalTo(CustomProfile.class));
+        assertThat(decoded.getLinkedId(), is("linked"));
+        assertThat(decoded.isRemembered(), is(true));
+        assertThat(decoded.getAttributes(), is(profile.getAttributes()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownVersionIsRejected() {
+        final Buffer encoded = compact.encode(SampleProfiles.form());
+        encoded.setByte(1, (byte) (CompactProfileCodec.VERSION + 1));
+        compact.decode(encoded);
+    }
+
+    @Test
+    public void testTruncatedEncodingIsRejected() {
+        final Buffer encoded = compact.encode(SampleProfiles.oidc());
+        for (int length = 2; length < encoded.length(); length++) {
+            try {
+                compact.decode(encoded.getBuffer(0, length));
+                fail("decoded the first " + length + " bytes");
+            } catch (final IllegalArgumentException expected) {
+                // the truncation is reported
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownClassIndexIsRejected() {
+        compact.decode(Buffer.buffer()
+                .appendByte(CompactProfileCodec.MAGIC).appendByte(CompactProfileCodec.VERSION)
+                .appendByte((byte) 0x7F));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLengthBeyondTheBufferIsRejected() {
+        compact.decode(Buffer.buffer()
+                .appendByte(CompactProfileCodec.MAGIC).appendByte(CompactProfileCodec.VERSION)
+                .appendByte((byte) 0)
+                .appendByte((byte) 0xFF).appendByte((byte) 0xFF).appendByte((byte) 0xFF).appendByte((byte) 0x07));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testClassOutsidePac4jIsRejected() {
+        compact.decode(encodedWithClass("com.example.EvilProfile"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonProfileClassIsRejected() {
+        compact.decode(encodedWithClass("org.pac4j.core.config.Config"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSerializedValueOutsideTheAllowlistIsRejected() {
+        final CommonProfile profile = new CommonProfile();
+        profile.setId("jleleu");
+        profile.addAttribute("principal", new X500Principal("CN=jleleu"));
+        compact.decode(compact.encode(profile));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testJavaSerializationIsFiltered() {
+        final CommonProfile profile = new CommonProfile();
+        profile.setId("jleleu");
+        profile.addAttribute("principal", new X500Principal("CN=jleleu"));
+        javaSerialization.decode(javaSerialization.encode(profile));
+    }
+
+    /**
+     * An encoded profile naming the given class, as stored data could.
+     */
+    private static Buffer encodedWithClass(final String className) {
+        final byte[] name = className.getBytes(StandardCharsets.UTF_8);
+        return Buffer.buffer()
+                .appendByte(CompactProfileCodec.MAGIC).appendByte(CompactProfileCodec.VERSION)
+                .appendByte((byte) 0)
+                .appendByte((byte) name.length).appendBytes(name)
+                .appendByte((byte) 0).appendByte((byte) 0).appendByte((byte) 0).appendByte((byte) 0)
+                .appendByte((byte) 0).appendByte((byte) 0).appendByte((byte) 0).appendByte((byte) 0);
+    }
+
+    public static class CustomProfile extends CommonProfile {
+        private static final long serialVersionUID = 1L;
+    }
+}
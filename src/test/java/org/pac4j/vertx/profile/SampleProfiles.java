@@ -0,0 +1,165 @@
+package org.pac4j.vertx.profile;
+
+import com.nimbusds.oauth2.sdk.token.BearerAccessToken;
+import com.nimbusds.oauth2.sdk.token.RefreshToken;
+import org.pac4j.cas.profile.CasProfile;
+import org.pac4j.core.profile.CommonProfile;
+import org.pac4j.core.profile.UserProfile;
+import org.pac4j.jwt.profile.JwtProfile;
+import org.pac4j.oauth.profile.facebook.FacebookProfile;
+import org.pac4j.oauth.profile.strava.StravaProfile;
+import org.pac4j.oauth.profile.twitter.TwitterProfile;
+import org.pac4j.oidc.profile.OidcProfile;
+import org.pac4j.saml.profile.SAML2Profile;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Profiles shaped like those the demo's clients produce, one per client type, for codec tests and benchmarks.
+ *
+ * @since 7.0.0
+ */
+public final class SampleProfiles {
+
+    private static final Date AUTHENTICATED = new Date(1_700_000_000_000L);
+
+    private SampleProfiles() {
+    }
+
+    /**
+     * @return sample profiles by client name
+     */
+    public static Map<String, UserProfile> all() {
+        final Map<String, UserProfile> profiles = new LinkedHashMap<>();
+        profiles.put("FormClient", form());
+        profiles.put("FacebookClient", facebook());
+        profiles.put("TwitterClient", twitter());
+        profiles.put("CasClient", cas());
+        profiles.put("SAML2Client", saml());
+        profiles.put("OidcClient", oidc());
+        profiles.put("StravaClient", strava());
+        profiles.put("ParameterClient", jwt());
+        return profiles;
+    }
+
+    public static CommonProfile form() {
+        final CommonProfile profile = new CommonProfile();
+        profile.setId("jleleu");
+        profile.setClientName("FormClient");
+        profile.addAttribute("username", "jleleu");
+        return profile;
+    }
+
+    public static FacebookProfile facebook() {
+        final FacebookProfile profile = new FacebookProfile();
+        profile.setId("10153923957521963");
+        profile.setClientName("FacebookClient");
+        profile.addAttribute("name", "Jérôme Leleu");
+        profile.addAttribute("first_name", "Jérôme");
+        profile.addAttribute("last_name", "Leleu");
+        profile.addAttribute("email", "jleleu@example.org");
+        profile.addAttribute("link", URI.create("https://www.facebook.com/app_scoped_user_id/10153923957521963/"));
+        profile.addAttribute("verified", true);
+        profile.addAttribute("timezone", 1);
+        profile.addAttribute("updated_time", AUTHENTICATED);
+        profile.addAttribute("access_token", "EAACEdEose0cBA" + "x".repeat(180));
+        return profile;
+    }
+
+    public static TwitterProfile twitter() {
+        final TwitterProfile profile = new TwitterProfile();
+        profile.setId("488358057");
+        profile.setClientName("TwitterClient");
+        profile.addAttribute("screen_name", "leleuj");
+        profile.addAttribute("name", "Jérôme LELEU");
+        profile.addAttribute("description", "Chairman of CAS, creator of pac4j");
+        profile.addAttribute("followers_count", 1532);
+        profile.addAttribute("friends_count", 345);
+        profile.addAttribute("created_at", AUTHENTICATED);
+        profile.addAttribute("profile_image_url", URI.create("https://pbs.twimg.com/profile_images/488358057/avatar_normal.jpg"));
+        profile.addAttribute("access_token", "488358057-" + "y".repeat(40));
+        profile.addAttribute("access_secret", "z".repeat(45));
+        return profile;
+    }
+
+    public static CasProfile cas() {
+        final CasProfile profile = new CasProfile();
+        profile.setId("jleleu");
+        profile.setClientName("CasClient");
+        profile.addAttribute("uid", "jleleu");
+        profile.addAttribute("eduPersonAffiliation", Arrays.asList("staff", "member"));
+        profile.addAttribute("isFromNewLogin", true);
+        profile.addAuthenticationAttribute("authenticationDate", AUTHENTICATED);
+        profile.addAuthenticationAttribute("authenticationMethod", "QueryDatabaseAuthenticationHandler");
+        profile.addAuthenticationAttribute("successfulAuthenticationHandlers", Collections.singletonList("QueryDatabaseAuthenticationHandler"));
+        profile.addAuthenticationAttribute("longTermAuthenticationRequestTokenUsed", false);
+        return profile;
+    }
+
+    public static SAML2Profile saml() {
+        final SAML2Profile profile = new SAML2Profile();
+        profile.setId("jleleu@example.org");
+        profile.setClientName("SAML2Client");
+        profile.addAttribute("urn:oid:0.9.2342.19200300.100.1.1", Collections.singletonList("jleleu"));
+        profile.addAttribute("urn:oid:0.9.2342.19200300.100.1.3", Collections.singletonList("jleleu@example.org"));
+        profile.addAttribute("urn:oid:1.3.6.1.4.1.5923.1.1.1.1", Arrays.asList("member", "staff", "employee"));
+        profile.addAttribute("urn:oid:2.5.4.42", Collections.singletonList("Jérôme"));
+        profile.addAttribute("urn:oid:2.5.4.4", Collections.singletonList("Leleu"));
+        profile.addAuthenticationAttribute("sessionindex", "_6c8f6d0bb4e1b3e5a0f5c0d2b7a9e8f1");
+        profile.addAuthenticationAttribute("issuerId", "http://www.okta.com/exk5gxols9EwZuGon0h7");
+        profile.addAuthenticationAttribute("authnContext", Collections.singletonList("urn:oasis:names:tc:SAML:2.0:ac:classes:PasswordProtectedTransport"));
+        profile.addAuthenticationAttribute("samlNameIdFormat", "urn:oasis:names:tc:SAML:1.1:nameid-format:unspecified");
+        profile.addAuthenticationAttribute("samlNameIdNameQualifier", "http://www.okta.com/exk5gxols9EwZuGon0h7");
+        return profile;
+    }
+
+    public static OidcProfile oidc() {
+        final OidcProfile profile = new OidcProfile();
+        profile.setId("108354637472916839271");
+        profile.setClientName("OidcClient");
+        profile.addRole("ROLE_ADMIN");
+        profile.addAttribute("iss", "https://accounts.google.com");
+        profile.addAttribute("aud", Collections.singletonList("736887899191-s2lsd8pakdjugkbp6v3lou7jd631rka2.apps.googleusercontent.com"));
+        profile.addAttribute("email", "jleleu@example.org");
+        profile.addAttribute("email_verified", true);
+        profile.addAttribute("name", "Jérôme Leleu");
+        profile.addAttribute("picture", URI.create("https://lh3.googleusercontent.com/a/default-user=s96-c"));
+        profile.addAttribute("locale", "fr");
+        profile.addAttribute("iat", AUTHENTICATED);
+        profile.addAttribute("exp", new Date(AUTHENTICATED.getTime() + 3_600_000L));
+        profile.setAccessToken(new BearerAccessToken("ya29.a0AfH6SM" + "a".repeat(160)));
+        profile.setRefreshToken(new RefreshToken("1//0g" + "b".repeat(98)));
+        profile.setIdTokenString("eyJhbGciOiJSUzI1NiIsImtpZCI6IjEifQ." + "c".repeat(600) + "." + "d".repeat(342));
+        return profile;
+    }
+
+    public static StravaProfile strava() {
+        final StravaProfile profile = new StravaProfile();
+        profile.setId("1234567");
+        profile.setClientName("StravaClient");
+        profile.addAttribute("firstname", "Jérôme");
+        profile.addAttribute("lastname", "Leleu");
+        profile.addAttribute("city", "Paris");
+        profile.addAttribute("country", "France");
+        profile.addAttribute("premium", false);
+        profile.addAttribute("created_at", AUTHENTICATED);
+        profile.addAttribute("access_token", "e".repeat(40));
+        return profile;
+    }
+
+    public static JwtProfile jwt() {
+        final JwtProfile profile = new JwtProfile();
+        profile.setId("jleleu");
+        profile.setClientName("ParameterClient");
+        profile.addAttribute("sub", "jleleu");
+        profile.addAttribute("iat", AUTHENTICATED);
+        profile.addAttribute("exp", new Date(AUTHENTICATED.getTime() + 300_000L));
+        profile.addAttribute("username", "jleleu");
+        return profile;
+    }
+}
@@ -0,0 +1,168 @@
+package org.pac4j.vertx.saml;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pac4j.core.client.Client;
+import org.pac4j.core.client.Clients;
+import org.pac4j.core.client.direct.AnonymousClient;
+import org.pac4j.core.config.Config;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @since 7.0.0
+ */
+public class IdpMetadataRegistryTest {
+
+    private static final String TESTSHIB_IDP = "https://idp.testshib.org/idp/shibboleth";
+    private static final String TESTSHIB_SP = "https://sp.testshib.org/shibboleth-sp";
+    private static final String FEIDE_IDP = "https://openidp.feide.no";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path testshib;
+    private Path feide;
+    private IdpMetadataRegistry registry;
+
+    @Before
+    public void setUp() throws Exception {
+        testshib = copy("testshib-providers.xml");
+        feide = copy("openidp-feide.xml");
+        registry = new IdpMetadataRegistry(Arrays.asList(testshib, feide), null, 0);
+        assertThat(registry.reloadIfChanged(), is(true));
+    }
+
+    @Test
+    public void testEntitiesAreIndexed() {
+        assertThat(registry.index().size(), is(3));
+        final EntityMetadata idp = registry.lookup(TESTSHIB_IDP);
+        assertThat(idp.isIdentityProvider(), is(true));
+        assertThat(idp.getSingleSignOnServices().get("urn:oasis:names:tc:SAML:2.0:bindings:HTTP-Redirect"),
+                is("https://idp.testshib.org/idp/profile/SAML2/Redirect/SSO"));
+        assertThat(idp.getSigningCertificates().size(), is(1));
+        assertThat(registry.lookup(TESTSHIB_SP).isServiceProvider(), is(true));
+        assertThat(registry.lookup(FEIDE_IDP), notNullValue());
+    }
+
+    @Test
+    public void testUnchangedFilesAreNotReloaded() {
+        final IdpMetadataIndex index = registry.index();
+        assertThat(registry.reloadIfChanged(), is(false));
+        assertThat(registry.index() == index, is(true));
+    }
+
+    @Test
+    public void testChangedFileIsReloaded() throws Exception {
+        rewrite(feide, content(feide).replace(FEIDE_IDP, "https://idp.example.org"));
+
+        assertThat(registry.reloadIfChanged(), is(true));
+        assertThat(registry.lookup(FEIDE_IDP), nullValue());
+        assertThat(registry.lookup("https://idp.example.org"), notNullValue());
+        assertThat(registry.lookup(TESTSHIB_IDP), notNullValue());
+    }
+
+    @Test
+    public void testInvalidFileKeepsPreviousIndex() throws Exception {
+        final IdpMetadataIndex index = registry.index();
+        final String original = content(feide);
+        rewrite(feide, "<md:EntityDescriptor");
+
+        assertThat(registry.reloadIfChanged(), is(true));
+        assertThat(registry.index() == index, is(true));
+        assertThat(registry.lookup(FEIDE_IDP), notNullValue());
+
+        // still invalid, so tried again rather than taken as loaded
+        assertThat(registry.reloadIfChanged(), is(true));
+        rewrite(feide, original.replace(FEIDE_IDP, "https://idp.example.org"));
+        assertThat(registry.reloadIfChanged(), is(true));
+        assertThat(registry.lookup("https://idp.example.org"), notNullValue());
+    }
+
+    @Test
+    public void testIdentityProviderDescriptorStandsAlone() throws Exception {
+        final String descriptor = registry.lookup(TESTSHIB_IDP).getDescriptor();
+        final List<EntityMetadata> parsed = IdpMetadataIndex.parse(
+                new ByteArrayInputStream(descriptor.getBytes(StandardCharsets.UTF_8)), "descriptor");
+
+        assertThat(parsed.size(), is(1));
+        assertThat(parsed.get(0).getEntityId(), is(TESTSHIB_IDP));
+        assertThat(parsed.get(0).getSigningCertificates(), is(registry.lookup(TESTSHIB_IDP).getSigningCertificates()));
+        assertThat(registry.lookup(TESTSHIB_SP).getDescriptor(), nullValue());
+    }
+
+    @Test
+    public void testChangeSwapsInANewClient() throws Exception {
+        final AnonymousClient initial = new AnonymousClient();
+        final Config config = new Config(new Clients("http://localhost/callback", initial));
+        final Clients clients = config.getClients();
+        registry.rebuildOnChange(config, AnonymousClient::new);
+
+        assertThat(registry.reloadIfChanged(), is(false));
+        assertThat(config.getClients() == clients, is(true));
+
+        rewrite(feide, content(feide) + "<!-- changed -->");
+        assertThat(registry.reloadIfChanged(), is(true));
+        final Client swapped = config.getClients().findClient("AnonymousClient").get();
+        assertThat(swapped == initial, is(false));
+        assertThat(config.getClients() == clients, is(false));
+    }
+
+    @Test
+    public void testLookupsNeverMissDuringReloads() throws Exception {
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicInteger misses = new AtomicInteger();
+        final Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                if (registry.lookup(TESTSHIB_IDP) == null) {
+                    misses.incrementAndGet();
+                }
+            }
+        });
+        reader.start();
+        final String original = content(testshib);
+        for (int i = 0; i < 50; i++) {
+            rewrite(testshib, original + "<!-- " + i + " -->");
+            assertThat(registry.reloadIfChanged(), is(true));
+        }
+        done.set(true);
+        reader.join();
+        assertThat(misses.get(), is(0));
+    }
+
+    private Path copy(final String resource) throws Exception {
+        final Path file = folder.getRoot().toPath().resolve(resource);
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(resource)) {
+            Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return file;
+    }
+
+    private static String content(final Path file) throws Exception {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+
+    private static void rewrite(final Path file, final String content) throws Exception {
+        final FileTime previous = Files.getLastModifiedTime(file);
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        // make sure the change is seen even on file systems with a coarse modification time
+        Files.setLastModifiedTime(file, FileTime.fromMillis(previous.toMillis() + 1000));
+    }
+}
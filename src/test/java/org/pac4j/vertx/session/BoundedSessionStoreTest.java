@@ -0,0 +1,155 @@
+package org.pac4j.vertx.session;
+
+import com.nimbusds.oauth2.sdk.token.BearerAccessToken;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.Session;
+import io.vertx.ext.web.sstore.LocalSessionStore;
+import io.vertx.ext.web.sstore.SessionStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.pac4j.vertx.verticle.DemoServerFixture.await;
+
+/**
+ * Checks the eviction of sessions beyond the budget and the size estimate of values the estimator has no rule for.
+ *
+ * @since 7.0.0
+ */
+public class BoundedSessionStoreTest {
+
+    private static final long TIMEOUT_MILLIS = 60_000;
+
+    private Vertx vertx;
+    private SessionStore local;
+
+    @Before
+    public void setUp() {
+        vertx = Vertx.vertx();
+        local = LocalSessionStore.create(vertx);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        await(vertx.close());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedSessionsAreEvicted() throws Exception {
+        final BoundedSessionStore store = new BoundedSessionStore(local, new SessionBudget(2, 0));
+        final Session first = store(store);
+        final Session second = store(store);
+        await(store.get(first.id()));
+        store(store);
+
+        assertThat(store.budget().size(), is(2));
+        assertThat(store.budget().evictions(), is(1L));
+        assertThat(await(local.get(first.id())), notNullValue());
+        assertThat(await(local.get(second.id())), nullValue());
+    }
+
+    @Test
+    public void testFailedEvictionsAreCounted() throws Exception {
+        final BoundedSessionStore store = new BoundedSessionStore(new FailingDeletes(local), new SessionBudget(1, 0));
+        final Session first = store(store);
+        store(store);
+
+        assertThat(store.budget().size(), is(1));
+        assertThat(store.budget().evictionFailures(), is(1L));
+        assertThat(store.budget().toPrometheus(), containsString("pac4j_session_eviction_failures_total 1\n"));
+        // the session the store failed to delete is still there, until it expires
+        assertThat(await(local.get(first.id())), notNullValue());
+    }
+
+    @Test
+    public void testTokensAndOpaqueValuesAreSizedFromTheirContent() {
+        final String value = String.join("", Collections.nCopies(100, "0123456789"));
+        assertThat(SessionSizeEstimator.estimate(new BearerAccessToken(value), 0), greaterThan(1000L));
+        final Object opaque = new Object() {
+            @Override
+            public String toString() {
+                return value;
+            }
+        };
+        assertThat(SessionSizeEstimator.estimate(opaque, 0), greaterThan(1000L));
+    }
+
+    private Session store(final SessionStore store) throws Exception {
+        final Session session = store.createSession(TIMEOUT_MILLIS);
+        session.put("requestedUrl", "/protected/index.html");
+        await(store.put(session));
+        return session;
+    }
+
+    /**
+     * A session store failing every deletion.
+     */
+    private static class FailingDeletes implements SessionStore {
+
+        private final SessionStore delegate;
+
+        FailingDeletes(final SessionStore delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public SessionStore init(final Vertx vertx, final JsonObject options) {
+            return this;
+        }
+
+        @Override
+        public long retryTimeout() {
+            return delegate.retryTimeout();
+        }
+
+        @Override
+        public Session createSession(final long timeout) {
+            return delegate.createSession(timeout);
+        }
+
+        @Override
+        public Session createSession(final long timeout, final int length) {
+            return delegate.createSession(timeout, length);
+        }
+
+        @Override
+        public Future<Session> get(final String cookieValue) {
+            return delegate.get(cookieValue);
+        }
+
+        @Override
+        public Future<Void> delete(final String id) {
+            return Future.failedFuture("unavailable");
+        }
+
+        @Override
+        public Future<Void> put(final Session session) {
+            return delegate.put(session);
+        }
+
+        @Override
+        public Future<Void> clear() {
+            return delegate.clear();
+        }
+
+        @Override
+        public Future<Integer> size() {
+            return delegate.size();
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package org.pac4j.vertx.session;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.Session;
+import io.vertx.ext.web.sstore.LocalSessionStore;
+import io.vertx.ext.web.sstore.SessionStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pac4j.vertx.profile.CompactProfileCodec;
+
+import java.io.Serializable;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+import static org.pac4j.vertx.verticle.DemoServerFixture.await;
+
+/**
+ * Checks what the write-behind session persistence writes: the session as it was when written, nothing for restored
+ * sessions, and no outdated copy of a session which can't be encoded; a failed last flush still closes the database.
+ *
+ * @since 7.0.0
+ */
+public class SessionPersistenceSnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Vertx vertx;
+    private SessionPersistence persistence;
+
+    @Before
+    public void setUp() throws Exception {
+        vertx = Vertx.vertx();
+        persistence = open();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        persistence.release(vertx);
+        await(vertx.close());
+    }
+
+    @Test
+    public void testSessionIsPersistedAsWritten() throws Exception {
+        final Session session = LocalSessionStore.create(vertx, "written").createSession(60_000);
+        session.put("user", "jleleu");
+        persistence.written(session);
+        session.put("user", "changed after the write");
+        assertThat(persistence.flush(), is(1));
+
+        final Session restored = await(reopenAndRestore().get(session.id()));
+        assertThat(restored.get("user"), is("jleleu"));
+    }
+
+    @Test
+    public void testRestoredSessionsAreNotWrittenAgain() throws Exception {
+        final Session session = LocalSessionStore.create(vertx, "written").createSession(60_000);
+        session.put("user", "jleleu");
+        persistence.written(session);
+        persistence.flush();
+
+        reopenAndRestore();
+        assertThat(persistence.flush(), is(0));
+    }
+
+    @Test
+    public void testSessionWhichCannotBeEncodedIsDeleted() throws Exception {
+        final Session session = LocalSessionStore.create(vertx, "written").createSession(60_000);
+        session.put("user", "jleleu");
+        persistence.written(session);
+        persistence.flush();
+
+        session.put("value", new NotSerializableInside());
+        persistence.written(session);
+        assertThat(persistence.flush(), is(1));
+
+        final SessionStore store = reopenAndRestore();
+        assertThat(await(store.size()), is(0));
+    }
+
+    @Test
+    public void testFailedLastFlushClosesTheDatabaseAndKeepsTheChanges() throws Exception {
+        final Session session = LocalSessionStore.create(vertx, "written").createSession(60_000);
+        session.put("user", "jleleu");
+        persistence.written(session);
+        try (Connection connection = DriverManager.getConnection(jdbcUrl());
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE pac4j_demo_sessions");
+        }
+
+        try {
+            persistence.release(vertx);
+            fail("The flush should have failed");
+        } catch (final SQLException expected) {
+            assertThat(persistence.flushFailures(), is(1L));
+        }
+        // closed, so acquiring it again opens the database anew, the failed change still queued
+        persistence.acquire(vertx);
+        assertThat(persistence.flush(), is(1));
+    }
+
+    private String jdbcUrl() {
+        return "jdbc:h2:" + folder.getRoot().getAbsolutePath() + "/sessions";
+    }
+
+    private SessionPersistence open() throws Exception {
+        final SessionPersistence opened = new SessionPersistence(new JsonObject()
+                .put("enabled", true)
+                .put("jdbcUrl", jdbcUrl())
+                .put("flushIntervalMs", 60_000), new CompactProfileCodec());
+        opened.acquire(vertx);
+        return opened;
+    }
+
+    /**
+     * Closes the database and restores it into a new persistent store, as a restart does.
+     */
+    private SessionStore reopenAndRestore() throws Exception {
+        persistence.release(vertx);
+        persistence = open();
+        final SessionStore store = new PersistentSessionStore(LocalSessionStore.create(vertx, "restored"), persistence);
+        await(persistence.restore(vertx, store));
+        return store;
+    }
+
+    private static class NotSerializableInside implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final Object inside = new Object();
+    }
+}
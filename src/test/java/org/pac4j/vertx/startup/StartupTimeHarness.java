@@ -0,0 +1,194 @@
+package org.pac4j.vertx.startup;
+
+import io.vertx.core.json.JsonObject;
+import org.pac4j.vertx.handler.LoginThrottle;
+import org.pac4j.vertx.idp.MockIdpVerticle;
+import org.pac4j.vertx.session.SessionPersistence;
+import org.pac4j.vertx.verticle.DemoServerFixture;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts the shaded fat jar in a fresh JVM, as an autoscaled instance would, and measures from the launch of the
+ * process the time until the demo is listening (first HTTP response) and until it has served a first protected page
+ * (a direct basic auth call to /dba/index.html). The demo runs against the mock identity providers, without the
+ * metrics listener or session persistence, so that runs are independent from one another and from the network.
+ *
+ * Arguments are key=value pairs:
+ * <ul>
+ *     <li>jar: the fat jar to start (required)</li>
+ *     <li>archive: the class data sharing archive (default target/pac4j-demo.jsa)</li>
+ *     <li>mode: "train" starts the demo once with -XX:ArchiveClassesAtExit, writing the archive when it stops; "measure"
+ *     (the default) times "runs" starts without the archive and, if the archive exists, as many with it</li>
+ *     <li>runs: number of starts measured per variant (default 5)</li>
+ * </ul>
+ * The output of the started JVMs is appended to target/startup-harness.log. Run by the cds profile, see the README.
+ *
+ * @since 7.0.0
+ */
+public class StartupTimeHarness {
+
+    private static final long TIMEOUT_MS = 120_000;
+    private static final long POLL_MS = 5;
+
+    public static void main(final String[] args) throws Exception {
+        final Map<String, String> options = new LinkedHashMap<>();
+        for (final String arg : args) {
+            final int eq = arg.indexOf('=');
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        if (!options.containsKey("jar")) {
+            throw new IllegalArgumentException("jar=<path of the fat jar> is required");
+        }
+        final Path jar = Path.of(options.get("jar"));
+        final Path archive = Path.of(options.getOrDefault("archive", "target/pac4j-demo.jsa"));
+        final int runs = Integer.parseInt(options.getOrDefault("runs", "5"));
+        final int port = DemoServerFixture.freePort();
+        final Path overrides = writeOverrides(port);
+        final File log = new File("target", "startup-harness.log");
+
+        if ("train".equals(options.getOrDefault("mode", "measure"))) {
+            Files.deleteIfExists(archive);
+            final Timings timings = start(jar, port, overrides, log, "-XX:ArchiveClassesAtExit=" + archive);
+            System.out.printf(Locale.ROOT, "Training run: %s, archive written to %s (%d KB)%n", timings, archive,
+                    Files.size(archive) / 1024);
+            return;
+        }
+
+        final List<Timings> plain = new ArrayList<>();
+        final List<Timings> shared = new ArrayList<>();
+        for (int i = 0; i < runs; i++) {
+            plain.add(start(jar, port, overrides, log, "-Xshare:auto"));
+            if (Files.exists(archive)) {
+                shared.add(start(jar, port, overrides, log, "-XX:SharedArchiveFile=" + archive));
+            }
+        }
+        System.out.printf(Locale.ROOT, "%nMedian of %d starts of %s%n", runs, jar);
+        System.out.println("  default CDS archive: " + Timings.median(plain));
+        if (!shared.isEmpty()) {
+            System.out.println("  application archive: " + Timings.median(shared));
+        } else {
+            System.out.println("  no archive at " + archive + ", run with mode=train first");
+        }
+    }
+
+    /**
+     * Launches the jar and waits for the first protected page, then stops the JVM (letting it write its archive when
+     * training).
+     */
+    private static Timings start(final Path jar, final int port, final Path overrides, final File log, final String jvmOption)
+            throws Exception {
+        final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(500)).build();
+        final String base = "http://localhost:" + port;
+        final long start = System.nanoTime();
+        final Process process = new ProcessBuilder(javaExecutable(), jvmOption, "-jar", jar.toString(), overrides.toString())
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(log))
+                .start();
+        try {
+            final long listening = waitFor(client, HttpRequest.newBuilder(URI.create(base + "/")).build(), process, start,
+                    -1);
+            final long protectedPage = waitFor(client, HttpRequest.newBuilder(URI.create(base + "/dba/index.html"))
+                    .header("Authorization", "Basic "
+                            + Base64.getEncoder().encodeToString("jle:jle".getBytes(StandardCharsets.UTF_8)))
+                    .build(), process, start, 200);
+            return new Timings(listening, protectedPage);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(60, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    /**
+     * Sends the request until it gets a response with the expected status (any status if negative).
+     *
+     * @return the milliseconds from the given start to that response
+     */
+    private static long waitFor(final HttpClient client, final HttpRequest request, final Process process,
+                                final long start, final int expectedStatus) throws Exception {
+        while (true) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("The demo exited with status " + process.exitValue()
+                        + ", see target/startup-harness.log");
+            }
+            final long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            if (elapsedMs > TIMEOUT_MS) {
+                throw new IllegalStateException("No response to " + request.uri() + " after " + elapsedMs + " ms");
+            }
+            try {
+                final HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                if (expectedStatus < 0 || response.statusCode() == expectedStatus) {
+                    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                }
+            } catch (final IOException e) {
+                // not listening yet
+            }
+            Thread.sleep(POLL_MS);
+        }
+    }
+
+    private static Path writeOverrides(final int port) throws IOException {
+        final Path overrides = Files.createTempFile("pac4j-demo-startup", ".json");
+        overrides.toFile().deleteOnExit();
+        Files.writeString(overrides, new JsonObject()
+                .put("httpPort", port)
+                .put("baseUrl", "http://localhost:" + port)
+                .put("metricsPort", 0)
+                .put(SessionPersistence.CONFIG_KEY, new JsonObject().put("enabled", false))
+                .put(LoginThrottle.CONFIG_KEY, new JsonObject().put("enabled", false))
+                .put(MockIdpVerticle.CONFIG_KEY, new JsonObject().put("enabled", true).put("port", DemoServerFixture.freePort()))
+                .encodePrettily());
+        return overrides;
+    }
+
+    private static String javaExecutable() {
+        return Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    }
+
+    private static class Timings {
+        private final long listeningMs;
+        private final long protectedPageMs;
+
+        private Timings(final long listeningMs, final long protectedPageMs) {
+            this.listeningMs = listeningMs;
+            this.protectedPageMs = protectedPageMs;
+        }
+
+        private static Timings median(final List<Timings> timings) {
+            final List<Long> listening = new ArrayList<>();
+            final List<Long> protectedPage = new ArrayList<>();
+            timings.forEach(t -> {
+                listening.add(t.listeningMs);
+                protectedPage.add(t.protectedPageMs);
+            });
+            Collections.sort(listening);
+            Collections.sort(protectedPage);
+            return new Timings(listening.get(listening.size() / 2), protectedPage.get(protectedPage.size() / 2));
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "listening after %d ms, first protected page after %d ms",
+                    listeningMs, protectedPageMs);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package org.pac4j.vertx.template;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+import static org.pac4j.vertx.verticle.DemoServerFixture.await;
+
+/**
+ * Checks how templates are compiled, rendered and shared.
+ *
+ * @since 7.0.0
+ */
+public class PrecompiledTemplatesTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Vertx vertx;
+
+    @Before
+    public void setUp() {
+        vertx = Vertx.vertx();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        await(vertx.close());
+    }
+
+    @Test
+    public void testBrokenTemplateFailsCompilationWhenFailFast() throws IOException {
+        final File directory = templates(Map.of("good", "{{name}}", "broken", "{{#if name}}unclosed"));
+        try {
+            PrecompiledTemplates.compile(vertx, directory.getPath(), true);
+            fail("a broken template should fail the compilation");
+        } catch (final IllegalStateException e) {
+            assertThat(e.getMessage(), is("Failed to compile template broken.hbs"));
+        }
+    }
+
+    @Test
+    public void testBrokenTemplateOnlyFailsItsRequestsOtherwise() throws IOException {
+        final File directory = templates(Map.of("good", "{{name}}", "broken", "{{#if name}}unclosed"));
+        final PrecompiledTemplates templates = PrecompiledTemplates.compile(vertx, directory.getPath(), false);
+        assertThat(templates.render("good", new JsonObject().put("name", "jleleu")).toString(), is("jleleu"));
+        try {
+            templates.render("broken", new JsonObject());
+            fail("a template that didn't compile should not render");
+        } catch (final IllegalArgumentException e) {
+            assertThat(e.getMessage(), is("No compiled template named broken"));
+        }
+    }
+
+    @Test
+    public void testJsonModelsAndBeansRender() throws IOException {
+        final File directory = templates(Map.of("profiles",
+                "{{#each profiles}}{{id}}:{{#each roles}}{{this}}{{/each}}:{{bytes}};{{/each}}"));
+        final PrecompiledTemplates templates = PrecompiledTemplates.compile(vertx, directory.getPath(), true);
+        final JsonObject model = new JsonObject().put("profiles", new JsonArray()
+                .add(new JsonObject().put("id", "jleleu").put("roles", new JsonArray().add("admin")).put("bytes", 3))
+                .add(new Fields("mary", "user")));
+        assertThat(templates.render("profiles", model).toString(), is("jleleu:admin:3;mary:user:;"));
+    }
+
+    @Test
+    public void testVersionChangesWithTheSources() throws IOException {
+        final String first = PrecompiledTemplates.compile(vertx,
+                templates(Map.of("page", "{{name}}")).getPath(), true).version();
+        final String same = PrecompiledTemplates.compile(vertx,
+                templates(Map.of("page", "{{name}}")).getPath(), true).version();
+        final String changed = PrecompiledTemplates.compile(vertx,
+                templates(Map.of("page", "{{name}}!")).getPath(), true).version();
+        assertThat(same, is(first));
+        assertThat(changed, not(first));
+    }
+
+    @Test
+    public void testTemplatesAreCompiledOnceForEveryVerticle() throws Exception {
+        final PrecompiledTemplates first = await(PrecompiledTemplates.shared(vertx, true));
+        final PrecompiledTemplates second = await(PrecompiledTemplates.shared(vertx, true));
+        assertThat(second, sameInstance(first));
+    }
+
+    private File templates(final Map<String, String> sources) throws IOException {
+        final File directory = folder.newFolder();
+        for (final Map.Entry<String, String> source : sources.entrySet()) {
+            Files.writeString(new File(directory, source.getKey() + PrecompiledTemplates.TEMPLATE_EXTENSION).toPath(),
+                    source.getValue(), StandardCharsets.UTF_8);
+        }
+        return directory;
+    }
+
+    /**
+     * A model exposing public fields only, resolved like the vert.x handlebars engine resolves them.
+     */
+    public static class Fields {
+        public final String id;
+        public final String[] roles;
+
+        Fields(final String id, final String... roles) {
+            this.id = id;
+            this.roles = roles;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package org.pac4j.vertx.verticle;
+
+import io.vertx.core.Future;
+import io.vertx.core.MultiMap;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.PoolOptions;
+import io.vertx.core.json.JsonObject;
+import org.pac4j.vertx.handler.LoginThrottle;
+import org.pac4j.vertx.idp.MockIdpVerticle;
+import org.pac4j.vertx.session.SessionPersistence;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deploys the demo server in-process against the bundled config_demo.json (plus any overrides) and offers blocking
+ * helpers to drive it over HTTP, for use by tests and benchmarks.
+ *
+ * @since 7.0.0
+ */
+public class DemoServerFixture implements AutoCloseable {
+
+    public static final String SESSION_COOKIE_NAME = "vertx-web.session";
+
+    private static final long TIMEOUT_SECONDS = 30;
+
+    private final Vertx vertx;
+    private final HttpClient client;
+    private final int port;
+
+    private DemoServerFixture(final Vertx vertx, final HttpClient client, final int port) {
+        this.vertx = vertx;
+        this.client = client;
+        this.port = port;
+    }
+
+    /**
+     * @param overrides config entries replacing those of config_demo.json; the metrics listener and the session
+     *                  persistence are disabled unless overridden, so tests don't clash with a running demo, as is the
+     *                  login throttle, as tests and benchmarks log in repeatedly from the same address. The
+     *                  mock identity providers are deployed first if "mockIdp" enables them
+     */
+    public static DemoServerFixture start(final JsonObject overrides) throws Exception {
+        return start(overrides, new HttpClientOptions().setKeepAlive(true));
+    }
+
+    /**
+     * @param clientOptions options of the client driving the server, e.g. for HTTP/2 or compression
+     */
+    public static DemoServerFixture start(final JsonObject overrides, final HttpClientOptions clientOptions) throws Exception {
+        final JsonObject demoConfig = demoConfig()
+                .put("metricsPort", 0)
+                .put(SessionPersistence.CONFIG_KEY, new JsonObject().put("enabled", false))
+                .put(LoginThrottle.CONFIG_KEY, new JsonObject().put("enabled", false))
+                .mergeIn(overrides);
+        final Vertx vertx = Vertx.vertx();
+        final JsonObject config = await(MockIdpVerticle.deployIfEnabled(vertx, demoConfig));
+        await(vertx.deployVerticle(DemoServerVerticle.class.getName(), MainVerticle.deploymentOptions(config)));
+        final HttpClient client = vertx.createHttpClient(clientOptions, new PoolOptions().setHttp1MaxSize(256));
+        return new DemoServerFixture(vertx, client, config.getInteger("httpPort"));
+    }
+
+    /**
+     * @return a port nothing listens on right now, for the demo or the mock identity providers of a test
+     */
+    public static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    public static JsonObject demoConfig() throws IOException {
+        try (InputStream in = DemoServerFixture.class.getClassLoader().getResourceAsStream("config_demo.json")) {
+            return new JsonObject(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    public Vertx vertx() {
+        return vertx;
+    }
+
+    /**
+     * Logs in through the FormClient callback (the demo authenticator accepts username == password) and returns the
+     * session cookie to send on subsequent requests.
+     */
+    public String loginWithForm(final String username) throws Exception {
+        final Result result = send(HttpMethod.POST, "/callback?client_name=FormClient", null,
+                "username=" + username + "&password=" + username);
+        return result.cookies.stream()
+                .filter(cookie -> cookie.startsWith(SESSION_COOKIE_NAME + "="))
+                .map(cookie -> cookie.substring(0, cookie.indexOf(';') > 0 ? cookie.indexOf(';') : cookie.length()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("No session cookie returned by form login, status " + result.status));
+    }
+
+    public Result get(final String uri, final String cookie) throws Exception {
+        return send(HttpMethod.GET, uri, cookie, null);
+    }
+
+    /**
+     * @param headers request headers, e.g. an Authorization header for the direct clients
+     */
+    public Result getWithHeaders(final String uri, final MultiMap headers) throws Exception {
+        return sendWithHeaders(HttpMethod.GET, uri, headers, null);
+    }
+
+    public Result send(final HttpMethod method, final String uri, final String cookie, final String formBody) throws Exception {
+        final MultiMap headers = MultiMap.caseInsensitiveMultiMap();
+        if (cookie != null) {
+            headers.add("Cookie", cookie);
+        }
+        return sendWithHeaders(method, uri, headers, formBody);
+    }
+
+    public Result sendWithHeaders(final HttpMethod method, final String uri, final MultiMap headers, final String formBody) throws Exception {
+        return await(client.request(method, port, "localhost", uri).compose(request -> {
+            request.headers().addAll(headers);
+            final Future<HttpClientResponse> response;
+            if (formBody != null) {
+                request.putHeader("Content-Type", "application/x-www-form-urlencoded");
+                response = request.send(formBody);
+            } else {
+                response = request.send();
+            }
+            return response;
+        }).compose(response -> response.body()
+                .map(body -> new Result(response.statusCode(), body.toString(), response.cookies()))));
+    }
+
+    @Override
+    public void close() throws Exception {
+        await(client.close());
+        await(vertx.close());
+    }
+
+    public static <T> T await(final Future<T> future) throws Exception {
+        return future.toCompletionStage().toCompletableFuture().get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public static class Result {
+        public final int status;
+        public final String body;
+        public final List<String> cookies;
+
+        Result(final int status, final String body, final List<String> cookies) {
+            this.status = status;
+            this.body = body;
+            this.cookies = cookies;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.pac4j.vertx.verticle;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.sstore.LocalSessionStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.pac4j.vertx.verticle.DemoServerFixture.await;
+
+/**
+ * Checks anonymous visits to pages which write nothing to the session neither store sessions nor send session
+ * cookies, while a visit needing one gets it and logged in users keep theirs.
+ *
+ * @since 7.0.0
+ */
+public class LazySessionTest {
+
+    private static final int ANONYMOUS_HITS = 50;
+    private static final String[] ANONYMOUS_PAGES = {"/", "/index.html", "/loginForm", "/javascript/app.js"};
+
+    private DemoServerFixture server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = DemoServerFixture.start(new JsonObject()
+                .put("httpPort", DemoServerFixture.freePort())
+                .put("serverInstances", 1));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.close();
+    }
+
+    @Test
+    public void testAnonymousHitsDoNotCreateSessions() throws Exception {
+        for (int i = 0; i < ANONYMOUS_HITS; i++) {
+            final DemoServerFixture.Result result = server.get(ANONYMOUS_PAGES[i % ANONYMOUS_PAGES.length], null);
+            assertThat(result.status, is(200));
+            assertThat(result.cookies.isEmpty(), is(true));
+        }
+        assertThat(storedSessions(), is(0));
+    }
+
+    @Test
+    public void testProtectedPageCreatesSession() throws Exception {
+        final DemoServerFixture.Result result = server.get("/form/index.html", null);
+        assertThat(result.status, is(302));
+        assertThat(result.cookies.isEmpty(), is(false));
+        assertThat(storedSessions(), is(1));
+    }
+
+    @Test
+    public void testLoggedInUserKeepsSession() throws Exception {
+        final String sessionCookie = server.loginWithForm("jleleu");
+        final DemoServerFixture.Result result = server.get("/", sessionCookie);
+        assertThat(result.status, is(200));
+        assertThat(result.body, containsString("jleleu"));
+        assertThat(storedSessions(), is(1));
+    }
+
+    private int storedSessions() throws Exception {
+        return await(LocalSessionStore.create(server.vertx(), DemoServerVerticle.SESSION_MAP_NAME).size());
+    }
+}
@@ -0,0 +1,66 @@
+package org.pac4j.vertx.verticle;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pac4j.core.client.Clients;
+import org.pac4j.core.config.Config;
+import org.pac4j.http.client.direct.AnonymousClient;
+import org.pac4j.vertx.config.ClientWarmup;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.pac4j.vertx.verticle.DemoServerFixture.await;
+
+/**
+ * Checks that the server only reports ready once the client warmup is done and every instance listens.
+ *
+ * @since 7.0.0
+ */
+public class ServerReadinessTest {
+
+    private Vertx vertx;
+
+    @Before
+    public void setUp() {
+        vertx = Vertx.vertx();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        await(vertx.close());
+    }
+
+    @Test
+    public void testNotReadyUntilEveryInstanceListens() {
+        final ServerReadiness readiness = new ServerReadiness(2, false);
+        assertThat(readiness.isReady(vertx), is(false));
+        readiness.listening();
+        assertThat(readiness.isReady(vertx), is(false));
+        readiness.listening();
+        assertThat(readiness.isReady(vertx), is(true));
+        readiness.stopped();
+        assertThat(readiness.isReady(vertx), is(false));
+    }
+
+    @Test
+    public void testNotReadyUntilTheWarmupIsPublished() throws Exception {
+        final ServerReadiness readiness = new ServerReadiness(1, true);
+        readiness.listening();
+        assertThat(readiness.isReady(vertx), is(false));
+
+        final JsonObject conf = new JsonObject().put(ClientWarmup.CONFIG_KEY, new JsonObject().put("enabled", true));
+        final Config config = new Config(new Clients(new AnonymousClient()));
+        await(ClientWarmup.run(vertx, config, conf, "test-warmup", 1)).publish(vertx);
+        assertThat(readiness.isReady(vertx), is(true));
+    }
+
+    @Test
+    public void testReadinessIsSharedByTheInstances() {
+        final JsonObject conf = new JsonObject().put("serverInstances", 1);
+        ServerReadiness.shared(vertx, conf).listening();
+        assertThat(ServerReadiness.shared(vertx, conf).isReady(vertx), is(true));
+    }
+}
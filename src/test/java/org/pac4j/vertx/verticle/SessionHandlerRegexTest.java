@@ -1,7 +1,11 @@
 package org.pac4j.vertx.verticle;
 
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
 import org.junit.Test;
+import org.pac4j.vertx.session.StatelessPaths;
 
+import java.util.List;
 import java.util.regex.Pattern;
 
 import static org.hamcrest.CoreMatchers.is;
@@ -38,6 +42,30 @@ public class SessionHandlerRegexTest {
         assertThat(pattern.matcher("/callback").matches(), is(true));
     }
 
+    @Test
+    public void testStatelessPathsAreEquivalentToRegexp() {
+        final Pattern pattern = pattern();
+        final StatelessPaths statelessPaths = new StatelessPaths(StatelessPaths.DEFAULT_PREFIXES);
+        for (final String path : List.of("/", "/index.html", "/callback", "/logout", "/centralLogout", "/loginForm",
+                "/forceLogin", "/jwt.html", "/jwt.json", "/form/index.html", "/form/index.html.json",
+                "/facebook/index.html", "/protected/index.html", "/javascript/app.js",
+                "/dba/index.html", "/dba/", "/dba", "/dbax/index.html", "/DBA/index.html", "//dba/index.html",
+                "/rest-jwt/index.html", "/rest-jwt/", "/rest-jwt", "/rest-jwtx/", "/rest/jwt/index.html",
+                "dba/index.html", "index.html", "")) {
+            assertThat(path, statelessPaths.isStateless(path), is(!pattern.matcher(path).matches()));
+        }
+    }
+
+    @Test
+    public void testStatelessPathsFromConfig() {
+        final StatelessPaths statelessPaths = StatelessPaths.fromConfig(new JsonObject()
+                .put(StatelessPaths.CONFIG_KEY, new JsonArray().add("api/").add("/metrics")));
+        assertThat(statelessPaths.isStateless("/api/users"), is(true));
+        assertThat(statelessPaths.isStateless("/metrics"), is(true));
+        assertThat(statelessPaths.isStateless("/dba/index.html"), is(false));
+        assertThat(statelessPaths.isStateless("/form/index.html"), is(false));
+    }
+
     public Pattern pattern() {
         return Pattern.compile(DemoServerVerticle.SESSION_HANDLER_REGEXP); // This mimics the "starts with match" behaviour of regex route matching in vert.x
     }
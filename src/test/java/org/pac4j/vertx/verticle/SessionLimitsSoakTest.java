@@ -0,0 +1,80 @@
+package org.pac4j.vertx.verticle;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.sstore.LocalSessionStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pac4j.vertx.session.SessionBudget;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.pac4j.vertx.verticle.DemoServerFixture.await;
+
+/**
+ * Logs in thousands of synthetic form users against a small session budget, and checks the store stays within it,
+ * evicting the least recently used sessions, and that what it accounts for doesn't grow with the number of logins:
+ * the budget tracks exactly the sessions the store holds, at a steady size per session.
+ *
+ * @since 7.0.0
+ */
+public class SessionLimitsSoakTest {
+
+    private static final int MAX_SESSIONS = 500;
+    private static final long MAX_BYTES = 2_000_000;
+    private static final int USERS = 3000;
+
+    private DemoServerFixture server;
+    private SessionBudget budget;
+
+    @Before
+    public void setUp() throws Exception {
+        server = DemoServerFixture.start(new JsonObject()
+                .put("httpPort", DemoServerFixture.freePort())
+                .put("serverInstances", 2)
+                .put(SessionBudget.CONFIG_KEY, new JsonObject()
+                        .put("maxSessions", MAX_SESSIONS)
+                        .put("maxBytes", MAX_BYTES)));
+        budget = SessionBudget.shared(server.vertx(), new JsonObject());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.close();
+    }
+
+    @Test
+    public void testSessionsStayWithinLimits() throws Exception {
+        final String firstSession = server.loginWithForm("user0");
+        for (int i = 1; i < MAX_SESSIONS; i++) {
+            server.loginWithForm("user" + i);
+        }
+        final long baselineBytesPerSession = budget.totalBytes() / budget.size();
+
+        String lastSession = null;
+        for (int i = MAX_SESSIONS; i < USERS; i++) {
+            lastSession = server.loginWithForm("user" + i);
+            assertThat(budget.size(), lessThanOrEqualTo(MAX_SESSIONS));
+            assertThat(budget.totalBytes(), lessThanOrEqualTo(MAX_BYTES));
+        }
+
+        assertThat(storedSessions(), lessThanOrEqualTo(MAX_SESSIONS));
+        assertThat(budget.size(), is(storedSessions()));
+        assertThat(budget.evictions(), greaterThanOrEqualTo((long) (USERS - MAX_SESSIONS)));
+        assertThat(budget.totalBytes() / budget.size(), lessThan(2 * baselineBytesPerSession));
+
+        // the most recent users are still logged in, the first one's session was evicted
+        final DemoServerFixture.Result recent = server.get("/form/index.html", lastSession);
+        assertThat(recent.status, is(200));
+        assertThat(recent.body, containsString("user" + (USERS - 1)));
+        assertThat(server.get("/form/index.html", firstSession).status, is(302));
+    }
+
+    private int storedSessions() throws Exception {
+        return await(LocalSessionStore.create(server.vertx(), DemoServerVerticle.SESSION_MAP_NAME).size());
+    }
+}
@@ -0,0 +1,74 @@
+package org.pac4j.vertx.verticle;
+
+import io.vertx.core.json.JsonObject;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pac4j.vertx.session.SessionPersistence;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+
+/**
+ * Restarts the demo server and checks the sessions created before the restart are still logged in after it, and
+ * that logged out sessions stay logged out.
+ *
+ * @since 7.0.0
+ */
+public class SessionPersistenceTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private DemoServerFixture server;
+
+    @After
+    public void tearDown() throws Exception {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testSessionsSurviveRestart() throws Exception {
+        server = start();
+        final String sessionCookie = server.loginWithForm("jleleu");
+        assertThat(server.get("/form/index.html", sessionCookie).status, is(200));
+
+        restart();
+
+        final DemoServerFixture.Result result = server.get("/form/index.html", sessionCookie);
+        assertThat(result.status, is(200));
+        assertThat(result.body, containsString("jleleu"));
+    }
+
+    @Test
+    public void testLoggedOutSessionsStayLoggedOut() throws Exception {
+        server = start();
+        final String sessionCookie = server.loginWithForm("jleleu");
+        assertThat(server.get("/logout", sessionCookie).status, lessThan(400));
+
+        restart();
+
+        assertThat(server.get("/form/index.html", sessionCookie).status, is(302));
+    }
+
+    private void restart() throws Exception {
+        server.close();
+        server = null;
+        server = start();
+    }
+
+    private DemoServerFixture start() throws Exception {
+        return DemoServerFixture.start(new JsonObject()
+                .put("httpPort", DemoServerFixture.freePort())
+                .put("serverInstances", 2)
+                .put(SessionPersistence.CONFIG_KEY, new JsonObject()
+                        .put("enabled", true)
+                        .put("jdbcUrl", "jdbc:h2:" + folder.getRoot().getAbsolutePath() + "/sessions")
+                        .put("flushIntervalMs", 60000)));
+    }
+}